@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * A micro benchmark of one operation. The runner calls Setup once for 
+ * every combination of bit width and size, and then Run many times, timing
+ * every call.
+ * 
+ * Run must fold the results of the operations into the value it returns, 
+ * so the JIT compiler cannot remove them.
+ * 
+ * @see BenchmarkRunner
+ * @author Simon Edänge
+ */
+public abstract class Benchmark
+{
+    /**
+     * Seed of the random data, so every run measures the same data.
+     */
+    public static final long SEED = 42;
+    
+    private final String mName;
+    
+    /**
+     * Constructs a benchmark.
+     * 
+     * @param name Name in the results, e.g. "Entries.HasKey".
+     */
+    protected Benchmark(String name)
+    {
+        mName = name;
+    }
+    
+    /**
+     * 
+     * @return Name in the results.
+     */
+    public final String GetName()
+    {
+        return mName;
+    }
+    
+    /**
+     * 
+     * @return True if the operation depends on the bit width of the ring.
+     */
+    public boolean UsesBits()
+    {
+        return true;
+    }
+    
+    /**
+     * 
+     * @return True if the operation depends on the size parameter, e.g. the
+     * number of keys stored.
+     */
+    public boolean UsesSize()
+    {
+        return false;
+    }
+    
+    /**
+     * 
+     * @param bits Bit width of the ring.
+     * @param size Size parameter.
+     * @return False if the combination cannot be measured, e.g. more keys 
+     * than there are identifiers.
+     */
+    public boolean Supports(int bits, int size)
+    {
+        return true;
+    }
+    
+    /**
+     * Prepares the data of the benchmark.
+     * 
+     * @param bits Bit width of the ring.
+     * @param size Size parameter, 0 if not used.
+     */
+    public abstract void Setup(int bits, int size);
+    
+    /**
+     * Performs the operation.
+     * 
+     * @param ops Number of operations.
+     * @return A value depending on the results of the operations.
+     */
+    public abstract long Run(long ops);
+    
+    /**
+     * Releases the data of the benchmark.
+     */
+    public void TearDown()
+    {
+    }
+    
+    /**
+     * 
+     * @param rand Random generator.
+     * @param bits Bit width.
+     * @return A random number between 0 and 2^bits - 1.
+     */
+    protected static BigInteger RandomValue(Random rand, int bits)
+    {
+        return new BigInteger(bits, rand);
+    }
+}
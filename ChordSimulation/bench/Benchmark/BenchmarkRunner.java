@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the micro benchmarks of the core operations, for every bit width and
+ * size, and writes the results to a csv or json file, so an optimization 
+ * can be compared with an earlier run.
+ * 
+ * Every benchmark is first calibrated to find how many operations fit in 
+ * one iteration, then run for a number of warmup iterations that are not 
+ * measured, and then for the measured iterations. The result is the time 
+ * per operation of the measured iterations.
+ * 
+ * Usage: BenchmarkRunner [key=value ...], or ant run-bench
+ *        -Dbench.args="key=value ..."
+ * 
+ * bits        Bit widths of the ring (16,64,160)
+ * sizes       Number of keys stored, for the benchmarks that store keys
+ *             (1000,10000,100000,1000000). 10000000 keys need a heap of
+ *             about 4 GB, e.g. -Xmx4g
+ * filter      Regular expression, only the benchmarks with a name 
+ *             containing a match are run (all)
+ * warmup      Warmup iterations (5)
+ * iterations  Measured iterations (10)
+ * time        Time (ms) of one iteration (200)
+ * format      csv or json (csv)
+ * out         File to write the results to (benchmark-results.format)
+ * 
+ * @see Benchmark
+ * @author Simon Edänge
+ */
+public class BenchmarkRunner
+{
+    private final int[] mBits;
+    private final int[] mSizes;
+    private final Pattern mFilter;
+    private final int mWarmup;
+    private final int mIterations;
+    private final long mTime;
+    private final boolean mJson;
+    private final File mOut;
+    private final List<Result> mResults;
+    
+    //Everything returned by the benchmarks, so it cannot be optimized away.
+    private volatile long mSink;
+    
+    /**
+     * The measured time of one benchmark, bit width and size.
+     */
+    private static class Result
+    {
+        final String name;
+        final int bits;
+        final int size;
+        final long ops;
+        final double[] nsPerOp;
+        
+        Result(String name, int bits, int size, long ops, double[] nsPerOp)
+        {
+            this.name = name;
+            this.bits = bits;
+            this.size = size;
+            this.ops = ops;
+            this.nsPerOp = nsPerOp;
+        }
+        
+        double Mean()
+        {
+            double sum = 0;
+            
+            for(double t : nsPerOp)
+                sum += t;
+            
+            return sum / nsPerOp.length;
+        }
+        
+        double StdDev()
+        {
+            double mean = Mean();
+            double sum = 0;
+            
+            for(double t : nsPerOp)
+                sum += (t - mean) * (t - mean);
+            
+            return nsPerOp.length < 2 ? 0 
+                    : Math.sqrt(sum / (nsPerOp.length - 1));
+        }
+        
+        double Min()
+        {
+            double min = Double.MAX_VALUE;
+            
+            for(double t : nsPerOp)
+                min = Math.min(min, t);
+            
+            return min;
+        }
+        
+        double Max()
+        {
+            double max = 0;
+            
+            for(double t : nsPerOp)
+                max = Math.max(max, t);
+            
+            return max;
+        }
+    }
+    
+    /**
+     * Constructs a benchmark runner.
+     * 
+     * @param properties The parameters, see the class description.
+     */
+    public BenchmarkRunner(Properties properties)
+    {
+        mBits = GetInts(properties, "bits", "16,64,160");
+        mSizes = GetInts(properties, "sizes", "1000,10000,100000,1000000");
+        mWarmup = GetInts(properties, "warmup", "5")[0];
+        mIterations = Math.max(1, GetInts(properties, "iterations", "10")[0]);
+        mTime = Math.max(1, GetInts(properties, "time", "200")[0]);
+        
+        String filter = properties.getProperty("filter");
+        mFilter = filter == null ? null : Pattern.compile(filter);
+        
+        String format = properties.getProperty("format", "csv");
+        
+        if(!format.equals("csv") && !format.equals("json"))
+            throw new IllegalArgumentException("format must be csv or json: "
+                    + format);
+        
+        mJson = format.equals("json");
+        mOut = new File(properties.getProperty("out", 
+                "benchmark-results." + format));
+        mResults = new ArrayList<>();
+    }
+    
+    private static int[] GetInts(Properties properties, String key, 
+            String def)
+    {
+        String[] values = properties.getProperty(key, def).split(",");
+        int[] result = new int[values.length];
+        
+        try
+        {
+            for(int i = 0; i < values.length; i++)
+                result[i] = Integer.parseInt(values[i].trim());
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(key 
+                    + " must be a list of numbers: " + properties.getProperty(key));
+        }
+        
+        for(int v : result)
+        {
+            if(v < 0 || (key.equals("bits") && (v < 1 || v > 160)) 
+                    || (key.equals("sizes") && v < 1))
+                throw new IllegalArgumentException("Invalid " + key + ": " + v);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 
+     * @return All benchmarks.
+     */
+    public static List<Benchmark> All()
+    {
+        return Arrays.asList(
+                new HashBenchmark(HashBenchmark.Operation.HASH_VALUE),
+                new HashBenchmark(HashBenchmark.Operation.CONSISTENT_HASH),
+                new IntervalBenchmark(IntervalBenchmark.Operation.IS_BETWEEN),
+                new IntervalBenchmark(
+                        IntervalBenchmark.Operation.IS_BETWEEN_SUCCESSOR),
+                new ChordKeyBenchmark(),
+                new EntriesBenchmark(EntriesBenchmark.Operation.HAS_KEY),
+                new EntriesBenchmark(EntriesBenchmark.Operation.INSERT_KEY),
+                new EntriesBenchmark(
+                        EntriesBenchmark.Operation.KEYS_RESPONSIBLE_FOR),
+                new FingerTableBenchmark(),
+                new ProcessXBenchmark());
+    }
+    
+    /**
+     * Runs the benchmarks and writes the results.
+     * 
+     * @throws IOException If the results cannot be written.
+     */
+    public void Run() throws IOException
+    {
+        for(Benchmark b : All())
+        {
+            if(mFilter != null && !mFilter.matcher(b.GetName()).find())
+                continue;
+            
+            int[] bits = b.UsesBits() ? mBits : new int[] { 0 };
+            int[] sizes = b.UsesSize() ? mSizes : new int[] { 0 };
+            
+            for(int m : bits)
+            {
+                for(int size : sizes)
+                {
+                    if(!b.Supports(m, size))
+                    {
+                        System.out.println(String.format(Locale.ROOT, 
+                                "%-32s bits=%-4d size=%-9d skipped", 
+                                b.GetName(), m, size));
+                        continue;
+                    }
+                    
+                    Result r = Measure(b, m == 0 ? mBits[0] : m, size);
+                    mResults.add(new Result(r.name, m, size, r.ops, 
+                            r.nsPerOp));
+                    
+                    System.out.println(String.format(Locale.ROOT, 
+                            "%-32s bits=%-4d size=%-9d %12.2f ns/op +- %.2f",
+                            b.GetName(), m, size, r.Mean(), r.StdDev()));
+                }
+            }
+        }
+        
+        Write();
+        System.out.println("Results written to " + mOut.getPath());
+    }
+    
+    private Result Measure(Benchmark b, int bits, int size)
+    {
+        b.Setup(bits, size);
+        System.gc();
+        
+        long ops = Calibrate(b);
+        
+        for(int i = 0; i < mWarmup; i++)
+            Time(b, ops);
+        
+        double[] nsPerOp = new double[mIterations];
+        
+        for(int i = 0; i < mIterations; i++)
+            nsPerOp[i] = (double)Time(b, ops) / ops;
+        
+        b.TearDown();
+        
+        return new Result(b.GetName(), bits, size, ops, nsPerOp);
+    }
+    
+    /**
+     * 
+     * @return Number of operations that take about one iteration time.
+     */
+    private long Calibrate(Benchmark b)
+    {
+        long target = mTime * 1000000;
+        long ops = 1;
+        
+        while(true)
+        {
+            long time = Time(b, ops);
+            
+            if(time >= target / 10 || ops >= Long.MAX_VALUE / 1024)
+                return Math.max(1, (long)((double)ops * target / Math.max(1, time)));
+            
+            ops *= 4;
+        }
+    }
+    
+    /**
+     * 
+     * @return Time (ns) of the operations.
+     */
+    private long Time(Benchmark b, long ops)
+    {
+        long start = System.nanoTime();
+        long result = b.Run(ops);
+        long time = System.nanoTime() - start;
+        
+        mSink += result;
+        
+        return time;
+    }
+    
+    private void Write() throws IOException
+    {
+        File dir = mOut.getAbsoluteFile().getParentFile();
+        
+        if(dir != null)
+            dir.mkdirs();
+        
+        try(PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(mOut), StandardCharsets.UTF_8)))
+        {
+            if(mJson)
+                WriteJson(out);
+            else
+                WriteCsv(out);
+        }
+    }
+    
+    private void WriteCsv(PrintWriter out)
+    {
+        out.println("benchmark,bits,size,ops,iterations,ns_per_op,"
+                + "stddev_ns,min_ns,max_ns");
+        
+        for(Result r : mResults)
+        {
+            out.println(String.format(Locale.ROOT, 
+                    "%s,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f", r.name, r.bits, 
+                    r.size, r.ops, r.nsPerOp.length, r.Mean(), r.StdDev(), 
+                    r.Min(), r.Max()));
+        }
+    }
+    
+    private void WriteJson(PrintWriter out)
+    {
+        out.println("{");
+        out.println("  \"java\": \"" + System.getProperty("java.version") 
+                + "\",");
+        out.println("  \"cores\": " 
+                + Runtime.getRuntime().availableProcessors() + ",");
+        out.println("  \"results\": [");
+        
+        for(int i = 0; i < mResults.size(); i++)
+        {
+            Result r = mResults.get(i);
+            
+            out.print(String.format(Locale.ROOT, "    {\"benchmark\": \"%s\", "
+                    + "\"bits\": %d, \"size\": %d, \"ops\": %d, "
+                    + "\"iterations\": %d, \"ns_per_op\": %.3f, "
+                    + "\"stddev_ns\": %.3f, \"min_ns\": %.3f, "
+                    + "\"max_ns\": %.3f}", r.name, r.bits, r.size, r.ops, 
+                    r.nsPerOp.length, r.Mean(), r.StdDev(), r.Min(), 
+                    r.Max()));
+            out.println(i + 1 < mResults.size() ? "," : "");
+        }
+        
+        out.println("  ]");
+        out.println("}");
+    }
+    
+    public static void main(String[] args)
+    {
+        Properties properties = new Properties();
+        
+        for(String arg : args)
+        {
+            int i = arg.indexOf('=');
+            
+            if(i <= 0)
+            {
+                System.err.println("Invalid argument: " + arg);
+                System.err.println("Usage: BenchmarkRunner [key=value ...]");
+                System.exit(2);
+            }
+            
+            properties.setProperty(arg.substring(0, i).trim(), 
+                    arg.substring(i + 1).trim());
+        }
+        
+        try
+        {
+            new BenchmarkRunner(properties).Run();
+        }
+        catch(IOException | IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+        
+        System.exit(0);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Chord.ChordId;
+import Chord.ChordKey;
+import Chord.Identifier.Identifier;
+import java.util.Random;
+
+/**
+ * Benchmarks ChordKey.WhichIsClosestToKey on random keys and identifiers.
+ * 
+ * @author Simon Edänge
+ */
+public class ChordKeyBenchmark extends Benchmark
+{
+    private static final int INPUTS = 1024;
+    
+    private final ChordKey[] mKeys;
+    private final ChordId[] mIds;
+    
+    /**
+     * Constructs a ChordKey benchmark.
+     */
+    public ChordKeyBenchmark()
+    {
+        super("ChordKey.WhichIsClosestToKey");
+        
+        mKeys = new ChordKey[INPUTS];
+        mIds = new ChordId[INPUTS];
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        Random rand = new Random(SEED);
+        
+        for(int i = 0; i < INPUTS; i++)
+        {
+            mKeys[i] = new ChordKey(RandomValue(rand, bits), null, 
+                    RandomValue(rand, bits), null);
+            mIds[i] = new ChordId(bits);
+            mIds[i].SetIdentifierID(
+                    Identifier.Create(RandomValue(rand, bits), bits));
+        }
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        final int mask = INPUTS - 1;
+        long result = 0;
+        
+        for(long i = 0; i < ops; i++)
+        {
+            int j = (int)i;
+            
+            if(mKeys[j & mask].WhichIsClosestToKey(mIds[j & mask], 
+                    mIds[(j + 1) & mask]) == mIds[j & mask])
+                result++;
+        }
+        
+        return result;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Chord.ChordId;
+import Chord.ChordKey;
+import Chord.ChordNode;
+import Chord.Entries;
+import Chord.Identifier.Identifier;
+import Process.SimulationKernel;
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Benchmarks the key store of a node, holding size random keys.
+ * 
+ * @author Simon Edänge
+ */
+public class EntriesBenchmark extends Benchmark
+{
+    /**
+     * The operation to measure.
+     */
+    public enum Operation
+    {
+        /**
+         * Entries.HasKey of a stored key.
+         */
+        HAS_KEY,
+        
+        /**
+         * Entries.InsertKey of a new key, followed by Entries.RemoveKey so 
+         * the number of keys stays the same.
+         */
+        INSERT_KEY,
+        
+        /**
+         * Entries.GetKeysRespnosibleFor an interval holding about RANGE 
+         * keys, as when a new predecessor takes over its keys.
+         */
+        KEYS_RESPONSIBLE_FOR
+    }
+    
+    /**
+     * Keys in the interval of KEYS_RESPONSIBLE_FOR.
+     */
+    public static final int RANGE = 64;
+    
+    private static final int SPARE = 1024;
+    
+    private final Operation mOperation;
+    private ChordKey[] mKeys;
+    private ChordKey[] mSpare;
+    private ChordId mFrom;
+    private Entries mEntries;
+    
+    /**
+     * Constructs an Entries benchmark.
+     * 
+     * @param op The operation to measure.
+     */
+    public EntriesBenchmark(Operation op)
+    {
+        super(op == Operation.HAS_KEY ? "Entries.HasKey" 
+                : op == Operation.INSERT_KEY ? "Entries.InsertKey+RemoveKey"
+                : "Entries.GetKeysRespnosibleFor");
+        
+        mOperation = op;
+    }
+    
+    @Override
+    public boolean UsesSize()
+    {
+        return true;
+    }
+    
+    @Override
+    public boolean Supports(int bits, int size)
+    {
+        //Leave room for the spare keys.
+        return bits >= 31 || size <= (1 << bits) / 2;
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        Random rand = new Random(SEED);
+        ChordNode local = new ChordNode(bits, 0, null, 
+                new SimulationKernel(0));
+        
+        mEntries = new Entries(local);
+        mKeys = new ChordKey[size];
+        mSpare = new ChordKey[SPARE];
+        
+        for(int i = 0; i < size; i++)
+        {
+            do
+            {
+                mKeys[i] = NewKey(rand, bits);
+            } while( !mEntries.InsertKey(mKeys[i]) );
+        }
+        
+        for(int i = 0; i < SPARE; i++)
+        {
+            do
+            {
+                mSpare[i] = NewKey(rand, bits);
+            } while( mEntries.HasKey(mSpare[i]) );
+        }
+        
+        //The interval ends at the local node, and is wide enough for about
+        //RANGE of the random keys.
+        BigInteger ring = BigInteger.ONE.shiftLeft(bits);
+        BigInteger width = ring.multiply(BigInteger.valueOf(RANGE))
+                .divide(BigInteger.valueOf(Math.max(size, RANGE)));
+        
+        mFrom = new ChordId(bits);
+        mFrom.SetIdentifierID(Identifier.Create(local.PeerID()
+                .GetIdentifierCH().subtract(width).mod(ring), bits));
+    }
+    
+    private static ChordKey NewKey(Random rand, int bits)
+    {
+        BigInteger k = RandomValue(rand, bits);
+        
+        return new ChordKey(k, null, k, null);
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        long result = 0;
+        
+        switch(mOperation)
+        {
+            case HAS_KEY:
+                for(long i = 0; i < ops; i++)
+                {
+                    if(mEntries.HasKey(mKeys[Index(i, mKeys.length)]))
+                        result++;
+                }
+                break;
+                
+            case INSERT_KEY:
+                for(long i = 0; i < ops; i++)
+                {
+                    ChordKey k = mSpare[(int)i & (SPARE - 1)];
+                    
+                    if(mEntries.InsertKey(k) && mEntries.RemoveKey(k))
+                        result++;
+                }
+                break;
+                
+            default:
+                for(long i = 0; i < ops; i++)
+                    result += mEntries.GetKeysRespnosibleFor(mFrom).size();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 
+     * @return The i:th index of a fixed pseudo random walk over the keys.
+     */
+    private static int Index(long i, int size)
+    {
+        return (int)(((i * 0x9E3779B97F4A7C15L) >>> 1) % size);
+    }
+    
+    @Override
+    public void TearDown()
+    {
+        mEntries = null;
+        mKeys = null;
+        mSpare = null;
+    }
+}
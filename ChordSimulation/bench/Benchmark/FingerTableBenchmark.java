@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Chord.ChordNode;
+import Chord.FingerTable.FingerTable;
+import Process.SimulationKernel;
+
+/**
+ * Benchmarks FingerTable.InitFingers, with one finger per bit.
+ * 
+ * @author Simon Edänge
+ */
+public class FingerTableBenchmark extends Benchmark
+{
+    private FingerTable mTable;
+    
+    /**
+     * Constructs a FingerTable benchmark.
+     */
+    public FingerTableBenchmark()
+    {
+        super("FingerTable.InitFingers");
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        ChordNode local = new ChordNode(bits, bits, null, 
+                new SimulationKernel(0));
+        
+        mTable = local.GetFingerTable();
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        long result = 0;
+        
+        for(long i = 0; i < ops; i++)
+        {
+            mTable.InitFingers();
+            result += mTable.GetSize();
+        }
+        
+        return result;
+    }
+}
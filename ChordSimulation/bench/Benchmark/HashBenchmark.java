@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Crypt.Hashfunction;
+import java.util.Random;
+
+/**
+ * Benchmarks the sha1 hashing and the consistent hashing of identifiers.
+ * 
+ * @author Simon Edänge
+ */
+public class HashBenchmark extends Benchmark
+{
+    /**
+     * The operation to measure.
+     */
+    public enum Operation
+    {
+        /**
+         * Hashfunction.HashValue of an ip address.
+         */
+        HASH_VALUE,
+        
+        /**
+         * Hashfunction.ConsistentHash of a sha1 hex string.
+         */
+        CONSISTENT_HASH
+    }
+    
+    private static final int INPUTS = 1024;
+    
+    private final Operation mOperation;
+    private final String[] mValues;
+    private final String[] mHashes;
+    private int mBits;
+    
+    /**
+     * Constructs a hash benchmark.
+     * 
+     * @param op The operation to measure.
+     */
+    public HashBenchmark(Operation op)
+    {
+        super(op == Operation.HASH_VALUE 
+                ? "Hashfunction.HashValue" : "Hashfunction.ConsistentHash");
+        
+        mOperation = op;
+        mValues = new String[INPUTS];
+        mHashes = new String[INPUTS];
+    }
+    
+    @Override
+    public boolean UsesBits()
+    {
+        return mOperation == Operation.CONSISTENT_HASH;
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        Random rand = new Random(SEED);
+        mBits = bits;
+        
+        for(int i = 0; i < INPUTS; i++)
+        {
+            mValues[i] = rand.nextInt(256) + "." + rand.nextInt(256) + "." 
+                    + rand.nextInt(256) + "." + rand.nextInt(256);
+            mHashes[i] = Hashfunction.HashValue(mValues[i]);
+        }
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        long result = 0;
+        
+        if(mOperation == Operation.HASH_VALUE)
+        {
+            for(long i = 0; i < ops; i++)
+                result += Hashfunction.HashValue(
+                        mValues[(int)i & (INPUTS - 1)]).charAt(0);
+        }
+        else
+        {
+            for(long i = 0; i < ops; i++)
+                result += Hashfunction.ConsistentHash(
+                        mHashes[(int)i & (INPUTS - 1)], mBits).intValue();
+        }
+        
+        return result;
+    }
+}
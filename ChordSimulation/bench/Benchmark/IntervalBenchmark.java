@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Chord.ChordId;
+import Chord.Identifier.Identifier;
+import java.util.Random;
+
+/**
+ * Benchmarks the interval checks used by the routing, on random 
+ * identifiers.
+ * 
+ * @author Simon Edänge
+ */
+public class IntervalBenchmark extends Benchmark
+{
+    /**
+     * The operation to measure.
+     */
+    public enum Operation
+    {
+        /**
+         * ChordId.isBetween, the open interval (from, to).
+         */
+        IS_BETWEEN,
+        
+        /**
+         * ChordId.isBetweenSuccessor, the half open interval (from, to].
+         */
+        IS_BETWEEN_SUCCESSOR
+    }
+    
+    private static final int INPUTS = 1024;
+    
+    private final Operation mOperation;
+    private final ChordId[] mIds;
+    
+    /**
+     * Constructs an interval benchmark.
+     * 
+     * @param op The operation to measure.
+     */
+    public IntervalBenchmark(Operation op)
+    {
+        super(op == Operation.IS_BETWEEN 
+                ? "ChordId.isBetween" : "ChordId.isBetweenSuccessor");
+        
+        mOperation = op;
+        mIds = new ChordId[INPUTS];
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        Random rand = new Random(SEED);
+        
+        for(int i = 0; i < INPUTS; i++)
+        {
+            mIds[i] = new ChordId(bits);
+            mIds[i].SetIdentifierID(
+                    Identifier.Create(RandomValue(rand, bits), bits));
+        }
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        final int mask = INPUTS - 1;
+        long result = 0;
+        
+        if(mOperation == Operation.IS_BETWEEN)
+        {
+            for(long i = 0; i < ops; i++)
+            {
+                int j = (int)i;
+                
+                if(ChordId.isBetween(mIds[j & mask], mIds[(j + 1) & mask], 
+                        mIds[(j + 2) & mask]))
+                    result++;
+            }
+        }
+        else
+        {
+            for(long i = 0; i < ops; i++)
+            {
+                int j = (int)i;
+                
+                if(ChordId.isBetweenSuccessor(mIds[j & mask], 
+                        mIds[(j + 1) & mask], mIds[(j + 2) & mask]))
+                    result++;
+            }
+        }
+        
+        return result;
+    }
+}
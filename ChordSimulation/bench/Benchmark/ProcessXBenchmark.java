@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Benchmark;
+
+import Process.ProcessEvent;
+import Process.ProcessX;
+
+/**
+ * Benchmarks the event queue of a process: ProcessX.putEvent followed by 
+ * ProcessX.peekEvent, on a process without a kernel so the event goes 
+ * straight to the queue.
+ * 
+ * @author Simon Edänge
+ */
+public class ProcessXBenchmark extends Benchmark
+{
+    private static final int EVENTS = 64;
+    
+    private final ProcessEvent[] mEvents;
+    private QueueProcess mProcess;
+    
+    /**
+     * A process that only queues events.
+     */
+    private static class QueueProcess extends ProcessX
+    {
+        @Override
+        public void run()
+        {
+        }
+        
+        ProcessEvent Take()
+        {
+            return peekEvent();
+        }
+    }
+    
+    /**
+     * Constructs a ProcessX benchmark.
+     */
+    public ProcessXBenchmark()
+    {
+        super("ProcessX.putEvent+peekEvent");
+        
+        mEvents = new ProcessEvent[EVENTS];
+    }
+    
+    @Override
+    public boolean UsesBits()
+    {
+        return false;
+    }
+    
+    @Override
+    public void Setup(int bits, int size)
+    {
+        mProcess = new QueueProcess();
+        
+        for(int i = 0; i < EVENTS; i++)
+            mEvents[i] = new ProcessEvent() {};
+    }
+    
+    @Override
+    public long Run(long ops)
+    {
+        long result = 0;
+        
+        for(long i = 0; i < ops; i++)
+        {
+            mProcess.putEvent(mEvents[(int)i & (EVENTS - 1)]);
+            
+            if(mProcess.Take() != null)
+                result++;
+        }
+        
+        return result;
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package CLI;
+
+import Chord.Manager.LookupMode;
+import Chord.Tasks.MaintenancePolicy;
+import Process.Log;
+import Process.WorkerPool;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * The configuration of a headless simulation run. It is read from a
+ * properties file, and single values can be overridden with key=value
+ * arguments.
+ *
+ * Keys (default in parentheses):
+ * <pre>
+ * bits             Bits used in the Chord ring (16)
+ * fingers          Max fingers per node (bits)
+ * successors       Successors in the successor-list (3)
+ * nodes            Nodes to create (100)
+ * join.mode        join = nodes join one by one, bulk = the ring is created
+ *                  converged at once, see CircleManager.CreateConvergedRing
+ *                  (join)
+ * join.rate        Nodes created per second, 0 = as fast as possible (0)
+ * settle           Time (ms) to let the ring stabilize before lookups (15000)
+ * churn.rate       Nodes replaced per second during the lookups (0)
+ * maintenance.min  Shortest interval (ms) of the maintenance tasks (1000)
+ * maintenance.max  Longest interval (ms), reached when the ring is quiet.
+ *                  Equal to maintenance.min gives fixed intervals (30000)
+ * maintenance.fingers Fingers fixed per FixFingers round (4)
+ * lookups          Lookup tests to perform (1000)
+ * concurrency      Workers performing lookups at the same time (1)
+ * lookup.pause     Time (ms) a worker waits between lookups (0)
+ * lookup.mode      recursive = the query is forwarded from node to node,
+ *                  iterative = the issuer asks each node for the next hop
+ *                  (recursive)
+ * lookup.alpha     Nodes an iterative lookup asks at the same time at each
+ *                  step, the first useful reply wins (1)
+ * cache.size       Nodes in the location cache of every node, the cache
+ *                  remembers where lookups found their keys. 0 = off (0)
+ * cache.ttl        Time (ms) a cached location is used (30000)
+ * load.rate        Open-loop lookup rate per second, 0 = closed loop (0)
+ * load.popularity  uniform, zipf:s or hotspot:fraction:probability (uniform)
+ * load.maxqueue    Open-loop lookups that may wait for a worker (10000)
+ * report.interval  Time (ms) between interval latency reports, 0 = none (0)
+ * validate         Check every node against the ring after the lookups,
+ *                  true or false (false)
+ * seed             Seed of all random choices (current time)
+ * log.dir          Directory of the hop log (log/)
+ * log.level        Level of the console log: debug, info, warn, error or
+ *                  off (info)
+ * log.level.<category> Level of one category of the log, e.g.
+ *                  log.level.lookup=debug, see Log.Category (log.level)
+ * kernel.linkdelay Virtual time (ms) for an event to reach its target (1)
+ * kernel.speedup   Virtual clock speed relative to the wall clock (1.0)
+ * workers.threads  Threads running the node tasks (number of cores)
+ * workers.spare    Blocked workers that may be replaced by a spare thread
+ *                  (256)
+ * workers.virtual  true = one virtual thread per task, if supported (false)
+ * </pre>
+ *
+ * @see SimulationRunner
+ * @author Simon Edänge
+ */
+public class SimulationConfig
+{
+    private final Properties mProperties;
+
+    /**
+     * Constructs a configuration with default values.
+     */
+    public SimulationConfig()
+    {
+        mProperties = new Properties();
+    }
+
+    /**
+     * Reads a configuration file.
+     *
+     * @param file The properties file.
+     * @return The configuration.
+     * @throws IOException If the file cannot be read.
+     */
+    public static SimulationConfig Load(File file) throws IOException
+    {
+        SimulationConfig config = new SimulationConfig();
+
+        try (InputStream in = new FileInputStream(file);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8))
+        {
+            config.mProperties.load(reader);
+        }
+
+        return config;
+    }
+
+    /**
+     * Sets a value from a key=value argument.
+     *
+     * @param argument The argument.
+     * @return False if the argument is not on the form key=value.
+     */
+    public boolean Override(String argument)
+    {
+        int index = argument.indexOf('=');
+
+        if(index <= 0)
+            return false;
+
+        mProperties.setProperty(argument.substring(0, index).trim(),
+                argument.substring(index + 1).trim());
+
+        return true;
+    }
+
+    public int GetBits()
+    {
+        return GetInt("bits", 16, 1, 160);
+    }
+
+    public int GetFingers()
+    {
+        return GetInt("fingers", GetBits(), 1, GetBits());
+    }
+
+    public int GetSuccessors()
+    {
+        return GetInt("successors", 3, 1, Integer.MAX_VALUE);
+    }
+
+    public int GetNodes()
+    {
+        return GetInt("nodes", 100, 2, Integer.MAX_VALUE);
+    }
+
+    /**
+     *
+     * @return True if the ring is created converged at once.
+     */
+    public boolean IsBulkJoin()
+    {
+        String value = Get("join.mode");
+
+        if(value == null || value.equals("join"))
+            return false;
+
+        if(value.equals("bulk"))
+            return true;
+
+        throw new IllegalArgumentException("join.mode must be join or bulk: "
+                + value);
+    }
+
+    public double GetJoinRate()
+    {
+        return GetDouble("join.rate", 0);
+    }
+
+    public long GetSettle()
+    {
+        return GetLong("settle", 15000);
+    }
+
+    public double GetChurnRate()
+    {
+        return GetDouble("churn.rate", 0);
+    }
+
+    /**
+     *
+     * @return How often the nodes run their maintenance tasks.
+     */
+    public MaintenancePolicy GetMaintenancePolicy()
+    {
+        MaintenancePolicy def = MaintenancePolicy.DEFAULT;
+        long min = GetLong("maintenance.min", def.GetMinInterval());
+        long max = GetLong("maintenance.max", Math.max(min,
+                def.GetMaxInterval()));
+        int fingers = GetInt("maintenance.fingers", def.GetFingersPerRound(),
+                1, Integer.MAX_VALUE);
+
+        if(min <= 0 || max < min)
+            throw new IllegalArgumentException("maintenance.min must be "
+                    + "positive and at most maintenance.max");
+
+        return new MaintenancePolicy(min, max, fingers);
+    }
+
+    public long GetLookups()
+    {
+        return GetLong("lookups", 1000);
+    }
+
+    /**
+     *
+     * @return How the lookups are routed.
+     */
+    public LookupMode GetLookupMode()
+    {
+        String value = Get("lookup.mode");
+
+        if(value == null || value.equals("recursive"))
+            return LookupMode.RECURSIVE;
+
+        if(value.equals("iterative"))
+            return LookupMode.ITERATIVE;
+
+        throw new IllegalArgumentException("lookup.mode must be recursive or "
+                + "iterative: " + value);
+    }
+
+    /**
+     *
+     * @return Nodes an iterative lookup asks at each step.
+     */
+    public int GetLookupAlpha()
+    {
+        int alpha = GetInt("lookup.alpha", 1, 1, 64);
+
+        if(alpha > 1 && GetLookupMode() != LookupMode.ITERATIVE)
+            throw new IllegalArgumentException("lookup.alpha needs "
+                    + "lookup.mode=iterative");
+
+        return alpha;
+    }
+
+    /**
+     *
+     * @return Nodes in the location cache of every node, 0 if off.
+     */
+    public int GetCacheSize()
+    {
+        return GetInt("cache.size", 0, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     *
+     * @return Time (ms) a cached location is used.
+     */
+    public long GetCacheTtl()
+    {
+        long ttl = GetLong("cache.ttl", 30000);
+
+        if(ttl <= 0)
+            throw new IllegalArgumentException("cache.ttl must be positive");
+
+        return ttl;
+    }
+
+    public int GetConcurrency()
+    {
+        return GetInt("concurrency", 1, 1, Integer.MAX_VALUE);
+    }
+
+    public long GetLookupPause()
+    {
+        return GetLong("lookup.pause", 0);
+    }
+
+    public double GetLoadRate()
+    {
+        return GetDouble("load.rate", 0);
+    }
+
+    public String GetLoadPopularity()
+    {
+        String value = Get("load.popularity");
+        return value == null ? "uniform" : value;
+    }
+
+    public int GetLoadMaxQueue()
+    {
+        return GetInt("load.maxqueue", 10000, 1, Integer.MAX_VALUE);
+    }
+
+    public long GetReportInterval()
+    {
+        return GetLong("report.interval", 0);
+    }
+
+    /**
+     *
+     * @return True if every node is checked against the ring after the
+     * lookups.
+     */
+    public boolean IsValidate()
+    {
+        String value = Get("validate");
+
+        if(value == null || value.equals("false"))
+            return false;
+
+        if(value.equals("true"))
+            return true;
+
+        throw new IllegalArgumentException("validate must be true or "
+                + "false: " + value);
+    }
+
+    public long GetSeed()
+    {
+        return GetLong("seed", System.currentTimeMillis());
+    }
+
+    /**
+     *
+     * @return Level of the console log.
+     */
+    public Log.Level GetLogLevel()
+    {
+        return ParseLogLevel("log.level", Log.DEFAULT_LEVEL);
+    }
+
+    /**
+     *
+     * @param category A category of the console log.
+     * @return Level of that category.
+     */
+    public Log.Level GetLogLevel(Log.Category category)
+    {
+        return ParseLogLevel("log.level." + category.name().toLowerCase(),
+                GetLogLevel());
+    }
+
+    private Log.Level ParseLogLevel(String key, Log.Level def)
+    {
+        String value = Get(key);
+
+        if(value == null)
+            return def;
+
+        try
+        {
+            return Log.ParseLevel(value);
+        }
+        catch(IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException(key + " must be debug, info, "
+                    + "warn, error or off: " + value);
+        }
+    }
+
+    /**
+     *
+     * @return Directory of the hop log, ending with a separator.
+     */
+    public String GetLogDir()
+    {
+        String dir = mProperties.getProperty("log.dir", "log").trim();
+
+        if(!dir.endsWith("/") && !dir.endsWith(File.separator))
+            dir += File.separator;
+
+        return dir;
+    }
+
+    public long GetLinkDelay()
+    {
+        return GetLong("kernel.linkdelay", 1);
+    }
+
+    public double GetSpeedUp()
+    {
+        return GetDouble("kernel.speedup", 1.0);
+    }
+
+    /**
+     *
+     * @return The worker pool running the tasks of all nodes.
+     */
+    public WorkerPool CreateWorkerPool()
+    {
+        return new WorkerPool(GetWorkerThreads(), GetWorkerSpare(),
+                IsVirtualWorkers());
+    }
+
+    public int GetWorkerThreads()
+    {
+        return GetInt("workers.threads",
+                Runtime.getRuntime().availableProcessors(), 1, Short.MAX_VALUE);
+    }
+
+    public int GetWorkerSpare()
+    {
+        return GetInt("workers.spare", WorkerPool.DEFAULT_SPARE,
+                0, Short.MAX_VALUE);
+    }
+
+    public boolean IsVirtualWorkers()
+    {
+        String value = Get("workers.virtual");
+
+        if(value == null || value.equals("false"))
+            return false;
+
+        if(value.equals("true"))
+            return true;
+
+        throw new IllegalArgumentException("workers.virtual must be true or "
+                + "false: " + value);
+    }
+
+    /**
+     * Makes sure the seed is fixed for the whole run, so it can be printed
+     * and repeated.
+     */
+    void FixSeed()
+    {
+        mProperties.setProperty("seed", Long.toString(GetSeed()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "bits=" + GetBits()
+                + " fingers=" + GetFingers()
+                + " successors=" + GetSuccessors()
+                + " nodes=" + GetNodes()
+                + " join.mode=" + (IsBulkJoin() ? "bulk" : "join")
+                + " join.rate=" + GetJoinRate()
+                + " settle=" + GetSettle()
+                + " churn.rate=" + GetChurnRate()
+                + " maintenance=" + GetMaintenancePolicy()
+                + " lookups=" + GetLookups()
+                + " concurrency=" + GetConcurrency()
+                + " lookup.pause=" + GetLookupPause()
+                + " lookup.mode=" + GetLookupMode().name().toLowerCase()
+                + " lookup.alpha=" + GetLookupAlpha()
+                + " cache.size=" + GetCacheSize()
+                + " cache.ttl=" + GetCacheTtl()
+                + " load.rate=" + GetLoadRate()
+                + " load.popularity=" + GetLoadPopularity()
+                + " load.maxqueue=" + GetLoadMaxQueue()
+                + " report.interval=" + GetReportInterval()
+                + " validate=" + IsValidate()
+                + " seed=" + GetSeed()
+                + " log.dir=" + GetLogDir()
+                + " log.level=" + GetLogLevel().name().toLowerCase()
+                + " kernel.linkdelay=" + GetLinkDelay()
+                + " kernel.speedup=" + GetSpeedUp()
+                + " workers.threads=" + GetWorkerThreads()
+                + " workers.spare=" + GetWorkerSpare()
+                + " workers.virtual=" + IsVirtualWorkers();
+    }
+
+    private String Get(String key)
+    {
+        String value = mProperties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private int GetInt(String key, int def, int min, int max)
+    {
+        String value = Get(key);
+
+        if(value == null)
+            return def;
+
+        int v;
+
+        try
+        {
+            v = Integer.parseInt(value);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(key + " is not a number: " + value);
+        }
+
+        if(v < min || v > max)
+            throw new IllegalArgumentException(key + " must be in "
+                    + min + ".." + max + ": " + v);
+
+        return v;
+    }
+
+    private long GetLong(String key, long def)
+    {
+        String value = Get(key);
+
+        if(value == null)
+            return def;
+
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(key + " is not a number: " + value);
+        }
+    }
+
+    private double GetDouble(String key, double def)
+    {
+        String value = Get(key);
+
+        if(value == null)
+            return def;
+
+        try
+        {
+            return Double.parseDouble(value);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(key + " is not a number: " + value);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package CLI;
+
+import Chord.ChordNode;
+import Chord.FingerTable.LocationCache;
+import Chord.FingerTable.RingHealth;
+import Chord.IDGenerator;
+import Chord.Manager.ChordLookupSimulation;
+import Chord.Manager.CircleManager;
+import Chord.Manager.KeyPopularity;
+import Chord.Manager.LookupLoadGenerator;
+import Chord.Manager.RingValidator;
+import Process.Log;
+import Process.SimulationKernel;
+import Statistics.Histogram;
+import Statistics.HopLookupMeasure;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Runs a simulation without the GUI. The scenario is read from a
+ * configuration file: a ring is created, allowed to stabilize, and then
+ * the lookup tests are performed, optionally while nodes are replaced
+ * (churn). The lookups are either performed by closed-loop workers, or
+ * issued open-loop with a target rate (load.rate). The hop log is
+ * written as with the GUI, and a summary is printed when done.
+ *
+ * Usage: SimulationRunner [config.properties] [key=value ...]
+ *
+ * @see SimulationConfig
+ * @author Simon Edänge
+ */
+public class SimulationRunner
+{
+    private final SimulationConfig mConfig;
+    private final Random mRand;
+    private CircleManager mCircle;
+    private volatile boolean mChurning;
+    private long mReplacedNodes;
+
+    /**
+     *
+     * @param config The configuration of the run.
+     */
+    public SimulationRunner(SimulationConfig config)
+    {
+        config.FixSeed();
+        mConfig = config;
+        mRand = new Random(config.GetSeed());
+        mChurning = false;
+        mReplacedNodes = 0;
+    }
+
+    /**
+     * Runs the simulation, and returns when all lookups are done.
+     *
+     * @return The lookup statistics.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public HopLookupMeasure Run() throws InterruptedException
+    {
+        System.out.println("Configuration: " + mConfig);
+
+        for(Log.Category c : Log.Category.values())
+            Log.SetLevel(c, mConfig.GetLogLevel(c));
+
+        IDGenerator.SetSeed(mConfig.GetSeed());
+        new File(mConfig.GetLogDir()).mkdirs();
+
+        SimulationKernel kernel = new SimulationKernel(mConfig.GetLinkDelay(),
+                mConfig.GetSpeedUp(), mConfig.CreateWorkerPool());
+        mCircle = new CircleManager(mConfig.GetBits(), mConfig.GetFingers(),
+                mConfig.GetSuccessors(), kernel);
+        mCircle.SetMaintenancePolicy(mConfig.GetMaintenancePolicy());
+        mCircle.SetLocationCache(mConfig.GetCacheSize(), mConfig.GetCacheTtl());
+
+        long start = System.currentTimeMillis();
+        Join();
+        System.out.println("Created " + mCircle.GetSize() + " nodes in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        Thread.sleep(mConfig.GetSettle());
+
+        HopLookupMeasure statistics;
+        LookupLoadGenerator load = null;
+        ChordLookupSimulation simulation = null;
+        Thread lookups;
+
+        if(mConfig.GetLoadRate() > 0)
+        {
+            //Fail before the lookups start if the description is invalid.
+            KeyPopularity.Create(mConfig.GetLoadPopularity(), 1);
+
+            load = new LookupLoadGenerator(mCircle, mConfig.GetLoadRate(),
+                    mConfig.GetLookups(), mConfig.GetConcurrency(),
+                    mConfig.GetLoadMaxQueue(), mConfig.GetLoadPopularity(),
+                    mConfig.GetSeed(), mConfig.GetLogDir());
+            load.SetLookupMode(mConfig.GetLookupMode());
+            load.SetLookupAlpha(mConfig.GetLookupAlpha());
+            statistics = load.GetStatistics();
+            lookups = load;
+        }
+        else
+        {
+            simulation = new ChordLookupSimulation(
+                    mCircle, mConfig.GetLookups(), mConfig.GetConcurrency(),
+                    mConfig.GetSeed(), mConfig.GetLookupPause(),
+                    mConfig.GetLogDir());
+            simulation.SetLookupMode(mConfig.GetLookupMode());
+            simulation.SetLookupAlpha(mConfig.GetLookupAlpha());
+            statistics = simulation.GetStatistics();
+            lookups = simulation;
+        }
+
+        Thread churn = StartChurn();
+
+        start = System.currentTimeMillis();
+        lookups.start();
+        Thread report = StartReport(statistics, lookups);
+        lookups.join();
+        long time = System.currentTimeMillis() - start;
+
+        mChurning = false;
+
+        if(churn != null)
+            churn.join();
+
+        if(report != null)
+            report.join();
+
+        //The summary comes after the log of the lookups.
+        Log.Flush(1000);
+        PrintSummary(statistics, load, simulation, time, kernel);
+
+        mCircle.KillAll();
+
+        return statistics;
+    }
+
+    /**
+     * Creates the nodes, paced with the join rate, or all at once as a
+     * converged ring.
+     */
+    private void Join() throws InterruptedException
+    {
+        if(mConfig.IsBulkJoin())
+        {
+            mCircle.CreateConvergedRing(mConfig.GetNodes());
+            return;
+        }
+
+        double rate = mConfig.GetJoinRate();
+        long pause = rate > 0 ? (long)(1000 / rate) : 0;
+
+        for(int i = 0; i < mConfig.GetNodes(); i++)
+        {
+            if(mCircle.CreateNode() == null)
+                break;
+
+            if(pause > 0)
+                Thread.sleep(pause);
+        }
+    }
+
+    /**
+     * Starts replacing nodes with the churn rate. A random node (never the
+     * bootstrap node) is removed and a new node is created.
+     *
+     * @return The churn thread, null if there is no churn.
+     */
+    private Thread StartChurn()
+    {
+        double rate = mConfig.GetChurnRate();
+
+        if(rate <= 0)
+            return null;
+
+        final long pause = Math.max(1, (long)(1000 / rate));
+        mChurning = true;
+
+        Thread t = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while(mChurning)
+                {
+                    try {
+                        Thread.sleep(pause);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+
+                    ReplaceNode();
+                }
+            }
+        });
+        t.setName("Churn");
+        t.setDaemon(true);
+        t.start();
+
+        return t;
+    }
+
+    /**
+     * Starts printing the latency of the lookups done since the previous
+     * report, every report interval until the lookups are done.
+     *
+     * @return The report thread, null if there are no reports.
+     */
+    private Thread StartReport(final HopLookupMeasure statistics,
+            final Thread lookups)
+    {
+        final long interval = mConfig.GetReportInterval();
+
+        if(interval <= 0)
+            return null;
+
+        statistics.TakeIntervalSnapshot();
+
+        Thread t = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while(lookups.isAlive())
+                {
+                    try {
+                        lookups.join(interval);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+
+                    HopLookupMeasure.Interval i =
+                            statistics.TakeIntervalSnapshot();
+                    Histogram latency = i.GetLatency();
+
+                    System.out.println("Interval: " + latency.GetTotalCount()
+                            + " lookups, "
+                            + (latency.GetTotalCount() * 1e9 / Math.max(1, i.GetLength()))
+                            + " lookups/s, latency p50/p99/max (us): "
+                            + latency.GetValueAtPercentile(50) / 1000 + " / "
+                            + latency.GetValueAtPercentile(99) / 1000 + " / "
+                            + latency.GetMax() / 1000
+                            + ", average hops: " + i.GetHops().GetMean());
+                    System.out.println("Workers: "
+                            + mCircle.GetKernel().GetWorkers());
+                    PrintRingHealth();
+                    PrintLocationCache();
+                }
+            }
+        });
+        t.setName("Report");
+        t.setDaemon(true);
+        t.start();
+
+        return t;
+    }
+
+    private void ReplaceNode()
+    {
+        ChordNode n = mCircle.GetRandomNode(mRand);
+
+        if(n == null || n == mCircle.GetBootstrap())
+            return;
+
+        if(mCircle.RemoveNode(n))
+        {
+            mCircle.CreateNode();
+            mReplacedNodes++;
+        }
+    }
+
+    private void PrintSummary(HopLookupMeasure statistics,
+            LookupLoadGenerator load, ChordLookupSimulation simulation,
+            long time, SimulationKernel kernel)
+    {
+        int tests = statistics.GetNumberOfTests();
+
+        System.out.println("********************");
+        System.out.println("Nodes: " + mCircle.GetSize());
+        System.out.println("Replaced nodes: " + mReplacedNodes);
+        System.out.println("Lookup mode: "
+                + mConfig.GetLookupMode().name().toLowerCase()
+                + ", alpha " + mConfig.GetLookupAlpha());
+        System.out.println("Lookups: " + tests);
+        System.out.println("Failed lookups: " + statistics.GetFailedTests());
+        System.out.println("No-result attempts: "
+                + statistics.GetNoResultAttempts());
+
+        if(simulation != null)
+            System.out.println("Retried lookups: " + simulation.GetRetried());
+
+        System.out.println("Found at a non-owner: "
+                + statistics.GetWrongOwnerTests());
+        System.out.println("Average hops: " + statistics.GetAverageHops());
+        System.out.println("Average time (ms): " + statistics.GetAverageTime());
+        System.out.println("Latency p50/p90/p99/p99.9 (us): "
+                + statistics.GetLatencyPercentile(50) / 1000 + " / "
+                + statistics.GetLatencyPercentile(90) / 1000 + " / "
+                + statistics.GetLatencyPercentile(99) / 1000 + " / "
+                + statistics.GetLatencyPercentile(99.9) / 1000);
+        System.out.println("Hops p50/p90/p99/max: "
+                + statistics.GetHopsPercentile(50) + " / "
+                + statistics.GetHopsPercentile(90) + " / "
+                + statistics.GetHopsPercentile(99) + " / "
+                + statistics.GetHopsHistogram().GetMax());
+
+        if(load != null)
+        {
+            System.out.println("Target rate: " + mConfig.GetLoadRate());
+            System.out.println("Issued lookups: " + load.GetIssued());
+            System.out.println("Dropped lookups: " + load.GetDropped());
+        }
+        System.out.println("Lookup phase (ms): " + time);
+
+        if(time > 0)
+            System.out.println("Lookups per second: " + (tests * 1000.0 / time));
+
+        System.out.println("Kernel events: " + kernel.GetProcessedEvents());
+        System.out.println("Workers: " + kernel.GetWorkers());
+        PrintRingHealth();
+        PrintLocationCache();
+
+        if(mConfig.IsValidate())
+            System.out.println(new RingValidator(mCircle).Validate());
+
+        System.out.println("********************");
+    }
+
+    /**
+     * Prints how much of the routing state in the ring is correct.
+     */
+    private void PrintRingHealth()
+    {
+        RingHealth health = mCircle.GetRingHealth();
+
+        System.out.println(String.format("Ring health: %.1f%% (fingers "
+                + "%.1f%%, successors %.1f%%, predecessors %.1f%%)",
+                health.GetHealth() * 100, health.GetFingerHealth() * 100,
+                health.GetSuccessorHealth() * 100,
+                health.GetPredecessorHealth() * 100));
+    }
+
+    /**
+     * Prints the location cache statistics, summed over the nodes in the
+     * ring. Nothing is printed if the nodes do not cache locations.
+     */
+    private void PrintLocationCache()
+    {
+        if(mCircle.GetLocationCacheSize() <= 0)
+            return;
+
+        long hits = 0;
+        long misses = 0;
+        long invalidated = 0;
+        long evicted = 0;
+        long entries = 0;
+
+        for(ChordNode n : mCircle.GetNodes())
+        {
+            LocationCache cache = n.GetFingerTable().GetLocationCache();
+
+            if(cache == null)
+                continue;
+
+            hits += cache.GetHits();
+            misses += cache.GetMisses();
+            invalidated += cache.GetInvalidated();
+            evicted += cache.GetEvicted();
+            entries += cache.GetSize();
+        }
+
+        long total = hits + misses;
+
+        System.out.println("Location cache: hits " + hits
+                + ", misses " + misses
+                + ", hit rate " + (total == 0 ? 0 : hits * 100.0 / total)
+                + "%, entries " + entries
+                + ", invalidated " + invalidated
+                + ", evicted " + evicted);
+    }
+
+    /**
+     * @param args [config.properties] [key=value ...]
+     */
+    public static void main(String[] args)
+    {
+        SimulationConfig config = new SimulationConfig();
+        int first = 0;
+
+        try
+        {
+            if(args.length > 0 && args[0].indexOf('=') < 0)
+            {
+                config = SimulationConfig.Load(new File(args[0]));
+                first = 1;
+            }
+
+            for(int i = first; i < args.length; i++)
+            {
+                if(!config.Override(args[i]))
+                {
+                    System.err.println("Invalid argument: " + args[i]);
+                    System.err.println("Usage: SimulationRunner "
+                            + "[config.properties] [key=value ...]");
+                    System.exit(2);
+                }
+            }
+
+            new SimulationRunner(config).Run();
+        }
+        catch(IOException | IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+        catch(InterruptedException ex)
+        {
+            System.err.println("Simulation interrupted");
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+}
@@ -18,18 +18,23 @@
  */
 package Chord;
 
+import Chord.Identifier.Identifier;
 import Crypt.Hashfunction;
 import java.math.BigInteger;
 
 /**
  * This class represent the Chord position on the ring.
  * 
+ * The hashed values are stored as Identifier, which does the ring 
+ * arithmetic on primitive longs. The BigInteger accessors are kept for 
+ * existing callers.
+ * 
  * @author Simon Edänge
  */
 public class ChordId implements Comparable<ChordId>
 {
-   private BigInteger KEY;
-   private BigInteger BASE_TEN_RADIX;
+   private Identifier KEY;
+   private Identifier BASE_TEN_RADIX;
    
    private String CHORD_RADIX;
    private String CHORD_KEY;
@@ -50,8 +55,8 @@ public class ChordId implements Comparable<ChordId>
        CHORD_KEY = k;
        CHORD_RADIX = n;
        
-       BASE_TEN_RADIX = Hashfunction.ConsistentHash(Hashfunction.HashValue(n), mod);
-       KEY  = Hashfunction.ConsistentHash(Hashfunction.HashValue(k), mod);
+       BASE_TEN_RADIX = Hashfunction.HashIdentifier(n, mod);
+       KEY  = Hashfunction.HashIdentifier(k, mod);
    }
    
    /**
@@ -68,6 +73,15 @@ public class ChordId implements Comparable<ChordId>
     * @return The Consisted Hashed Key string.
     */
    public BigInteger GetKeyCH()
+   {
+       return KEY == null ? null : KEY.ToBigInteger();
+   }
+   
+   /**
+    * 
+    * @return The Consisted Hashed Key.
+    */
+   public Identifier GetKeyID()
    {
        return KEY;
    }
@@ -95,6 +109,15 @@ public class ChordId implements Comparable<ChordId>
     * @return The Consisted Hashed ID. 
     */
    public BigInteger GetIdentifierCH()
+   {
+       return BASE_TEN_RADIX == null ? null : BASE_TEN_RADIX.ToBigInteger();
+   }
+   
+   /**
+    * 
+    * @return The Consisted Hashed ID. 
+    */
+   public Identifier GetIdentifierID()
    {
        return BASE_TEN_RADIX;
    }
@@ -106,7 +129,7 @@ public class ChordId implements Comparable<ChordId>
    public void SetKey(String k)
    {
        CHORD_KEY = k;
-       KEY  = Hashfunction.ConsistentHash(Hashfunction.HashValue(k), MOD);
+       KEY  = Hashfunction.HashIdentifier(k, MOD);
    }
    
    /**
@@ -116,7 +139,7 @@ public class ChordId implements Comparable<ChordId>
    public void SetIdentifier(String n)
    {
        CHORD_RADIX = n;
-       BASE_TEN_RADIX = Hashfunction.ConsistentHash(Hashfunction.HashValue(n), MOD);
+       BASE_TEN_RADIX = Hashfunction.HashIdentifier(n, MOD);
    }
    
    /**
@@ -125,16 +148,37 @@ public class ChordId implements Comparable<ChordId>
     * @param n 
     */
    public void SetIdentifierCH(BigInteger n)
+   {
+       SetIdentifierID(Identifier.Create(n, MOD));
+   }
+   
+   /**
+    * Sets ID Consistent Hash, original value will be set to null.
+    * 
+    * @param n 
+    */
+   public void SetIdentifierID(Identifier n)
    {
        BASE_TEN_RADIX = n;
        CHORD_RADIX = null;
    }
+   
    /**
     * Sets Key Consistent Hash, original value will be set to null.
     * 
     * @param k 
     */
    public void SetKeyCH(BigInteger k)
+   {
+       SetKeyID(Identifier.Create(k, MOD));
+   }
+   
+   /**
+    * Sets Key Consistent Hash, original value will be set to null.
+    * 
+    * @param k 
+    */
+   public void SetKeyID(Identifier k)
    {
        KEY = k;
        CHORD_KEY = null;
@@ -151,10 +195,7 @@ public class ChordId implements Comparable<ChordId>
        if( BASE_TEN_RADIX == null || other == null )
            return false;
        
-       if(BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) == 0)
-           return true;
-       
-       return false;
+       return BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) == 0;
    }
    
     /**
@@ -168,10 +209,7 @@ public class ChordId implements Comparable<ChordId>
         if( BASE_TEN_RADIX == null || other == null )
            return false;
               
-       if(BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) == 1)
-           return true;
-       
-       return false;
+       return BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) > 0;
    }
     /**
     * Compare ChordId.
@@ -184,7 +222,7 @@ public class ChordId implements Comparable<ChordId>
         if( BASE_TEN_RADIX == null || other == null )
            return false;
               
-        return BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) == -1;
+        return BASE_TEN_RADIX.compareTo(other.BASE_TEN_RADIX) < 0;
    }
     /**
     * Compare ChordId.
@@ -215,88 +253,20 @@ public class ChordId implements Comparable<ChordId>
    
    static boolean isBetweenNotify(ChordId id, ChordId from, ChordId to)
    {
-        if (from.LessThan(to))
-        {
-                if (id.GreaterThan(from) && id.LessThan(to))
-                {
-                        return true;
-                }
-        }
-
-        if (from.GreaterThan(to))
-        {
-                if (id.LessThan(from) && id.LessThan(to))
-                {
-                        return true;
-                }
-                if (id.GreaterThan(from))
-                {
-                        return true;
-                }
-        }
-
-        if (from.Equals(to))
-        {
-                return true;
-        }
-
-        return false;
+        return Identifier.IsBetweenNotify(id.BASE_TEN_RADIX, 
+                from.BASE_TEN_RADIX, to.BASE_TEN_RADIX);
    }
    
     public static boolean isBetween(ChordId id, ChordId from, ChordId to)
    {
-        if ( from.LessThan(to) )
-        {
-                if ( id.GreaterThan(from) && id.LessThan(to) )
-                {
-                        return true;
-                }
-        }
-
-        if ( from.GreaterThan(to) )
-        {
-                if (id.LessThan(from) && id.LessThan(to))
-                {
-                        return true;
-                }
-                if (id.GreaterThan(from))
-                {
-                        return true;
-                }
-        }
-
-        return false;
+        return Identifier.IsBetween(id.BASE_TEN_RADIX, 
+                from.BASE_TEN_RADIX, to.BASE_TEN_RADIX);
    }
     
     public static boolean isBetweenSuccessor(ChordId id, ChordId from, ChordId to)
     {
-        if (from.GreaterThan(to))
-        {
-                if (id.LessThan(from) && id.LessThanEqual(to))
-                {
-                        return true;
-                }
-
-                if (id.GreaterThan(from))
-                {
-                        return true;
-                }
-        }
-
-        if (from.LessThan(to))
-        {
-                if (id.GreaterThan(from) && id.LessThanEqual(to))
-                {
-                        return true;
-                }
-        }
-
-        if (from.Equals(to) && (from.GreaterThan(id) || from.LessThan(id)))
-        {
-                return true;
-        }
-
-        return false;
+        return Identifier.IsBetweenSuccessor(id.BASE_TEN_RADIX, 
+                from.BASE_TEN_RADIX, to.BASE_TEN_RADIX);
     }
 
     @Override
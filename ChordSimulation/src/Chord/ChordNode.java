@@ -24,29 +24,42 @@ import Chord.FakeRMIEvents.*;
 import Chord.FakeRMIEvents.ReturnRMIevents.*;
 import Chord.FingerTable.Finger;
 import Chord.FingerTable.FingerTable;
-import Chord.Tasks.CheckPredecessorTask;
+import Chord.FingerTable.LocationCache;
 import Chord.Tasks.Event.ClosestPrecedingFingerTask;
 import Chord.Tasks.Event.FindSucessorTask;
 import Chord.Tasks.Event.LookupTask;
 import Chord.Tasks.Event.NotifyTask;
 import Chord.Tasks.Event.PutKeyTask;
-import Chord.Tasks.FixFingersTask;
+import Chord.Tasks.MaintenancePolicy;
+import Chord.Tasks.MaintenanceSchedule;
 import Chord.Tasks.StabilizeTask;
+import Process.Log;
 import Process.ProcessEvent;
 import Process.ProcessX;
+import Process.SimulationKernel;
+import Process.WorkerPool;
 import Statistics.HopData;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -67,25 +80,58 @@ public class ChordNode extends ProcessX implements ChordRemote
 
     protected FingerTable mFingerTable;
     
-    private final ScheduledExecutorService mMaintenanceTasks;
-    private final ExecutorService mExecutor;
+    private final MaintenanceSchedule mMaintenance;
+    private final WorkerPool mWorkers;
+    private final WorkerPool.Strand mStrand;
+    private final WorkerPool.Strand mKeyStrand;
+    private final List<ProcessEvent> mEventBatch;
     
-    private static class ChordThreadFactory implements
-                    java.util.concurrent.ThreadFactory {
-
-            private final String executorName;
-
-            ChordThreadFactory(String executorName) {
-                    this.executorName = executorName;
-            }
-
-            @Override
-            public Thread newThread(Runnable r) {
-                    Thread newThread = new Thread(r);
-                    newThread.setName(this.executorName);
-                    return newThread;
-            }
-
+    /**
+     * Maximum number of events taken from the event queue in one batch.
+     */
+    private static final int EVENT_BATCH_SIZE = 64;
+    
+    /**
+     * Number of successors in the successor-list, unless specified.
+     */
+    public static final int DEFAULT_SUCCESSORS = 3;
+    
+    /**
+     * Next hops an iterative lookup step returns in addition to the ones
+     * that are asked at the same time, used if those do not answer.
+     */
+    private static final int LOOKUP_FALLBACKS = 2;
+    
+    /**
+     * Constructs a ChordNode
+     * 
+     * @param bits Bits the chord ring utilizes.
+     * @param maxFingers The maximum fingers to use.
+     * @param bootStrap The bootstrap node to join the network with.
+     * @param kernel The simulation kernel that delivers events to this node
+     * and drives the maintenance tasks.
+     */
+    public ChordNode(int bits, int maxFingers, ChordNode bootStrap,
+            SimulationKernel kernel)
+    {
+        this(bits, maxFingers, DEFAULT_SUCCESSORS, bootStrap, kernel);
+    }
+    
+    /**
+     * Constructs a ChordNode
+     * 
+     * @param bits Bits the chord ring utilizes.
+     * @param maxFingers The maximum fingers to use.
+     * @param maxSuccessors The number of successors in the successor-list.
+     * @param bootStrap The bootstrap node to join the network with.
+     * @param kernel The simulation kernel that delivers events to this node
+     * and drives the maintenance tasks.
+     */
+    public ChordNode(int bits, int maxFingers, int maxSuccessors, 
+            ChordNode bootStrap, SimulationKernel kernel)
+    {
+        this(bits, maxFingers, maxSuccessors, bootStrap, kernel, 
+                MaintenancePolicy.DEFAULT);
     }
     
     /**
@@ -93,9 +139,15 @@ public class ChordNode extends ProcessX implements ChordRemote
      * 
      * @param bits Bits the chord ring utilizes.
      * @param maxFingers The maximum fingers to use.
+     * @param maxSuccessors The number of successors in the successor-list.
      * @param bootStrap The bootstrap node to join the network with.
+     * @param kernel The simulation kernel that delivers events to this node
+     * and drives the maintenance tasks.
+     * @param policy How often the maintenance tasks are run.
      */
-    public ChordNode(int bits, int maxFingers, ChordNode bootStrap)
+    public ChordNode(int bits, int maxFingers, int maxSuccessors, 
+            ChordNode bootStrap, SimulationKernel kernel, 
+            MaintenancePolicy policy)
     {
         mId = new ChordId(Integer.toString(IDGenerator.GenerateID()), IDGenerator.GenerateIP(), bits);
         mBits = bits;
@@ -103,17 +155,23 @@ public class ChordNode extends ProcessX implements ChordRemote
         mCOM = new FakeRMICommunication(this);
         
         //Init fingers values
-        mFingerTable = new FingerTable(maxFingers, 3, bits, this);
+        mFingerTable = new FingerTable(maxFingers, maxSuccessors, bits, this);
         
-        this.mMaintenanceTasks = new ScheduledThreadPoolExecutor(1,
-				new ChordThreadFactory("MaintenanceTaskExecution - "
-                                        +mId.GetIdentifierCH()));
+        mMaintenance = new MaintenanceSchedule(policy);
         
-        mExecutor = Executors.newCachedThreadPool(
-                new ChordThreadFactory("AsynchronousExecution - " 
-                        + mId.GetIdentifierCH()));
+        //Requests are handled on the shared pool of the simulation, the
+        //maintenance tasks and continuations run in order on a strand.
+        //Key and replica requests run in order on a strand of their own.
+        //They never block, so it is not limited like the strands that wait
+        //for replies.
+        mWorkers = kernel.GetWorkers();
+        mStrand = mWorkers.NewStrand();
+        mKeyStrand = mWorkers.NewStrand(false);
 
+        mEventBatch = new ArrayList<>(EVENT_BATCH_SIZE);
+        
         this.enableWaitObjectRegister(true);
+        this.attachKernel(kernel);
 
         mActive = false;
         mKeepAlive = true;
@@ -251,6 +309,47 @@ public class ChordNode extends ProcessX implements ChordRemote
         }
     }
     
+    /**
+     * Asynchronous variant of findSuccessor. The query is forwarded without
+     * blocking a worker while the remote node answers, so a long chain of
+     * forwards does not hold one thread per hop.
+     * 
+     * @param id ID to find.
+     * @return Future of the successor of id.
+     */
+    public CompletableFuture<ChordNode> findSuccessorAsync(final ChordId id)
+    {
+        ChordNode successor = successor();
+        
+        if( successor == null )
+            return CompletableFuture.completedFuture(this);
+        
+        else if( ChordId.isBetweenSuccessor(id, mId, successor.PeerID()) )
+            return CompletableFuture.completedFuture(successor);
+        
+        final ChordNode closestPreceeding = closestPrecedingNode(id);
+
+        if(closestPreceeding == this)
+            return CompletableFuture.completedFuture(this);
+
+        return mCOM.findSuccessorAsync(id, closestPreceeding).thenComposeAsync(
+                new Function<FindSuccessorEventRE, CompletionStage<ChordNode>>()
+        {
+            @Override
+            public CompletionStage<ChordNode> apply(FindSuccessorEventRE re)
+            {
+                if(re == null)
+                {
+                    mFingerTable.RemoveNode(closestPreceeding);
+                    return findSuccessorAsync(id);
+                }
+
+                return CompletableFuture.completedFuture(
+                        re.NODE_TARGET_REQUESTED);
+            }
+        }, mWorkers);
+    }
+    
     @Override
     public ChordNode[] Notify(ChordNode n) //Remote
     {
@@ -266,6 +365,10 @@ public class ChordNode extends ProcessX implements ChordRemote
                 oldpred.PeerID(), mId) )
         {
             SetPredecessor(n);
+            mMaintenance.Changed();
+            
+            //The keys up to the new predecessor are now there.
+            mFingerTable.InvalidateLocations(oldpred, n);
 
             return mySuccessors;
         }
@@ -297,21 +400,23 @@ public class ChordNode extends ProcessX implements ChordRemote
         return mId;
     }
     
-    @Override
-    public ChordNode lookup(final ChordId key, final ChordNode originCaller, 
-            final HopData hop, 
-            String originID) //Remote
+    /**
+     * One routing step of a lookup, as taken by this node. Used by both the
+     * recursive and the iterative lookups, so they route the same way.
+     * 
+     * @param key Key to find.
+     * @return The node to ask next, or this node if the lookup ends here.
+     * The lookup succeeded if this node has the key or a replica of it.
+     */
+    public ChordNode lookupStep(final ChordId key)
     {
         //Check if this node had either the replica or the real key.
-        if(GetSuccessorList().GetEntries().HasKey(key.GetKeyCH()))
-            return this;
-        if(GetSuccessorList().GetEntries().HasReplica(key.GetKeyCH()))
+        if(HasEntry(key))
             return this;
         
         //Look for closest finger
         ChordId temp = new ChordId(mBits);
-        temp.SetIdentifier(key.GetKey());
-        temp.SetIdentifierCH(key.GetKeyCH());
+        temp.SetIdentifierID(key.GetKeyID());
         //ChordNode n = closestPrecedingFinger(temp);
         ChordNode n = getClosestPrecedingNode(temp);
         
@@ -334,12 +439,184 @@ public class ChordNode extends ProcessX implements ChordRemote
                 return this;
         }
         
+        return n;
+    }
+    
+    /**
+     * The next hops of a lookup from this node, best first. The first one is
+     * the node that had the key in an earlier lookup, if it is cached, then
+     * the one lookupStep takes. The others are the fingers, successors and 
+     * predecessor that precede the key, closest to the key first.
+     * 
+     * @param key Key to find.
+     * @param count Maximum number of next hops.
+     * @return The next hops, empty if the lookup ends here.
+     */
+    public ChordNode[] LookupCandidates(final ChordId key, final int count)
+    {
+        ChordNode first = lookupStep(key);
+        
+        if(first == this)
+            return new ChordNode[0];
+        
+        List<ChordNode> result = new ArrayList<>();
+        ChordNode cached = CachedLocation(key);
+        
+        if(cached != null && cached != first)
+            result.add(cached);
+        
+        result.add(first);
+        
+        if(result.size() >= count)
+        {
+            result = result.subList(0, Math.max(1, count));
+            return result.toArray(new ChordNode[result.size()]);
+        }
+        
+        final ChordId temp = new ChordId(mBits);
+        temp.SetIdentifierID(key.GetKeyID());
+        
+        List<ChordNode> known = new ArrayList<>();
+        
+        for(Finger f : mFingerTable.GetTable())
+        {
+            if(f != null && f.node != null)
+                known.add(f.node);
+        }
+        
+        known.addAll(Arrays.asList(GetSuccessorList().GetArray()));
+        known.add(predecessor());
+        
+        List<ChordNode> preceding = new ArrayList<>();
+        
+        for(ChordNode n : known)
+        {
+            if(n != null && n != this && !result.contains(n) 
+                    && !preceding.contains(n)
+                    && ChordId.isBetween(n.PeerID(), mId, temp))
+            {
+                preceding.add(n);
+            }
+        }
+        
+        Collections.sort(preceding, new Comparator<ChordNode>()
+        {
+            @Override
+            public int compare(ChordNode a, ChordNode b)
+            {
+                if(a == b)
+                    return 0;
+                
+                //a is closer if it lies between b and the key.
+                return ChordId.isBetween(a.PeerID(), b.PeerID(), temp) 
+                        ? -1 : 1;
+            }
+        });
+        
+        for(ChordNode n : preceding)
+        {
+            if(result.size() >= count)
+                break;
+            
+            result.add(n);
+        }
+        
+        return result.toArray(new ChordNode[result.size()]);
+    }
+    
+    /**
+     * 
+     * @param key Key to find.
+     * @param count Maximum number of next hops.
+     * @return The result of a lookup step, as sent to an iterative lookup.
+     */
+    public LookupStepEventRE LookupStepResult(final ChordId key, 
+            final int count)
+    {
+        ChordNode[] next = LookupCandidates(key, count);
+        LookupStepEventRE.Status status;
+        
+        if(next.length > 0)
+            status = LookupStepEventRE.Status.STATUS_NEXT;
+        else if(HasEntry(key))
+            status = LookupStepEventRE.Status.STATUS_FOUND;
+        else
+            status = LookupStepEventRE.Status.STATUS_FAILED;
+        
+        return new LookupStepEventRE(next, this, status);
+    }
+    
+    /**
+     * 
+     * @param key Key to find.
+     * @return The node that had the key in an earlier lookup, null if not
+     * known or if locations are not cached.
+     */
+    private ChordNode CachedLocation(final ChordId key)
+    {
+        LocationCache cache = mFingerTable.GetLocationCache();
+        
+        if(cache == null)
+            return null;
+        
+        ChordNode n = cache.Get(key.GetKeyID());
+        
+        return n == this ? null : n;
+    }
+    
+    /**
+     * Remembers where a lookup found its key, if locations are cached.
+     * 
+     * @param key The key.
+     * @param n The node that had the key.
+     */
+    private void LearnLocation(final ChordId key, final ChordNode n)
+    {
+        LocationCache cache = mFingerTable.GetLocationCache();
+        
+        if(cache != null)
+            cache.Learn(key.GetKeyID(), n);
+    }
+    
+    /**
+     * 
+     * @param key
+     * @return True if this node has the key or a replica of it.
+     */
+    private boolean HasEntry(final ChordId key)
+    {
+        Entries entries = GetSuccessorList().GetEntries();
+        
+        return entries.HasKey(key.GetKeyID()) 
+                || entries.HasReplica(key.GetKeyID());
+    }
+    
+    @Override
+    public ChordNode lookup(final ChordId key, final ChordNode originCaller, 
+            final HopData hop, 
+            long originID) //Remote
+    {
+        ChordNode n = lookupStep(key);
+        
+        if(n == this)
+            return this;
+        
+        //Go straight to the node that had the key before, if known.
+        ChordNode cached = CachedLocation(key);
+        
+        if(cached != null && cached != originCaller 
+                && !hop.GetTargets().contains(cached))
+        {
+            n = cached;
+        }
+        
         if( n == originCaller || hop.GetTargets().contains(n) )
             return this;
         
         //Foward the message
-        System.out.println(PeerID().GetIdentifierCH() + " Forwards the message"
-                + " To: " + n.PeerID().GetIdentifierCH());
+        Log.Write(Log.Category.LOOKUP, Log.Level.DEBUG, 
+                PeerID().GetIdentifierCH(), " Forwards the message To: ", 
+                n.PeerID().GetIdentifierCH());
         
         LookupEventRE re = mCOM.lookup(key, originCaller, originID, hop, n);
         
@@ -359,9 +636,203 @@ public class ChordNode extends ProcessX implements ChordRemote
         
         hop.AddHop(this);
         
+        if(re.HOP_STATUS == LookupEventRE.Status.STATUS_FOUND)
+            LearnLocation(key, re.NODE_TARGET_REQUESTED);
+        
         return re.NODE_TARGET_REQUESTED;
     }
     
+    /**
+     * Iterative lookup. Unlike lookup, the query is not forwarded from node 
+     * to node: this node asks every node on the path for the next node 
+     * itself, and keeps the routing state. The nodes on the path only answer 
+     * a single step and do not hold a thread while the lookup goes on.
+     * 
+     * The hops are recorded in the same way as in lookup.
+     * 
+     * @param key Key to find.
+     * @param hop Hop statistics of this lookup.
+     * @return The node with the key or a replica of it, this node if the 
+     * lookup ends here, null on failure.
+     */
+    public ChordNode lookupIterative(final ChordId key, final HopData hop)
+    {
+        return lookupIterative(key, hop, 1);
+    }
+    
+    /**
+     * Iterative lookup that asks up to alpha nodes at each step at the same 
+     * time, and goes on with the first useful reply. The other requests are 
+     * cancelled. A dead or slow node on the path then does not delay the 
+     * lookup, as long as one of the other nodes answers.
+     * 
+     * Every node on the path also tells a few more next hops than asked 
+     * for. If none of the asked nodes answer, the lookup goes on with these.
+     * Only the nodes on the path that was followed are recorded as hops.
+     * 
+     * @param key Key to find.
+     * @param hop Hop statistics of this lookup.
+     * @param alpha Number of nodes asked at each step.
+     * @return The node with the key or a replica of it, this node if the 
+     * lookup ends here, null on failure.
+     */
+    public ChordNode lookupIterative(final ChordId key, final HopData hop,
+            final int alpha)
+    {
+        int width = Math.max(1, alpha);
+        int count = width + LOOKUP_FALLBACKS;
+        ChordNode current = this;
+        List<ChordNode> shortlist = new ArrayList<>(
+                Arrays.asList(LookupCandidates(key, count)));
+        Set<ChordNode> dead = new HashSet<>();
+        
+        if(shortlist.isEmpty())
+            return this;
+        
+        while(true)
+        {
+            List<ChordNode> ask = new ArrayList<>(width);
+            
+            for(ChordNode c : shortlist)
+            {
+                if(ask.size() >= width)
+                    break;
+                
+                if(c != null && c != this && !dead.contains(c) 
+                        && !ask.contains(c) && !hop.GetTargets().contains(c))
+                {
+                    ask.add(c);
+                }
+            }
+            
+            if(ask.isEmpty())
+            {
+                //Routing loop, the current node is as close as it gets.
+                hop.AddHop(this);
+                return null;
+            }
+            
+            LookupStepEventRE re = AskFirst(key, count, ask, dead);
+            
+            if(re == null)
+            {
+                if(current == this)
+                {
+                    //The first hops are dead, route around them.
+                    for(ChordNode c : dead)
+                        mFingerTable.RemoveNode(c);
+                    
+                    shortlist = new ArrayList<>(
+                            Arrays.asList(LookupCandidates(key, count)));
+                    
+                    if(shortlist.isEmpty())
+                        return this;
+                }
+                
+                continue;
+            }
+            
+            hop.AddHop(re.NODE_REPLIER);
+            
+            if(re.HOP_STATUS == LookupStepEventRE.Status.STATUS_FOUND)
+            {
+                hop.AddHop(this);
+                LearnLocation(key, re.NODE_REPLIER);
+                return re.NODE_REPLIER;
+            }
+            else if(re.HOP_STATUS == LookupStepEventRE.Status.STATUS_FAILED)
+            {
+                hop.AddHop(this);
+                return null;
+            }
+            
+            current = re.NODE_REPLIER;
+            shortlist = new ArrayList<>(Arrays.asList(re.NODE_CANDIDATES));
+        }
+    }
+    
+    /**
+     * Sends a lookup step to all nodes at once and waits for the first 
+     * useful reply, i.e. one that found the key or knows a next hop. 
+     * 
+     * @param key Key to find.
+     * @param count Number of next hops wanted from each node.
+     * @param nodes Nodes to ask.
+     * @param dead The nodes that do not answer are added here.
+     * @return The first useful reply. If there is none, a failed reply, or
+     * null if no node answered.
+     */
+    private LookupStepEventRE AskFirst(final ChordId key, final int count,
+            final List<ChordNode> nodes, final Set<ChordNode> dead)
+    {
+        if(nodes.isEmpty())
+            return null;
+        
+        final CompletableFuture<LookupStepEventRE> first = 
+                new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(nodes.size());
+        final AtomicReference<LookupStepEventRE> failed = 
+                new AtomicReference<>();
+        final Queue<ChordNode> silent = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<LookupStepEventRE>> requests = 
+                new ArrayList<>(nodes.size());
+        
+        for(final ChordNode n : nodes)
+        {
+            Log.Write(Log.Category.LOOKUP, Log.Level.DEBUG, 
+                    PeerID().GetIdentifierCH(), " Asks ", 
+                    n.PeerID().GetIdentifierCH(), " for the next hop");
+            
+            CompletableFuture<LookupStepEventRE> f = 
+                    mCOM.lookupStepAsync(key, count, n);
+            
+            //The first useful reply wins. When every node has answered or
+            //timed out without one, a failed reply (or null) is the result.
+            f.whenComplete(new BiConsumer<LookupStepEventRE, Throwable>()
+            {
+                @Override
+                public void accept(LookupStepEventRE re, Throwable ex)
+                {
+                    if(ex == null)
+                    {
+                        if(re == null)
+                            silent.add(n);
+                        else if(re.HOP_STATUS == 
+                                LookupStepEventRE.Status.STATUS_FAILED)
+                            failed.set(re);
+                        else
+                            first.complete(re);
+                    }
+                    
+                    if(remaining.decrementAndGet() == 0)
+                        first.complete(failed.get());
+                }
+            });
+            
+            requests.add(f);
+        }
+        
+        final CountDownLatch done = new CountDownLatch(1);
+        
+        first.whenComplete(new BiConsumer<LookupStepEventRE, Throwable>()
+        {
+            @Override
+            public void accept(LookupStepEventRE re, Throwable ex)
+            {
+                done.countDown();
+            }
+        });
+        
+        AwaitReply(done);
+        
+        for(CompletableFuture<LookupStepEventRE> f : requests)
+            f.cancel(false);
+        
+        dead.addAll(silent);
+        
+        return first.getNow(null);
+    }
+    
     /**
      * Joins a node in the network. This application uses a bootstrap node.
      * 
@@ -383,8 +854,9 @@ public class ChordNode extends ProcessX implements ChordRemote
             
             if( ret == null)
             {
-                System.out.println("Cannot connect to bootstrap, kill myself. " 
-                        + mId.GetIdentifierCH());
+                Log.Write(Log.Category.JOIN, Log.Level.WARN, 
+                        "Cannot connect to bootstrap, kill myself. ", 
+                        mId.GetIdentifierCH());
                 this.kill();
                 return;
             }
@@ -397,7 +869,9 @@ public class ChordNode extends ProcessX implements ChordRemote
                 mySucessor = mBootStrap;
             }
             
-            System.out.println("Node: "+ mId.GetIdentifierCH() +" got a new Successor: " + mySucessor.PeerID().GetIdentifierCH());
+            Log.Write(Log.Category.JOIN, Log.Level.INFO, "Node: ", 
+                    mId.GetIdentifierCH(), " got a new Successor: ", 
+                    mySucessor.PeerID().GetIdentifierCH());
             
             SetSuccessor(mySucessor);
             SetPredecessor(null);
@@ -414,7 +888,8 @@ public class ChordNode extends ProcessX implements ChordRemote
             boolean a = Insert(k);
             if( a == false )
             {
-                System.out.println("Cannot put key, "+mId.GetIdentifierCH()+
+                Log.Write(Log.Category.JOIN, Log.Level.WARN, 
+                        "Cannot put key, ", mId.GetIdentifierCH(), 
                         " kill myself!");
                 kill();
             }
@@ -431,23 +906,21 @@ public class ChordNode extends ProcessX implements ChordRemote
     }
     
     /**
-     * Creates background tasks that executes every time t.
-     * Such as: Stabilize, FixFingers and CheckPredecessor.
+     * Starts this node in a ring where its finger table, successor-list,
+     * predecessor and keys are already set, e.g. by 
+     * CircleManager.CreateConvergedRing. The node does not join, it only 
+     * starts its background tasks.
+     * 
+     * @param offset Time (ms) before the first stabilize, used to spread the
+     * tasks of many nodes over time.
      */
-    private void CreateTasks()
+    public synchronized void StartConverged(long offset)
     {
-        // start thread which periodically stabilizes with successor
-        this.mMaintenanceTasks.scheduleWithFixedDelay(new StabilizeTask(
-                        this), 0, 6, TimeUnit.SECONDS);
-
-        // start thread which periodically attempts to fix finger table
-        this.mMaintenanceTasks.scheduleWithFixedDelay(new FixFingersTask(
-                        this), 6, 6, TimeUnit.SECONDS);
-        
-        // start thread which periodically attempts to check predecessor
-        this.mMaintenanceTasks.scheduleWithFixedDelay(new CheckPredecessorTask(
-                this), 6, 6, TimeUnit.SECONDS);
+        if(!mKeepAlive || mActive)
+            return;
         
+        mActive = true;
+        mMaintenance.Start(this, getKernel(), mStrand, offset, true);
     }
     
     /**
@@ -464,8 +937,7 @@ public class ChordNode extends ProcessX implements ChordRemote
         
         //Make tmepID of key
         ChordId id = new ChordId(mBits);
-        id.SetIdentifier(mId.GetKey());
-        id.SetIdentifierCH(mId.GetKeyCH());
+        id.SetIdentifierID(mId.GetKeyID());
             
         boolean inserted = false;
         PutKeyEventRE ret;
@@ -492,8 +964,9 @@ public class ChordNode extends ProcessX implements ChordRemote
         
         if(responsibleNode != null)
         {
-            System.out.println("Key: " + k.KEY.toString() +" was put in ID: " + 
-                    responsibleNode.PeerID().GetIdentifierCH().toString());
+            Log.Write(Log.Category.KEYS, Log.Level.DEBUG, "Key: ", k.KEY, 
+                    " was put in ID: ", 
+                    responsibleNode.PeerID().GetIdentifierCH());
         }
         
         return inserted;
@@ -648,46 +1121,75 @@ public class ChordNode extends ProcessX implements ChordRemote
     }
     
     /**
-     * Tells the thread to wait for a specific object.
-     * Used for waiting for return events.
+     * Sends an event to the target node and tells the thread to wait for 
+     * the return event. The wait object is registered before the event is
+     * sent, so the return event can be handed straight to it when received.
      * 
      * @param <T> Class template.
      * @param theClass The return class to wait for, e.g. GetSuccessorEventRE.
-     * @param ID The expected ID of the return Event.
+     * @param e The event to send. Its ID is the expected ID of the return 
+     * event.
+     * @param target The node to send the event to.
      * @return The return Event, null if failed after time out.
      */
-    public <T> T WaitForSingleObject(Class<T> theClass, String ID)
+    public <T> T WaitForSingleObject(Class<T> theClass, ProcessEvent e, 
+            ChordNode target)
     {
-        long timeOut = 3000;
-        
-        NotifyOnWaitObject<T> object = new NotifyOnWaitObject<>(
+        final NotifyOnWaitObject<T> object = new NotifyOnWaitObject<>(
                 theClass, 
-                System.currentTimeMillis(),
-                ID);
+                getKernel().Now(),
+                e.GetID());
         
         registerOnWaitObject(object);
-        CountDownLatch mutex = object.GetMutex();
-        ProcessEvent e;
+        ProcessEvent ret;
+        
+        target.putEvent(e);
+        
+        getKernel().Schedule(FakeRMICommunication.TIME_OUT, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                object.Expire();
+            }
+        });
    
-        try {
-            mutex.await(timeOut, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException ex) {
-            Logger.getLogger(ChordNode.class.getName()).log(Level.SEVERE, null, ex);
-        }
+        AwaitReply(object.GetMutex());
         
-        e = object.PollEvent();
+        ret = object.PollEvent();
         
-        if(e == null)
+        if(ret == null)
         {
             unregisterOnWaitObject(object);
             
-            System.out.println("COM: TimeOut packet at " 
-                    + this.PeerID().GetIdentifierCH());
-            System.out.println("Excpected: " 
-                    + object.GetNotifyClass().getSimpleName());
+            Log.Write(Log.Category.RPC, Log.Level.WARN, 
+                    "COM: TimeOut packet at ", PeerID().GetIdentifierCH(), 
+                    System.lineSeparator(), "Excpected: ", 
+                    object.GetNotifyClass().getSimpleName());
         }
         
-        return theClass.cast(e);
+        return theClass.cast(ret);
+    }
+    
+    /**
+     * Waits for a latch that is released by a return event, or by its time
+     * out on the simulation kernel. The wall clock is only used to notice
+     * that the kernel has been shut down.
+     * 
+     * @param latch The latch to wait for.
+     */
+    private void AwaitReply(CountDownLatch latch)
+    {
+        try {
+            while( !mWorkers.Await(latch, FakeRMICommunication.TIME_OUT, 
+                    TimeUnit.MILLISECONDS) )
+            {
+                if( !getKernel().IsRunning() )
+                    return;
+            }
+        } catch (InterruptedException ex) {
+            Logger.getLogger(ChordNode.class.getName()).log(Level.SEVERE, null, ex);
+        }
     }
     
     /**
@@ -727,17 +1229,23 @@ public class ChordNode extends ProcessX implements ChordRemote
         {
             mFingerTable.InitFingers();
             mActive = true;
-            CreateTasks();
+            mMaintenance.Start(this, getKernel(), mStrand, 0, false);
         }
         
-        ProcessEvent e = peekEvent();
-
-        while(mKeepAlive && e != null)
+        while(mKeepAlive && drainEvents(mEventBatch, EVENT_BATCH_SIZE) > 0)
         {
-            HandleEvent(e);
-
-            e = peekEvent();
+            for(ProcessEvent e : mEventBatch)
+            {
+                if(!mKeepAlive)
+                    break;
+                
+                HandleEvent(e);
+            }
+            
+            mEventBatch.clear();
         }
+        
+        mEventBatch.clear();
     }
     
     /**
@@ -751,7 +1259,7 @@ public class ChordNode extends ProcessX implements ChordRemote
         {
             GetSuccessorEvent gse = (GetSuccessorEvent)e;
             
-            mCOM.GetReturnCOM().GetSuccessorEventRETURN(e.GetUUID(), 
+            mCOM.GetReturnCOM().GetSuccessorEventRETURN(e.GetID(), 
                     successor(), gse.NODE_CALLER);
             
         }
@@ -759,96 +1267,148 @@ public class ChordNode extends ProcessX implements ChordRemote
         {
             GetPredecessorEvent gpe = (GetPredecessorEvent)e;
             
-            mCOM.GetReturnCOM().GetPredecessorEventRETURN(e.GetUUID(), 
+            mCOM.GetReturnCOM().GetPredecessorEventRETURN(e.GetID(), 
                     predecessor(), gpe.NODE_CALLER);
             
         }
         else if( e instanceof PingEvent )
         {
             PingEvent pe = (PingEvent)e;
-            mCOM.GetReturnCOM().PingEventRETUTN(e.GetUUID(), mActive, 
+            mCOM.GetReturnCOM().PingEventRETUTN(e.GetID(), mActive, 
                     pe.NODE_CALLER);
         }
         
+        else if( e instanceof LookupStepEvent )
+        {
+            LookupStepEvent lse = (LookupStepEvent)e;
+            LookupStepEventRE re = LookupStepResult(lse.TARGET, lse.COUNT);
+            
+            mCOM.GetReturnCOM().LookupStepEventRETURN(e.GetID(), 
+                    re.NODE_CANDIDATES, re.HOP_STATUS, lse.NODE_CALLER);
+        }
         else if( e instanceof LookupEvent )
         {
-            mExecutor.execute(new LookupTask(this, e));
+            mWorkers.execute(new LookupTask(this, e));
             
         }
         else if( e instanceof NotifyEvent )
         {
-            mExecutor.execute(new NotifyTask(this, e));
+            mWorkers.execute(new NotifyTask(this, e));
             
         }
         else if( e instanceof PutKeyEvent )
         {
-            mExecutor.execute(new PutKeyTask(this, e));
+            mWorkers.execute(new PutKeyTask(this, e));
             
         }
         else if( e instanceof PutReplicasEvent )
         {
-            PutReplicasEvent pre = (PutReplicasEvent)e;
+            final PutReplicasEvent pre = (PutReplicasEvent)e;
             
-            if( pre.RequiresReturn() )
+            HandleKeyEvent(new Runnable()
             {
-                mCOM.GetReturnCOM().PutReplicasEventRETURN(pre.GetUUID(), 
-                        true, pre.NODE_CALLER);
-            }
-            
-            PutReplicas(pre.REPLICAS);
+                @Override
+                public void run()
+                {
+                    if( pre.RequiresReturn() )
+                    {
+                        mCOM.GetReturnCOM().PutReplicasEventRETURN(
+                                pre.GetID(), true, pre.NODE_CALLER);
+                    }
+
+                    PutReplicas(pre.REPLICAS);
+                }
+            });
             
         }
         else if( e instanceof RemoveReplicasEvent)
         {
-            RemoveReplicasEvent rre = (RemoveReplicasEvent)e;
+            final RemoveReplicasEvent rre = (RemoveReplicasEvent)e;
             
-            if( rre.RequiresReturn() )
+            HandleKeyEvent(new Runnable()
             {
-                mCOM.GetReturnCOM().RemoveReplicasEventRETURN(rre.GetUUID(), 
-                        true, rre.NODE_CALLER);
-            }
-            
-            RemoveReplicas(rre.ID_RANGE, rre.KEYS_TO_REMOVE);
+                @Override
+                public void run()
+                {
+                    if( rre.RequiresReturn() )
+                    {
+                        mCOM.GetReturnCOM().RemoveReplicasEventRETURN(
+                                rre.GetID(), true, rre.NODE_CALLER);
+                    }
+
+                    RemoveReplicas(rre.ID_RANGE, rre.KEYS_TO_REMOVE);
+                }
+            });
             
         }
         else if( e instanceof TransferKeysEvent )
         {
-            TransferKeysEvent ev = (TransferKeysEvent)e;
+            final TransferKeysEvent ev = (TransferKeysEvent)e;
             
-            ChordKey[] removedKeys = TransferKeys(
-                    ev.KEYS_ADD, 
-                    ev.KEYS_REMOVE);
-            
-            
-            mCOM.GetReturnCOM().TransferKeysRETURN(
-                    ev.GetUUID(),
-                    removedKeys,
-                    ev.NODE_CALLER);
+            HandleKeyEvent(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ChordKey[] removedKeys = TransferKeys(
+                            ev.KEYS_ADD, 
+                            ev.KEYS_REMOVE);
+
+                    mCOM.GetReturnCOM().TransferKeysRETURN(
+                            ev.GetID(),
+                            removedKeys,
+                            ev.NODE_CALLER);
+                }
+            });
             
         }
         else if( e instanceof RetrieveKeysEvent)
         {
             
-            RetrieveKeysEvent ev = (RetrieveKeysEvent)e;
-            KeyContainer con;
+            final RetrieveKeysEvent ev = (RetrieveKeysEvent)e;
             
             if(ev.NODE_CALLER == null)
                 return;
             
-            con = RetrieveKeys(ev.TO_ID);
+            HandleKeyEvent(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    KeyContainer con = RetrieveKeys(ev.TO_ID);
 
-            mCOM.GetReturnCOM().RetrieveKeysEventRETURN(ev.GetUUID(), 
-                con.GetKeys(), con.GetReplicas(), ev.NODE_CALLER);
-            
+                    mCOM.GetReturnCOM().RetrieveKeysEventRETURN(ev.GetID(), 
+                        con.GetKeys(), con.GetReplicas(), ev.NODE_CALLER);
+                }
+            });
             
         }
         else if( e instanceof FindSuccessorEvent )
         {
-            mExecutor.execute(new FindSucessorTask(this, (FindSuccessorEvent)e));
+            mWorkers.execute(new FindSucessorTask(this, (FindSuccessorEvent)e));
         }
         else if( e instanceof ClosestPrecedingFingerEvent )
         {
-            mExecutor.execute(new ClosestPrecedingFingerTask(this, e));
+            mWorkers.execute(new ClosestPrecedingFingerTask(this, e));
+        }
+    }
+    
+    /**
+     * Runs the handler of a key or replica request on the key strand, since
+     * it locks the node and must not stall the kernel thread. The requests
+     * are still handled in the order they arrived.
+     * 
+     * @param handler The handler.
+     */
+    private void HandleKeyEvent(Runnable handler)
+    {
+        try
+        {
+            mKeyStrand.execute(handler);
+        }
+        catch(RejectedExecutionException ex)
+        {
+            //The node is dead, the caller gets no reply.
         }
     }
     
@@ -861,6 +1421,35 @@ public class ChordNode extends ProcessX implements ChordRemote
         return mBootStrap;
     }
     
+    /**
+     * 
+     * @return The executor running this nodes tasks one at a time, e.g. 
+     * continuations of asynchronous requests.
+     */
+    public final Executor GetExecutor()
+    {
+        return mStrand;
+    }
+    
+    /**
+     * 
+     * @return The worker pool shared by all nodes of the simulation, for 
+     * tasks that need not wait for the other tasks of this node.
+     */
+    public final WorkerPool GetWorkers()
+    {
+        return mWorkers;
+    }
+    
+    /**
+     * 
+     * @return The schedule of this nodes background tasks.
+     */
+    public final MaintenanceSchedule GetMaintenance()
+    {
+        return mMaintenance;
+    }
+    
     /**
      * 
      * @return The com object to communicate with other nodes.
@@ -875,7 +1464,10 @@ public class ChordNode extends ProcessX implements ChordRemote
     {
         mKeepAlive = false;
         mActive = false;
-        mMaintenanceTasks.shutdownNow();
-        mExecutor.shutdownNow();
+        
+        mMaintenance.Stop();
+        
+        mStrand.Shutdown();
+        mKeyStrand.Shutdown();
     }
 }
\ No newline at end of file
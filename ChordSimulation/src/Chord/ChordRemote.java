@@ -67,13 +67,13 @@ public interface ChordRemote
      * @param key Key to find in the chord ring.
      * @param originCaller The issuer who started this recursive lookup search.
      * @param hop The current hopData. 
-     * @param originID The origin ProcessEvent UUID.
+     * @param originID The origin ProcessEvent ID.
 
      * 
      * @return The node that has the key either as a replica or key.
      */
     public ChordNode lookup(ChordId key, ChordNode originCaller, HopData hop, 
-            String originID);
+            long originID);
     
     /**
      *  Put a key on node n.
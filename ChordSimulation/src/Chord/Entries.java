@@ -18,41 +18,54 @@
  */
 package Chord;
 
+import Chord.Identifier.Identifier;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * This class stores ChordKeys (replicas and real keys).
  * It is used by nodes to store key's they are currently maintaining.
  * 
+ * Keys and replicas are kept sorted by their position on the ring, so a
+ * lookup is O(log n) and the keys in an interval are found with a range 
+ * scan.
+ * 
  * @author Simon Edänge
  */
 public class Entries
 {
-    private final List<ChordKey> mReplicas;
-    private final List<ChordKey> mKeys;
+    private final ConcurrentSkipListMap<Identifier, ChordKey> mReplicas;
+    private final ConcurrentSkipListMap<Identifier, ChordKey> mKeys;
     private final ChordNode mLocal;
+    private final int mBits;
     
     /**
      * Construct Entries.
      * 
-     * The lists used to store Keys and Replicas are separated. The lists are
-     * synchronized so they cannot be corrupted.
+     * The maps used to store Keys and Replicas are separated. The maps are
+     * concurrent so they cannot be corrupted.
      * 
      * @param self The local node.
      */
     public Entries(ChordNode self)
     {
         mLocal = self;
-        mReplicas = Collections.synchronizedList(
-                new ArrayList<ChordKey>());
-        
-        mKeys = Collections.synchronizedList(
-                new ArrayList<ChordKey>());
+        mBits = self.PeerID().GetIdentifierID().Bits();
+        mReplicas = new ConcurrentSkipListMap<>();
+        mKeys = new ConcurrentSkipListMap<>();
+    }
+    
+    /**
+     * 
+     * @param k Consisted Hashed Key.
+     * @return The ring position of the key, null if k is null.
+     */
+    private Identifier ToIdentifier(final BigInteger k)
+    {
+        return Identifier.Create(k, mBits);
     }
     
     /**
@@ -93,30 +106,18 @@ public class Entries
     }
     
     /**
-     * Search for a key or replica inside a list.
-     * @param k Consisted Hashed Key to find.
-     * @param list In which list to search.
+     * Search for a key or replica inside a map.
+     * @param k Ring position of the key to find.
+     * @param map In which map to search.
      * @return Null if not found.
      */
-    private ChordKey SearchKey(final BigInteger k, final List<ChordKey> list)
+    private ChordKey SearchKey(final Identifier k, 
+            final NavigableMap<Identifier, ChordKey> map)
     {
-        //Linear search, not optimal
-        
         if(k == null)
             return null;
         
-        synchronized(list)
-        {
-            for(ChordKey key : list)
-            {
-                if(key.KEY.compareTo(k) == 0)
-                {
-                    return key;
-                }
-            }
-        }
-        
-        return null;  
+        return map.get(k);
     }
     
     /**
@@ -126,6 +127,17 @@ public class Entries
      * @return True if found.
      */
     public boolean HasReplica(BigInteger k)
+    {
+        return HasReplica(ToIdentifier(k));
+    }
+    
+    /**
+     * Check if a replica exists.
+     * 
+     * @param k
+     * @return True if found.
+     */
+    public boolean HasReplica(Identifier k)
     {
         return (SearchKey(k, mReplicas) != null);
     }
@@ -148,6 +160,17 @@ public class Entries
      * @return True if found.
      */
     public boolean HasKey(BigInteger k)
+    {
+        return HasKey(ToIdentifier(k));
+    }      
+    
+    /**
+     * Check if a key exists.
+     * 
+     * @param k
+     * @return True if found.
+     */
+    public boolean HasKey(Identifier k)
     {
         return (SearchKey(k, mKeys) != null);
     }      
@@ -174,10 +197,7 @@ public class Entries
     public boolean InsertReplica(ChordKey k)
     {
         if(CanInsertReplica(k))
-        {
-            mReplicas.add(k);
-            return true;
-        }
+            return mReplicas.putIfAbsent(ToIdentifier(k.KEY), k) == null;
         
         return false;
     }
@@ -214,10 +234,7 @@ public class Entries
     public boolean InsertKey(ChordKey k)
     {
         if(CanInsertKey(k))
-        {
-            mKeys.add(k);
-            return true;
-        }
+            return mKeys.putIfAbsent(ToIdentifier(k.KEY), k) == null;
         
         return false;
     }
@@ -256,8 +273,7 @@ public class Entries
         if(k == null)
             return false;
         
-        ChordKey s = SearchKey(k.KEY, mReplicas);
-        return mReplicas.remove(s);
+        return mReplicas.remove(ToIdentifier(k.KEY)) != null;
     }
     
     /**
@@ -290,8 +306,7 @@ public class Entries
      */
     public boolean RemoveKey(ChordKey k)
     {
-        ChordKey s = SearchKey(k.KEY, mKeys);
-        return mKeys.remove(s);
+        return mKeys.remove(ToIdentifier(k.KEY)) != null;
     }   
     
     /**
@@ -357,33 +372,35 @@ public class Entries
     }
     
     /**
+     * Gets the entries that are closer to fromID than to toID, that is the 
+     * entries in the ring interval (toID, fromID]. If the ids are equal, all
+     * entries are returned.
      * 
      * @param fromID
      * @param toID
-     * @param list
-     * @return Get all Entries in the interval from the list.
+     * @param map
+     * @return Get all Entries in the interval from the map.
      */
     private Set<ChordKey> GetEntiesInInterval(final ChordId fromID, 
             final ChordId toID, 
-            final List<ChordKey> list)
+            final NavigableMap<Identifier, ChordKey> map)
     {     
         if(fromID == null || toID == null)
             return null;
         
-        Set<ChordKey> result = new HashSet<>();
+        Identifier from = fromID.GetIdentifierID();
+        Identifier to = toID.GetIdentifierID();
+        int order = to.compareTo(from);
         
-        synchronized(list)
-        {
-            for(ChordKey k : list)
-            {
-                BigInteger b = k.WhichIsClosestToKey(fromID.GetIdentifierCH(), 
-                        toID.GetIdentifierCH());
-                if(b != null && b.compareTo(fromID.GetIdentifierCH()) == 0)
-                {
-                    result.add(k);
-                }
-            }
-        }
+        if(order == 0)
+            return new HashSet<>(map.values());
+        
+        if(order < 0)
+            return new HashSet<>(map.subMap(to, false, from, true).values());
+        
+        //The interval wraps around zero.
+        Set<ChordKey> result = new HashSet<>(map.tailMap(to, false).values());
+        result.addAll(map.headMap(from, true).values());
         
         return result;
     }
@@ -398,7 +415,7 @@ public class Entries
        if( k == null )
            return null;
        
-        ChordKey ret = SearchKey(k.GetKeyCH(), mReplicas);
+        ChordKey ret = SearchKey(k.GetKeyID(), mReplicas);
         
         return ret;
     }
@@ -413,7 +430,7 @@ public class Entries
         if( k == null )
             return null;
        
-        ChordKey ret = SearchKey(k.GetKeyCH(), mKeys);
+        ChordKey ret = SearchKey(k.GetKeyID(), mKeys);
         
         return ret; 
     }
@@ -424,13 +441,7 @@ public class Entries
      */
     public Set<ChordKey> GetAllKeys()
     {
-        Set<ChordKey> set = null;
-        
-        synchronized(mKeys)
-        {
-            set = new HashSet<>(mKeys);
-        }
-        return set;
+        return new HashSet<>(mKeys.values());
     }
     
     /**
@@ -439,13 +450,6 @@ public class Entries
      */
     public Set<ChordKey> GetAllReplicas()
     {
-        Set<ChordKey> set = null;
-        
-        synchronized(mReplicas)
-        {
-            set = new HashSet<>(mReplicas);
-        }
-        
-        return set;
+        return new HashSet<>(mReplicas.values());
     }
 }
\ No newline at end of file
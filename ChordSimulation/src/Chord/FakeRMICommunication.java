@@ -19,7 +19,11 @@
 package Chord;
 import Chord.FakeRMIEvents.*;
 import Chord.FakeRMIEvents.ReturnRMIevents.*;
+import Process.Log;
+import Process.ProcessEvent;
 import Statistics.HopData;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 /**
  * This class simulates the RMI network communication functionality the Java
  * API offers. These methods will call the methods in the other nodes.
@@ -27,6 +31,12 @@ import Statistics.HopData;
  * These methods will send a specific event to the target node.
  * Every method expect a return event.
  * 
+ * Every method also has an asynchronous variant (suffix Async), which 
+ * returns a CompletableFuture instead of waiting for the return event. The
+ * future is completed when the return event is received, or with null on 
+ * time out or if the target is dead. Time outs are handled by a timer wheel
+ * shared by all nodes, so a pending request does not hold a thread.
+ * 
  * @see ReturnRMICommunication
  * @author Simon Edänge
  */
@@ -61,13 +71,13 @@ public class FakeRMICommunication
          * @param targetResult The result from this operation.
          * @param target Target to send this reply.
          */
-        public void ClosestPrecedingFingerEventRETURN(final String ID, 
+        public void ClosestPrecedingFingerEventRETURN(final long ID, 
                 final ChordNode targetResult, 
                 final ChordNode target )
         {
            ClosestPrecedingFingerEventRE re;
            re = new ClosestPrecedingFingerEventRE(targetResult, mLocal);
-           re.SetUUID(ID);
+           re.SetID(ID);
            target.putEvent(re);
         }
         
@@ -79,13 +89,13 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void RemoveReplicasEventRETURN(String ID, 
+        public void RemoveReplicasEventRETURN(long ID, 
                 final boolean result, 
                 final ChordNode target)
         {
             RemoveReplicasEventRE re;
             re = new RemoveReplicasEventRE(mLocal, result);
-            re.SetUUID(ID);
+            re.SetID(ID);
             target.putEvent(re);
         }
         
@@ -97,13 +107,13 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void PutReplicasEventRETURN(String ID,
+        public void PutReplicasEventRETURN(long ID,
                 final boolean result,
                 final ChordNode target)
         {
             PutReplicasEventRE ret;
             ret = new PutReplicasEventRE(mLocal, result);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -115,12 +125,12 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void PutKeyEventRETURN(String ID, 
+        public void PutKeyEventRETURN(long ID, 
                 final boolean result, 
                 final ChordNode target)
         {
             PutKeyEventRE ret = new PutKeyEventRE(mLocal, result);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -133,7 +143,7 @@ public class FakeRMICommunication
          * @param replicas Added Replicas.
          * @param target Target to send this reply.
          */
-        public void RetrieveKeysEventRETURN(String ID, 
+        public void RetrieveKeysEventRETURN(long ID, 
                 final ChordKey [] keys,
                 final ChordKey [] replicas,
                 final ChordNode target)
@@ -143,7 +153,7 @@ public class FakeRMICommunication
                     keys, 
                     replicas);
             
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -155,11 +165,11 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void PingEventRETUTN(String ID,
+        public void PingEventRETUTN(long ID,
                 final boolean result, final ChordNode target)
         {
             PingEventRE ret = new PingEventRE(result, mLocal);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -171,12 +181,12 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void GetPredecessorEventRETURN(String ID,
+        public void GetPredecessorEventRETURN(long ID,
                 final ChordNode result, final ChordNode target)
         {
             GetPredecessorEventRE re;
             re = new GetPredecessorEventRE(result , mLocal);
-            re.SetUUID(ID);
+            re.SetID(ID);
             target.putEvent(re);
         }
         
@@ -188,13 +198,13 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void GetSuccessorEventRETURN(String ID, 
+        public void GetSuccessorEventRETURN(long ID, 
                 final ChordNode result, 
                 final ChordNode target)
         {
             GetSuccessorEventRE re;
             re = new GetSuccessorEventRE(result, mLocal);
-            re.SetUUID(ID);
+            re.SetID(ID);
             target.putEvent(re);
         }
        
@@ -206,13 +216,13 @@ public class FakeRMICommunication
          * @param result The result from this operation.
          * @param target Target to send this reply.
          */
-        public void FindSuccessorEventRETURN(String ID, 
+        public void FindSuccessorEventRETURN(long ID, 
                 final ChordNode result, 
                 final ChordNode target)
         {
             FindSuccessorEventRE ret;
             ret = new FindSuccessorEventRE(result, mLocal);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -225,14 +235,14 @@ public class FakeRMICommunication
          * @param successors Successor-list from the notified node.
          * @param target Target to send this reply.
          */
-        public void NotifyEventRETURN(String ID,
+        public void NotifyEventRETURN(long ID,
                 final ChordNode oldPred,
                 final ChordNode[] successors,
                 final ChordNode target)
         {
             NotifyEventRE ret;
             ret = new NotifyEventRE(oldPred, successors, mLocal);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);        
         }
         
@@ -246,7 +256,7 @@ public class FakeRMICommunication
          * @param hop The current HopData
          * @param target Target to send this reply.
          */
-        public void LookupEventRETURN(String ID, final ChordNode result, 
+        public void LookupEventRETURN(long ID, final ChordNode result, 
                 final LookupEventRE.Status status, final HopData hop, 
                 final ChordNode target)
         {
@@ -256,7 +266,28 @@ public class FakeRMICommunication
                     status,
                     hop);
             
-            ret.SetUUID(ID);
+            ret.SetID(ID);
+            target.putEvent(ret);
+        }
+        
+        /**
+         * Called when returning back to the issuer with the same event type.
+         * 
+         * @param ID ProcessEvent ID from the issuer. The ID that the issuer
+         * generated with it's ProcessEvent.
+         * @param candidates The nodes to ask next, best first.
+         * @param status STATUS_NEXT, STATUS_FAILED, STATUS_FOUND.
+         * @param target Target to send this reply.
+         */
+        public void LookupStepEventRETURN(long ID, 
+                final ChordNode[] candidates, 
+                final LookupStepEventRE.Status status, 
+                final ChordNode target)
+        {
+            LookupStepEventRE ret = new LookupStepEventRE(candidates, mLocal, 
+                    status);
+            
+            ret.SetID(ID);
             target.putEvent(ret);
         }
         
@@ -269,16 +300,21 @@ public class FakeRMICommunication
          * @param target Target to send this reply.
          */
         public void TransferKeysRETURN(
-                String ID, 
+                long ID, 
                 final ChordKey[] keys, 
                 final ChordNode target)
         {
             TransferKeysEventRE ret = new TransferKeysEventRE(target, keys);
-            ret.SetUUID(ID);
+            ret.SetID(ID);
             target.putEvent(ret);
         }
     }
     
+    /**
+     * Virtual time (ms) to wait for a return event.
+     */
+    public static final long TIME_OUT = 3000;
+    
     private final ChordNode mLocal;
     private final ReturnRMICommunication mRetCOM;
     
@@ -324,9 +360,8 @@ public class FakeRMICommunication
         ClosestPrecedingFingerEventRE re;
         
         cpfe = new ClosestPrecedingFingerEvent(mLocal, id);
-        target.putEvent(cpfe);
         re = mLocal.WaitForSingleObject(ClosestPrecedingFingerEventRE.class, 
-               cpfe.GetUUID());
+                cpfe, target);
         
         return re;
     }
@@ -362,9 +397,8 @@ public class FakeRMICommunication
         FindSuccessorEventRE ret;
         
         fse = new FindSuccessorEvent(id, mLocal);
-        target.putEvent(fse);
         ret = mLocal.WaitForSingleObject(FindSuccessorEventRE.class, 
-                fse.GetUUID());
+                fse, target);
 
         return ret;
     }
@@ -394,9 +428,8 @@ public class FakeRMICommunication
         NotifyEventRE ret;
         
         ne = new NotifyEvent(n);
-        target.putEvent(ne);
         ret = mLocal.WaitForSingleObject(NotifyEventRE.class, 
-                ne.GetUUID());
+                ne, target);
         
         return ret;
     }
@@ -429,10 +462,8 @@ public class FakeRMICommunication
         GetPredecessorEventRE ret;
         
         gpe = new GetPredecessorEvent(mLocal);
-        target.putEvent(gpe);
-        
         ret = mLocal.WaitForSingleObject(GetPredecessorEventRE.class, 
-                gpe.GetUUID());
+                gpe, target);
         
                 
         return ret;
@@ -465,9 +496,8 @@ public class FakeRMICommunication
         GetSuccessorEventRE ret;
         
         gse = new GetSuccessorEvent(mLocal);
-        target.putEvent(gse);
         ret = mLocal.WaitForSingleObject(GetSuccessorEventRE.class, 
-                gse.GetUUID());
+                gse, target);
         
              
         return ret;
@@ -487,7 +517,7 @@ public class FakeRMICommunication
      * @return Return event if success, else null.
      */
     public LookupEventRE lookup(final ChordId key, final ChordNode originCaller, 
-            String originID, final HopData hop, 
+            long originID, final HopData hop, 
             final ChordNode target)
     {
         //Check if target is dead.
@@ -499,10 +529,43 @@ public class FakeRMICommunication
         LookupEventRE ret;
         
         le = new LookupEvent(mLocal, originCaller, originID, hop, key);
-        target.putEvent(le);
-        
         ret = mLocal.WaitForSingleObject(LookupEventRE.class, 
-               le.GetUUID());
+                le, target);
+        
+        return ret;
+    }
+
+    /**
+     * Sends this event to a node the method represent. 
+     * Target node will execute this event, if it is ALIVE.
+     * Every method waits for a return event, until time out. If time out,
+     * the method returns null.
+     * 
+     * @param key Key to find.
+     * @param count Number of next hops wanted, best first.
+     * @param target Target to send this event to.
+     * @return Return event if success, else null.
+     */
+    public LookupStepEventRE lookupStep(final ChordId key, final int count,
+            final ChordNode target)
+    {
+        if(key == null || target == null)
+            return null;
+        
+        else if( target == mLocal )
+            return mLocal.LookupStepResult(key, count);
+        
+        //Check if target is dead.
+        //See method description
+        if ( !IsTargetActive(target) )
+            return null;
+        
+        LookupStepEvent lse;
+        LookupStepEventRE ret;
+        
+        lse = new LookupStepEvent(mLocal, key, count);
+        ret = mLocal.WaitForSingleObject(LookupStepEventRE.class, 
+                lse, target);
         
         return ret;
     }
@@ -519,7 +582,7 @@ public class FakeRMICommunication
      */
     public PutKeyEventRE PutKey(final ChordKey k, final ChordNode target)
     {
-        if(k == null && target == null)
+        if(k == null || target == null)
             return null;
         
         else if( target == mLocal )
@@ -537,10 +600,8 @@ public class FakeRMICommunication
         PutKeyEventRE ret;
         
         pke = new PutKeyEvent(mLocal, k);
-        target.putEvent(pke);
-        
         ret = mLocal.WaitForSingleObject(PutKeyEventRE.class, 
-                pke.GetUUID());
+                pke, target);
         
         return ret;
     }
@@ -581,13 +642,14 @@ public class FakeRMICommunication
         pre = new PutReplicasEvent(mLocal, replicas);
         pre.SetRequiresReturn(registerReply);
         
-        target.putEvent(pre);
-        
         if(registerReply == true)
         {
             ret = mLocal.WaitForSingleObject(PutReplicasEventRE.class, 
-                    pre.GetUUID());
-            
+                    pre, target);
+        }
+        else
+        {
+            target.putEvent(pre);
         }
         
         return ret;
@@ -633,13 +695,14 @@ public class FakeRMICommunication
         rre = new RemoveReplicasEvent(mLocal, caller, replicasToRemove);
         rre.SetRequiresReturn(registerReply);
         
-        target.putEvent(rre);
-        
         if(registerReply == true)
         {
             ret = mLocal.WaitForSingleObject(RemoveReplicasEventRE.class, 
-                    rre.GetUUID());
-            
+                    rre, target);
+        }
+        else
+        {
+            target.putEvent(rre);
         }
                
         return ret;
@@ -672,8 +735,8 @@ public class FakeRMICommunication
         PingEvent e = new PingEvent(mLocal);
         PingEventRE re;
         
-        target.putEvent(e);
-        re = mLocal.WaitForSingleObject(PingEventRE.class, e.GetUUID());
+        re = mLocal.WaitForSingleObject(PingEventRE.class, 
+                e, target);
         
         
         return re;
@@ -702,10 +765,8 @@ public class FakeRMICommunication
         
         RetrieveKeysEvent e = new RetrieveKeysEvent(toID, mLocal);
         RetrieveKeysEventRE re;
-        
-        target.putEvent(e);
         re = mLocal.WaitForSingleObject(RetrieveKeysEventRE.class, 
-                e.GetUUID());
+                e, target);
         
         return re;
     }
@@ -738,15 +799,411 @@ public class FakeRMICommunication
         
         TransferKeysEvent e = new TransferKeysEvent(mLocal, keys, remove);
         TransferKeysEventRE re;
-        
-        target.putEvent(e);
         re = mLocal.WaitForSingleObject(TransferKeysEventRE.class, 
-                e.GetUUID());
+                e, target);
         
         return re;
         
     }
     
+    /**
+     * Sends an event to the target and returns a future for the return event.
+     * The future is completed with null on time out, which is an event on
+     * the simulation kernel, TIME_OUT virtual ms after the send.
+     * 
+     * @param <T> Return event class.
+     * @param e The event to send.
+     * @param theClass The return event class to wait for.
+     * @param target Target to send this event to.
+     * @return Future completed with the return event, or null on time out.
+     */
+    private <T> CompletableFuture<T> SendAsync(final ProcessEvent e, 
+            final Class<T> theClass, final ChordNode target)
+    {
+        final long ID = e.GetID();
+        final CompletableFuture<T> future = mLocal.registerReply(theClass, ID);
+        
+        mLocal.getKernel().Schedule(TIME_OUT, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mLocal.unregisterReply(ID);
+                
+                if(future.complete(null))
+                {
+                    Log.Write(Log.Category.RPC, Log.Level.WARN, 
+                            "COM: TimeOut packet at ", 
+                            mLocal.PeerID().GetIdentifierCH(), 
+                            System.lineSeparator(), "Excpected: ", 
+                            theClass.getSimpleName());
+                }
+            }
+        });
+        
+        future.whenComplete(new BiConsumer<T, Throwable>()
+        {
+            @Override
+            public void accept(T t, Throwable u)
+            {
+                //A cancelled request will not wait for its reply.
+                if(future.isCancelled())
+                    mLocal.unregisterReply(ID);
+            }
+        });
+        
+        target.putEvent(e);
+        
+        return future;
+    }
+    
+    /**
+     * Asynchronous variant of closestPrecedingFinger.
+     * 
+     * @param id ID To find.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<ClosestPrecedingFingerEventRE> 
+        closestPrecedingFingerAsync(final ChordId id, final ChordNode target)
+    {
+        if(id == null || target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            ChordNode result = mLocal.closestPrecedingNode(id);
+            return CompletableFuture.completedFuture(
+                    new ClosestPrecedingFingerEventRE(result, target));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new ClosestPrecedingFingerEvent(mLocal, id), 
+                ClosestPrecedingFingerEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of findSuccessor.
+     * Note: if the target is the local node, the lookup is performed before
+     * this method returns.
+     * 
+     * @param id ID To find.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<FindSuccessorEventRE> findSuccessorAsync(
+            final ChordId id, final ChordNode target)
+    {
+        if(id == null || target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            ChordNode result = mLocal.findSuccessor(id);
+            return CompletableFuture.completedFuture(
+                    new FindSuccessorEventRE(result, target));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new FindSuccessorEvent(id, mLocal), 
+                FindSuccessorEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of Notify.
+     * 
+     * @param n The local node (this).
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<NotifyEventRE> NotifyAsync(final ChordNode n,
+            final ChordNode target)
+    {
+        if(n == null || target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new NotifyEvent(n), NotifyEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of predecessor.
+     * 
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<GetPredecessorEventRE> predecessorAsync(
+            final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            return CompletableFuture.completedFuture(
+                    new GetPredecessorEventRE(mLocal.predecessor(), target));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new GetPredecessorEvent(mLocal), 
+                GetPredecessorEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of successor.
+     * 
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<GetSuccessorEventRE> successorAsync(
+            final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            return CompletableFuture.completedFuture(
+                    new GetSuccessorEventRE(mLocal.successor(), target));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new GetSuccessorEvent(mLocal), 
+                GetSuccessorEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of lookup.
+     * 
+     * @param key Key to find.
+     * @param originCaller The node that issued this lookup.
+     * @param originID Origin ID of the first lookup message. Used when returning.
+     * @param hop Current Hop data.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<LookupEventRE> lookupAsync(final ChordId key, 
+            final ChordNode originCaller, long originID, final HopData hop, 
+            final ChordNode target)
+    {
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new LookupEvent(mLocal, originCaller, originID, hop, 
+                key), LookupEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of lookupStep.
+     * The request can be cancelled by cancelling the future.
+     * 
+     * @param key Key to find.
+     * @param count Number of next hops wanted, best first.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<LookupStepEventRE> lookupStepAsync(
+            final ChordId key, final int count, final ChordNode target)
+    {
+        if(key == null || target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+            return CompletableFuture.completedFuture(
+                    mLocal.LookupStepResult(key, count));
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new LookupStepEvent(mLocal, key, count), 
+                LookupStepEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of PutKey.
+     * 
+     * @param k Key to put.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<PutKeyEventRE> PutKeyAsync(final ChordKey k, 
+            final ChordNode target)
+    {
+        if(k == null || target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            boolean a = mLocal.PutKey(k);
+            return CompletableFuture.completedFuture(
+                    new PutKeyEventRE(target, a));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new PutKeyEvent(mLocal, k), PutKeyEventRE.class, 
+                target);
+    }
+    
+    /**
+     * Asynchronous variant of PutReplicas.
+     * 
+     * @param registerReply If a return event is required. If set to false,
+     * the future is completed with null directly.
+     * @param replicas To replicate.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<PutReplicasEventRE> PutReplicasAsync(
+            final boolean registerReply,
+            final ChordKey[] replicas, 
+            final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            boolean a = mLocal.PutReplicas(replicas);
+            return CompletableFuture.completedFuture(
+                    new PutReplicasEventRE(target, a));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        PutReplicasEvent pre = new PutReplicasEvent(mLocal, replicas);
+        pre.SetRequiresReturn(registerReply);
+        
+        if(registerReply == false)
+        {
+            target.putEvent(pre);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return SendAsync(pre, PutReplicasEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of RemoveReplicas.
+     * 
+     * @param registerReply If a return event is required. If set to false,
+     * the future is completed with null directly.
+     * @param caller If set, all replicas this caller is responsible for will be
+     * removed.
+     * @param replicasToRemove Replicas to remove. Ignored if caller is set.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<RemoveReplicasEventRE> RemoveReplicasAsync(
+            final boolean registerReply,
+            final ChordId caller, 
+            final ChordKey[] replicasToRemove, 
+            final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        else if(target == mLocal)
+        {
+            boolean a = mLocal.RemoveReplicas(caller, replicasToRemove);
+            return CompletableFuture.completedFuture(
+                    new RemoveReplicasEventRE(target, a));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        RemoveReplicasEvent rre;
+        rre = new RemoveReplicasEvent(mLocal, caller, replicasToRemove);
+        rre.SetRequiresReturn(registerReply);
+        
+        if(registerReply == false)
+        {
+            target.putEvent(rre);
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return SendAsync(rre, RemoveReplicasEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of Ping.
+     * 
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<PingEventRE> PingAsync(final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        else if( target == mLocal )
+        {
+            return CompletableFuture.completedFuture(
+                    new PingEventRE(mLocal.isActive(), target));
+        }
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new PingEvent(mLocal), PingEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of RetrieveKeys.
+     * 
+     * @param toID Retrieve all keys this id is responsible for.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<RetrieveKeysEventRE> RetrieveKeysAsync(
+            final ChordId toID, final ChordNode target)
+    {
+        if( target == null )
+            return CompletableFuture.completedFuture(null);
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new RetrieveKeysEvent(toID, mLocal), 
+                RetrieveKeysEventRE.class, target);
+    }
+    
+    /**
+     * Asynchronous variant of TransferKeys.
+     * 
+     * @param keys Keys to add.
+     * @param remove Keys to remove.
+     * @param target Target to send this event to.
+     * @return Future of the return event, completed with null on failure.
+     */
+    public CompletableFuture<TransferKeysEventRE> TransferKeysAsync(
+            final ChordKey[] keys,
+            final ChordKey[] remove,
+            final ChordNode target)
+    {
+        if(target == null)
+            return CompletableFuture.completedFuture(null);
+        
+        if ( !IsTargetActive(target) )
+            return CompletableFuture.completedFuture(null);
+        
+        return SendAsync(new TransferKeysEvent(mLocal, keys, remove), 
+                TransferKeysEventRE.class, target);
+    }
+    
     /**
      * Check if the target is active.
      * This is done because this is a simulation.
@@ -759,18 +1216,20 @@ public class FakeRMICommunication
     {
         if(target == null)
         {
-            System.out.println("COM: Target null, no packet sent."
-                    + mLocal.PeerID().GetIdentifierCH());
+            Log.Write(Log.Category.RPC, Log.Level.DEBUG, 
+                    "COM: Target null, no packet sent.", 
+                    mLocal.PeerID().GetIdentifierCH());
             
             return false;
         }
         
         if( !target.isActive() )
         {
-            System.out.println("COM: Dead node at "
-                    + mLocal.PeerID().GetIdentifierCH());
-            System.out.println("Node Will be removed and replaced: "
-                    + target.PeerID().GetIdentifierCH());
+            Log.Write(Log.Category.RPC, Log.Level.DEBUG, 
+                    "COM: Dead node at ", mLocal.PeerID().GetIdentifierCH(), 
+                    System.lineSeparator(), 
+                    "Node Will be removed and replaced: ", 
+                    target.PeerID().GetIdentifierCH());
             
             return false;
         }
@@ -34,7 +34,7 @@ public class LookupEvent extends ProcessEvent
 {
     public final ChordNode NODE_CALLER;
     public final ChordNode NODE_CALLER_ORIGIN;
-    public final String NODE_CALLER_ORIGIN_UUID;
+    public final long NODE_CALLER_ORIGIN_ID;
     public final ChordId TARGET;
     public HopData HOP_DATA;
     
@@ -42,16 +42,16 @@ public class LookupEvent extends ProcessEvent
      * 
      * @param caller The node who created this event (issuer).
      * @param originCaller The issuer who started this recursive lookup search.
-     * @param originID The origin ProcessEvent UUID.
+     * @param originID The origin ProcessEvent ID.
      * @param hop The current hopData. 
      * @param target Target id to find (Key ID).
      */
     public LookupEvent(ChordNode caller, ChordNode originCaller, 
-            String originID, HopData hop, ChordId target)
+            long originID, HopData hop, ChordId target)
     {
          super();
          NODE_CALLER_ORIGIN = originCaller;
-         NODE_CALLER_ORIGIN_UUID = originID;
+         NODE_CALLER_ORIGIN_ID = originID;
          NODE_CALLER = caller;
          TARGET = target;
          HOP_DATA = hop;
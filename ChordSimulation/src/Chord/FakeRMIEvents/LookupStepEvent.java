@@ -0,0 +1,54 @@
+/* 
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.FakeRMIEvents;
+
+import Chord.ChordId;
+import Chord.ChordNode;
+import Process.ProcessEvent;
+
+/**
+ * This class is used to send specific query events to other nodes.
+ * The node who receive such event, will perform the task as it represent, and
+ * return a ReturnEvent with the results back to the issuer.
+ * 
+ * Used by iterative lookups: the receiver does not forward the query, it 
+ * only tells the issuer where to ask next.
+ * 
+ * @author Simon Edänge
+ */
+public class LookupStepEvent extends ProcessEvent
+{
+    public final ChordNode NODE_CALLER;
+    public final ChordId TARGET;
+    public final int COUNT;
+    
+    /**
+     * 
+     * @param caller The node who created this event (issuer).
+     * @param target The key to look for.
+     * @param count Number of next hops the issuer wants, best first.
+     */
+    public LookupStepEvent(ChordNode caller, ChordId target, int count)
+    {
+        super();
+        NODE_CALLER = caller;
+        TARGET = target;
+        COUNT = count;
+    }
+}
@@ -20,7 +20,7 @@ package Chord.FingerTable;
 
 import Chord.ChordId;
 import Chord.ChordNode;
-import java.math.BigInteger;
+import Chord.Identifier.Identifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +39,8 @@ public class FingerTable
     private ChordNode mPredecessor;
     private final SuccessorList mSuccessorList;
     private final ChordNode mLocal;
+    private volatile LocationCache mLocationCache;
+    private volatile RingHealth mRingHealth;
     
     /**
      * Constructs a finger table.
@@ -82,6 +84,11 @@ public class FingerTable
     public synchronized void SetPredecessor(ChordNode mPredecessor)
     {
         this.mPredecessor = mPredecessor;
+        
+        RingHealth health = mRingHealth;
+        
+        if(health != null)
+            health.PredecessorChanged(mLocal);
     }
     
     /**
@@ -90,8 +97,7 @@ public class FingerTable
     public void InitFingers()
     {
         //Init the table
-        ChordId selfId = mLocal.PeerID();
-        BigInteger two = new BigInteger("2");
+        Identifier selfId = mLocal.PeerID().GetIdentifierID();
         mFingerTable.clear();
         
         synchronized(mFingerTable)
@@ -100,8 +106,8 @@ public class FingerTable
             {
                 ChordId id = new ChordId(null, null, mBits);
                 ChordId id2 = new ChordId(null, null, mBits);
-                id.SetIdentifierCH((selfId.GetIdentifierCH().add( two.pow(i-1) )).mod(two.pow(mBits)));
-                id2.SetIdentifierCH((selfId.GetIdentifierCH().add( two.pow(i) )).mod(two.pow(mBits)));
+                id.SetIdentifierID(selfId.AddPowerOfTwo(i-1));
+                id2.SetIdentifierID(selfId.AddPowerOfTwo(i));
 
                 mFingerTable.add(i-1, new Finger());
                 mFingerTable.get(i-1).start = id;
@@ -112,6 +118,7 @@ public class FingerTable
         }
         
         mInitialized = true;
+        FingersChanged();
     }
     
     /**
@@ -123,8 +130,19 @@ public class FingerTable
     {
         if(mInitialized)
         {
+            ChordNode old = mFingerTable.get(0).node;
+            
+            //The keys up to a new successor are now at that successor.
+            if(n != null && n != old)
+                InvalidateLocations(mLocal, n);
+            
             mFingerTable.get(0).node = n;
             mSuccessorList.AddNode(n);
+            
+            RingHealth health = mRingHealth;
+            
+            if(health != null)
+                health.FingerChanged(mLocal, 0);
         }
         
         return mInitialized;
@@ -151,6 +169,10 @@ public class FingerTable
     public synchronized boolean RemoveNode(ChordNode n)
     {
         boolean found = false;
+        LocationCache cache = mLocationCache;
+        
+        if(cache != null)
+            cache.Invalidate(n);
         
         for(Finger f : mFingerTable)
         {
@@ -161,10 +183,16 @@ public class FingerTable
             }
         }
         
+        boolean changed = found;
+        
         if(n == mPredecessor)
+        {
             mPredecessor = null;
+            changed = true;
+        }
         
-        mSuccessorList.RemoveNode(n);
+        if(mSuccessorList.RemoveNode(n))
+            changed = true;
         
         if( found && !mSuccessorList.IsEmpty() )
         {
@@ -189,9 +217,44 @@ public class FingerTable
 
         }
         
+        if(changed)
+        {
+            mLocal.GetMaintenance().Changed();
+            FingersChanged();
+            
+            RingHealth health = mRingHealth;
+            
+            if(health != null)
+                health.PredecessorChanged(mLocal);
+        }
+        
         return found;
     }
     
+    /**
+     * Sets the node of a finger.
+     * 
+     * @param index Index of the finger.
+     * @param n The node.
+     * @return True if the node of the finger changed.
+     */
+    public boolean SetFinger(int index, ChordNode n)
+    {
+        Finger f = Get(index);
+        
+        if(f == null || f.node == n)
+            return false;
+        
+        f.node = n;
+        
+        RingHealth health = mRingHealth;
+        
+        if(health != null)
+            health.FingerChanged(mLocal, index);
+        
+        return true;
+    }
+    
     /**
      * 
      * @return The finger table list.
@@ -215,7 +278,7 @@ public class FingerTable
         
         try{
             n = mFingerTable.get(index);
-        }catch(ArrayIndexOutOfBoundsException ex){
+        }catch(IndexOutOfBoundsException ex){
             return null;
         }
         
@@ -231,6 +294,15 @@ public class FingerTable
         return mFingerTable.size();
     }
     
+    /**
+     * 
+     * @return Number of fingers in the table once it is initialized.
+     */
+    public int GetMaxFingers()
+    {
+        return mMaxFingers;
+    }
+    
     /**
      * Clear all finger information in the finger table and the successor list.
      * Both list will become empty.
@@ -240,6 +312,7 @@ public class FingerTable
         mInitialized = false;
         mFingerTable.clear();
         mSuccessorList.Clear();
+        FingersChanged();
     }
     
     /**
@@ -262,6 +335,74 @@ public class FingerTable
         return mSuccessorList.AddAll(arr);
     }
     
+    /**
+     * Sets the cache of where keys were found by earlier lookups.
+     * 
+     * @param cache The cache, null to not cache any locations.
+     */
+    public void SetLocationCache(LocationCache cache)
+    {
+        mLocationCache = cache;
+    }
+    
+    /**
+     * 
+     * @return The location cache, null if locations are not cached.
+     */
+    public LocationCache GetLocationCache()
+    {
+        return mLocationCache;
+    }
+    
+    /**
+     * Removes the cached locations of the keys in (from, to], when they 
+     * have moved to the node to.
+     * 
+     * @param from Node before the interval.
+     * @param to Node that now has the keys.
+     */
+    public void InvalidateLocations(ChordNode from, ChordNode to)
+    {
+        LocationCache cache = mLocationCache;
+        
+        if(cache != null && from != null && to != null)
+        {
+            cache.Invalidate(from.PeerID().GetIdentifierID(), 
+                    to.PeerID().GetIdentifierID());
+        }
+    }
+    
+    /**
+     * Sets the tracker that is told when the routing state changes.
+     * 
+     * @param health The tracker, null to not track this table.
+     */
+    public void SetRingHealth(RingHealth health)
+    {
+        mRingHealth = health;
+        mSuccessorList.SetRingHealth(health);
+    }
+    
+    /**
+     * 
+     * @return The tracker of the routing state, null if not tracked.
+     */
+    public RingHealth GetRingHealth()
+    {
+        return mRingHealth;
+    }
+    
+    /**
+     * Tells the tracker that any finger may have changed.
+     */
+    private void FingersChanged()
+    {
+        RingHealth health = mRingHealth;
+        
+        if(health != null)
+            health.FingersChanged(mLocal);
+    }
+    
     /**
      * 
      * @return the successor-list.
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.FingerTable;
+
+import Chord.ChordNode;
+import Chord.Identifier.Identifier;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of where keys were found by earlier lookups. Every entry tells 
+ * that a node has the keys of a ring interval [from, node], so a lookup of 
+ * a key in that interval can go to the node directly.
+ * 
+ * Entries are learned from lookups that found their key. A node that had 
+ * two keys has every key in between too (its own keys and the replicas of 
+ * its predecessors are one interval ending at the node), so the interval
+ * of a node grows with every key found there.
+ * 
+ * The cache holds a limited number of nodes and drops the least recently 
+ * used one when full. Entries expire after a time to live, and are removed 
+ * when the local node finds out that a node is gone or that the keys of an 
+ * interval moved to another node.
+ * 
+ * @author Simon Edänge
+ */
+public class LocationCache
+{
+    private final int mCapacity;
+    private final long mTtl;
+    private final ChordNode mLocal;
+    
+    //The entries by the position of their node, i.e. the end of the interval.
+    private final TreeMap<Identifier, Location> mByNode;
+    //The same entries, least recently used first.
+    private final LinkedHashMap<Identifier, Location> mRecent;
+    
+    private final AtomicLong mHits;
+    private final AtomicLong mMisses;
+    private final AtomicLong mInvalidated;
+    private final AtomicLong mEvicted;
+    
+    /**
+     * The keys in [from, node] are at node, until the entry expires.
+     */
+    private static class Location
+    {
+        Identifier from;
+        final ChordNode node;
+        long expires;
+        
+        Location(Identifier from, ChordNode node, long expires)
+        {
+            this.from = from;
+            this.node = node;
+            this.expires = expires;
+        }
+        
+        Identifier To()
+        {
+            return node.PeerID().GetIdentifierID();
+        }
+        
+        boolean Covers(Identifier key)
+        {
+            return key.equals(from) || key.equals(To()) 
+                    || Identifier.IsBetween(key, from, To());
+        }
+    }
+    
+    /**
+     * Constructs a location cache.
+     * 
+     * @param capacity Maximum number of nodes in the cache.
+     * @param ttl Time (ms) an entry is used after it was last learned.
+     * @param self The local node.
+     */
+    public LocationCache(int capacity, long ttl, ChordNode self)
+    {
+        if(capacity <= 0 || ttl <= 0)
+            throw new IllegalArgumentException("Invalid location cache");
+        
+        mCapacity = capacity;
+        mTtl = ttl;
+        mLocal = self;
+        mByNode = new TreeMap<>();
+        mRecent = new LinkedHashMap<>(16, 0.75f, true);
+        mHits = new AtomicLong(0);
+        mMisses = new AtomicLong(0);
+        mInvalidated = new AtomicLong(0);
+        mEvicted = new AtomicLong(0);
+    }
+    
+    /**
+     * 
+     * @return Current time (ms) of the simulation.
+     */
+    private long Now()
+    {
+        return mLocal.getKernel().Now();
+    }
+    
+    /**
+     * Looks up where a key is.
+     * 
+     * @param key Ring position of the key.
+     * @return The node that has the key, null if not known.
+     */
+    public synchronized ChordNode Get(Identifier key)
+    {
+        Map.Entry<Identifier, Location> e = mByNode.ceilingEntry(key);
+        
+        //The interval may wrap around zero.
+        if(e == null)
+            e = mByNode.firstEntry();
+        
+        if(e == null || !e.getValue().Covers(key))
+        {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        
+        Location l = e.getValue();
+        
+        if(l.expires <= Now())
+        {
+            Remove(e.getKey());
+            mMisses.incrementAndGet();
+            return null;
+        }
+        
+        mRecent.get(e.getKey());
+        mHits.incrementAndGet();
+        
+        return l.node;
+    }
+    
+    /**
+     * Learns that a node has a key.
+     * 
+     * @param key Ring position of the key.
+     * @param n The node that has the key.
+     */
+    public synchronized void Learn(Identifier key, ChordNode n)
+    {
+        if(key == null || n == null || n == mLocal)
+            return;
+        
+        Identifier to = n.PeerID().GetIdentifierID();
+        
+        //An entry that says the key is somewhere else is wrong.
+        Map.Entry<Identifier, Location> e = mByNode.ceilingEntry(key);
+        
+        if(e == null)
+            e = mByNode.firstEntry();
+        
+        if(e != null && e.getValue().node != n && e.getValue().Covers(key))
+        {
+            Remove(e.getKey());
+            mInvalidated.incrementAndGet();
+        }
+        
+        long expires = Now() + mTtl;
+        Location l = mByNode.get(to);
+        
+        if(l == null || l.expires <= Now())
+        {
+            l = new Location(key, n, expires);
+            mByNode.put(to, l);
+            mRecent.put(to, l);
+        }
+        else
+        {
+            if(!l.Covers(key))
+                l.from = key;
+            
+            l.expires = expires;
+            mRecent.get(to);
+        }
+        
+        while(mRecent.size() > mCapacity)
+        {
+            Iterator<Identifier> it = mRecent.keySet().iterator();
+            Identifier eldest = it.next();
+            it.remove();
+            mByNode.remove(eldest);
+            mEvicted.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Removes the entry of a node, e.g. when it has failed.
+     * 
+     * @param n The node.
+     */
+    public synchronized void Invalidate(ChordNode n)
+    {
+        if(n == null)
+            return;
+        
+        if(Remove(n.PeerID().GetIdentifierID()) != null)
+            mInvalidated.incrementAndGet();
+    }
+    
+    /**
+     * Removes the entries of a ring interval whose keys have moved to
+     * another node.
+     * 
+     * @param from Start of the interval, not included.
+     * @param to End of the interval.
+     */
+    public synchronized void Invalidate(Identifier from, Identifier to)
+    {
+        if(from == null || to == null)
+            return;
+        
+        List<Identifier> stale = new ArrayList<>();
+        
+        for(Map.Entry<Identifier, Location> e : mByNode.entrySet())
+        {
+            Location l = e.getValue();
+            
+            if(Identifier.IsBetweenSuccessor(l.from, from, to)
+                    || Identifier.IsBetweenSuccessor(l.To(), from, to)
+                    || l.Covers(to))
+            {
+                stale.add(e.getKey());
+            }
+        }
+        
+        for(Identifier id : stale)
+            Remove(id);
+        
+        mInvalidated.addAndGet(stale.size());
+    }
+    
+    /**
+     * Removes all entries.
+     */
+    public synchronized void Clear()
+    {
+        mByNode.clear();
+        mRecent.clear();
+    }
+    
+    private Location Remove(Identifier id)
+    {
+        mRecent.remove(id);
+        return mByNode.remove(id);
+    }
+    
+    /**
+     * 
+     * @return Number of nodes in the cache.
+     */
+    public synchronized int GetSize()
+    {
+        return mByNode.size();
+    }
+    
+    /**
+     * 
+     * @return Maximum number of nodes in the cache.
+     */
+    public int GetCapacity()
+    {
+        return mCapacity;
+    }
+    
+    /**
+     * 
+     * @return Time (ms) an entry is used after it was last learned.
+     */
+    public long GetTtl()
+    {
+        return mTtl;
+    }
+    
+    /**
+     * 
+     * @return Number of times a lookup step found its key in the cache.
+     */
+    public long GetHits()
+    {
+        return mHits.get();
+    }
+    
+    /**
+     * 
+     * @return Number of times a lookup step did not find its key in the 
+     * cache, including expired entries.
+     */
+    public long GetMisses()
+    {
+        return mMisses.get();
+    }
+    
+    /**
+     * 
+     * @return Number of entries removed because they were wrong or their 
+     * node was gone.
+     */
+    public long GetInvalidated()
+    {
+        return mInvalidated.get();
+    }
+    
+    /**
+     * 
+     * @return Number of entries dropped because the cache was full.
+     */
+    public long GetEvicted()
+    {
+        return mEvicted.get();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.FingerTable;
+
+import Chord.ChordKey;
+import Chord.ChordNode;
+import Chord.FakeRMICommunication;
+import Process.Log;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends replicas to the successors of a node, without blocking the caller.
+ *
+ * Replicas to add or remove are queued per successor. The first queued
+ * replica schedules a flush on the shared worker pool, so it does not wait
+ * behind the maintenance rounds of the node, and everything queued
+ * before the flush runs is sent as one PutReplicasEvent and one
+ * RemoveReplicasEvent per successor. If the same key is both added and
+ * removed before the flush, the last operation wins.
+ *
+ * @see SuccessorList
+ * @author Simon Edänge
+ */
+class ReplicationDispatcher
+{
+    /**
+     * Replicas waiting to be sent to one successor.
+     */
+    private static final class Pending
+    {
+        final Map<BigInteger, ChordKey> ADD = new LinkedHashMap<>();
+        final Map<BigInteger, ChordKey> REMOVE = new LinkedHashMap<>();
+    }
+
+    private final ChordNode mLocal;
+    private Map<ChordNode, Pending> mPending;
+    private boolean mScheduled;
+
+    /**
+     *
+     * @param self The local node.
+     */
+    ReplicationDispatcher(ChordNode self)
+    {
+        mLocal = self;
+        mPending = new LinkedHashMap<>();
+        mScheduled = false;
+    }
+
+    /**
+     * Queues replicas to be added on a successor.
+     *
+     * @param successor The successor.
+     * @param keys Replicas to add.
+     */
+    void Replicate(ChordNode successor, ChordKey[] keys)
+    {
+        Enqueue(successor, keys, true);
+    }
+
+    /**
+     * Queues replicas to be removed from a successor.
+     *
+     * @param successor The successor.
+     * @param keys Replicas to remove.
+     */
+    void RemoveReplicas(ChordNode successor, ChordKey[] keys)
+    {
+        Enqueue(successor, keys, false);
+    }
+
+    /**
+     *
+     * @return Number of successors with replicas waiting to be sent.
+     */
+    synchronized int GetPendingSuccessors()
+    {
+        return mPending.size();
+    }
+
+    private void Enqueue(ChordNode successor, ChordKey[] keys, boolean add)
+    {
+        if(successor == null || keys == null || keys.length == 0)
+            return;
+
+        boolean schedule = false;
+
+        synchronized(this)
+        {
+            Pending p = mPending.get(successor);
+
+            if(p == null)
+            {
+                p = new Pending();
+                mPending.put(successor, p);
+            }
+
+            for(ChordKey k : keys)
+            {
+                if(k == null)
+                    continue;
+
+                if(add)
+                {
+                    p.REMOVE.remove(k.KEY);
+                    p.ADD.put(k.KEY, k);
+                }
+                else
+                {
+                    p.ADD.remove(k.KEY);
+                    p.REMOVE.put(k.KEY, k);
+                }
+            }
+
+            if(!mScheduled)
+            {
+                mScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if(schedule)
+            ScheduleFlush();
+    }
+
+    private void ScheduleFlush()
+    {
+        try
+        {
+            mLocal.GetWorkers().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Flush();
+                }
+            });
+        }
+        catch(RejectedExecutionException ex)
+        {
+            //The simulation is shutting down, nothing will be sent.
+            synchronized(this)
+            {
+                mPending.clear();
+                mScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Sends everything queued, one batch per successor, until nothing is
+     * left. Only one flush runs at a time, so the batches are sent in the
+     * order they were queued.
+     */
+    private void Flush()
+    {
+        while(true)
+        {
+            Map<ChordNode, Pending> batch;
+
+            synchronized(this)
+            {
+                if(mPending.isEmpty())
+                {
+                    mScheduled = false;
+                    return;
+                }
+
+                batch = mPending;
+                mPending = new LinkedHashMap<>();
+            }
+
+            Send(batch);
+        }
+    }
+
+    private void Send(Map<ChordNode, Pending> batch)
+    {
+        FakeRMICommunication com = mLocal.GetCOM();
+
+        for(Map.Entry<ChordNode, Pending> e : batch.entrySet())
+        {
+            ChordNode successor = e.getKey();
+            Pending p = e.getValue();
+
+            try
+            {
+                if(!p.REMOVE.isEmpty())
+                {
+                    com.RemoveReplicas(false, mLocal.PeerID(),
+                            p.REMOVE.values().toArray(
+                                    new ChordKey[p.REMOVE.size()]),
+                            successor);
+                }
+
+                if(!p.ADD.isEmpty())
+                {
+                    com.PutReplicas(false,
+                            p.ADD.values().toArray(new ChordKey[p.ADD.size()]),
+                            successor);
+                }
+            }
+            catch(RuntimeException ex)
+            {
+                Log.Write(Log.Category.KEYS, Log.Level.ERROR, 
+                        "Replicas to ", successor.PeerID().GetIdentifierCH(),
+                        " were not sent, ", Log.StackTrace(ex));
+            }
+        }
+    }
+}
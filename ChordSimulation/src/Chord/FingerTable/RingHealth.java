@@ -0,0 +1,563 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.FingerTable;
+
+import Chord.ChordNode;
+import Chord.Identifier.Identifier;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of how much of the routing state in a ring is correct, i.e. 
+ * the same as in a ring that has converged. The state of a node has a slot 
+ * for every finger, every successor in the successor-list and the 
+ * predecessor:
+ * 
+ * - A finger is correct if it is the true successor of its start.
+ * - A successor is correct if it is the true successor at that position.
+ * - The predecessor counts if the node has one.
+ * 
+ * The true successors are taken from the ring index. The counts are kept
+ * up to date as the finger tables, successor-lists and the ring change, 
+ * by looking only at the slots a change can affect, so the health of the 
+ * ring can be read in O(1) however large the ring is.
+ * 
+ * When a node joins or leaves the ring at x, the true successor changes for
+ * the identifiers in (p, x], where p is the node before x. Finger i of a 
+ * node n starts at n + 2^i, so only the nodes in (p - 2^i, x - 2^i] have to
+ * check their finger i, and only the successor-lists of the nodes just 
+ * before x can change.
+ * 
+ * @author Simon Edänge
+ */
+public class RingHealth
+{
+    private final NavigableMap<Identifier, ChordNode> mRing;
+    private final ConcurrentHashMap<ChordNode, NodeHealth> mNodes;
+    private final AtomicInteger mMaxFingers;
+    private final AtomicInteger mMaxSuccessors;
+    
+    private final AtomicLong mFingerSlots;
+    private final AtomicLong mSuccessorSlots;
+    private final AtomicLong mCorrectFingers;
+    private final AtomicLong mCorrectSuccessors;
+    private final AtomicLong mPredecessors;
+    
+    /**
+     * The slots of one node that are correct.
+     */
+    private static class NodeHealth
+    {
+        final ChordNode node;
+        final boolean[] fingers;
+        final int successors;
+        int correctSuccessors;
+        boolean predecessor;
+        boolean removed;
+        
+        NodeHealth(ChordNode node, int fingers, int successors)
+        {
+            this.node = node;
+            this.fingers = new boolean[fingers];
+            this.successors = successors;
+            this.correctSuccessors = 0;
+            this.predecessor = false;
+            this.removed = false;
+        }
+    }
+    
+    /**
+     * Constructs a ring health tracker.
+     * 
+     * @param ring The ring index, the nodes by identifier. It is only read.
+     */
+    public RingHealth(NavigableMap<Identifier, ChordNode> ring)
+    {
+        mRing = ring;
+        mNodes = new ConcurrentHashMap<>();
+        mMaxFingers = new AtomicInteger(0);
+        mMaxSuccessors = new AtomicInteger(0);
+        mFingerSlots = new AtomicLong(0);
+        mSuccessorSlots = new AtomicLong(0);
+        mCorrectFingers = new AtomicLong(0);
+        mCorrectSuccessors = new AtomicLong(0);
+        mPredecessors = new AtomicLong(0);
+    }
+    
+    /**
+     * Starts tracking a node. Must be called after the node was added to 
+     * the ring index.
+     * 
+     * @param n The node.
+     */
+    public void Join(ChordNode n)
+    {
+        FingerTable table = n.GetFingerTable();
+        int fingers = table.GetMaxFingers();
+        int successors = table.GetSuccessorList().GetMaxSuccesors();
+        NodeHealth h = new NodeHealth(n, fingers, successors);
+        
+        if(mNodes.putIfAbsent(n, h) != null)
+            return;
+        
+        Raise(mMaxFingers, fingers);
+        Raise(mMaxSuccessors, successors);
+        mFingerSlots.addAndGet(fingers);
+        mSuccessorSlots.addAndGet(successors);
+        
+        synchronized(h)
+        {
+            EvaluateAll(h);
+        }
+        
+        RingChanged(n.PeerID().GetIdentifierID());
+    }
+    
+    /**
+     * Stops tracking a node. Must be called after the node was removed from
+     * the ring index.
+     * 
+     * @param n The node.
+     */
+    public void Leave(ChordNode n)
+    {
+        NodeHealth h = mNodes.remove(n);
+        
+        if(h == null)
+            return;
+        
+        synchronized(h)
+        {
+            h.removed = true;
+            
+            for(int i = 0; i < h.fingers.length; i++)
+            {
+                if(h.fingers[i])
+                    mCorrectFingers.decrementAndGet();
+            }
+            
+            mCorrectSuccessors.addAndGet(-h.correctSuccessors);
+            
+            if(h.predecessor)
+                mPredecessors.decrementAndGet();
+        }
+        
+        mFingerSlots.addAndGet(-h.fingers.length);
+        mSuccessorSlots.addAndGet(-h.successors);
+        
+        RingChanged(n.PeerID().GetIdentifierID());
+    }
+    
+    /**
+     * Tells that a finger of a node changed.
+     * 
+     * @param n The node.
+     * @param index Index of the finger.
+     */
+    public void FingerChanged(ChordNode n, int index)
+    {
+        NodeHealth h = mNodes.get(n);
+        
+        if(h == null)
+            return;
+        
+        synchronized(h)
+        {
+            if(!h.removed && index >= 0 && index < h.fingers.length)
+                EvaluateFinger(h, index, null);
+        }
+    }
+    
+    /**
+     * Tells that any of the fingers of a node may have changed.
+     * 
+     * @param n The node.
+     */
+    public void FingersChanged(ChordNode n)
+    {
+        NodeHealth h = mNodes.get(n);
+        
+        if(h == null)
+            return;
+        
+        synchronized(h)
+        {
+            if(!h.removed)
+                EvaluateFingers(h);
+        }
+    }
+    
+    /**
+     * Tells that the successor-list of a node changed.
+     * 
+     * @param n The node.
+     */
+    public void SuccessorsChanged(ChordNode n)
+    {
+        NodeHealth h = mNodes.get(n);
+        
+        if(h == null)
+            return;
+        
+        synchronized(h)
+        {
+            if(!h.removed)
+                EvaluateSuccessors(h);
+        }
+    }
+    
+    /**
+     * Tells that the predecessor of a node changed.
+     * 
+     * @param n The node.
+     */
+    public void PredecessorChanged(ChordNode n)
+    {
+        NodeHealth h = mNodes.get(n);
+        
+        if(h == null)
+            return;
+        
+        synchronized(h)
+        {
+            if(!h.removed)
+                EvaluatePredecessor(h);
+        }
+    }
+    
+    /**
+     * 
+     * @return The part of all slots that are correct, between 0 and 1. 
+     * 0 if no node is tracked.
+     */
+    public double GetHealth()
+    {
+        long slots = mFingerSlots.get() + mSuccessorSlots.get() 
+                + mNodes.size();
+        
+        if(slots <= 0)
+            return 0;
+        
+        return (double)(mCorrectFingers.get() + mCorrectSuccessors.get() 
+                + mPredecessors.get()) / slots;
+    }
+    
+    /**
+     * 
+     * @return The part of the fingers that are correct, between 0 and 1.
+     */
+    public double GetFingerHealth()
+    {
+        return Part(mCorrectFingers.get(), mFingerSlots.get());
+    }
+    
+    /**
+     * 
+     * @return The part of the successors that are correct, between 0 and 1.
+     */
+    public double GetSuccessorHealth()
+    {
+        return Part(mCorrectSuccessors.get(), mSuccessorSlots.get());
+    }
+    
+    /**
+     * 
+     * @return The part of the nodes that have a predecessor, between 0 
+     * and 1.
+     */
+    public double GetPredecessorHealth()
+    {
+        return Part(mPredecessors.get(), mNodes.size());
+    }
+    
+    /**
+     * 
+     * @return Number of correct fingers in the ring.
+     */
+    public long GetCorrectFingers()
+    {
+        return mCorrectFingers.get();
+    }
+    
+    /**
+     * 
+     * @return Number of correct successors in the ring.
+     */
+    public long GetCorrectSuccessors()
+    {
+        return mCorrectSuccessors.get();
+    }
+    
+    /**
+     * 
+     * @return Number of nodes in the ring that have a predecessor.
+     */
+    public long GetPredecessors()
+    {
+        return mPredecessors.get();
+    }
+    
+    /**
+     * 
+     * @return Number of tracked nodes.
+     */
+    public int GetSize()
+    {
+        return mNodes.size();
+    }
+    
+    private static double Part(long count, long total)
+    {
+        return total <= 0 ? 0 : (double)count / total;
+    }
+    
+    private static void Raise(AtomicInteger max, int value)
+    {
+        int old = max.get();
+        
+        while(value > old && !max.compareAndSet(old, value))
+            old = max.get();
+    }
+    
+    /**
+     * Checks the slots whose true node changed, after a node joined or left
+     * the ring at an identifier.
+     * 
+     * @param x Identifier of the node.
+     */
+    private void RingChanged(Identifier x)
+    {
+        Identifier p = Before(x);
+        
+        //In a ring smaller than a successor-list, every slot may have changed.
+        if(p == null || p.equals(x) 
+                || mNodes.size() <= mMaxSuccessors.get() + 1)
+        {
+            for(NodeHealth h : mNodes.values())
+            {
+                synchronized(h)
+                {
+                    if(!h.removed)
+                        EvaluateAll(h);
+                }
+            }
+            
+            return;
+        }
+        
+        int fingers = mMaxFingers.get();
+        
+        for(int i = 0; i < fingers; i++)
+        {
+            Identifier from = p.SubtractPowerOfTwo(i);
+            Identifier to = x.SubtractPowerOfTwo(i);
+            
+            if(from.compareTo(to) < 0)
+            {
+                EvaluateFingers(mRing.subMap(from, false, to, true), i);
+            }
+            else
+            {
+                //The interval wraps around zero.
+                EvaluateFingers(mRing.tailMap(from, false), i);
+                EvaluateFingers(mRing.headMap(to, true), i);
+            }
+        }
+        
+        //The successor-lists that reach x are those of the nodes before it.
+        Identifier id = x;
+        
+        for(int i = 0; i < mMaxSuccessors.get(); i++)
+        {
+            Map.Entry<Identifier, ChordNode> e = mRing.lowerEntry(id);
+            
+            if(e == null)
+                e = mRing.lastEntry();
+            
+            if(e == null)
+                break;
+            
+            SuccessorsChanged(e.getValue());
+            id = e.getKey();
+        }
+    }
+    
+    private void EvaluateFingers(NavigableMap<Identifier, ChordNode> nodes, 
+            int index)
+    {
+        for(ChordNode n : nodes.values())
+            FingerChanged(n, index);
+    }
+    
+    /**
+     * Checks all slots of a node. The caller holds the lock of h.
+     */
+    private void EvaluateAll(NodeHealth h)
+    {
+        EvaluateFingers(h);
+        EvaluateSuccessors(h);
+        EvaluatePredecessor(h);
+    }
+    
+    /**
+     * Checks all fingers of a node. The caller holds the lock of h.
+     */
+    private void EvaluateFingers(NodeHealth h)
+    {
+        Identifier before = Before(h.node.PeerID().GetIdentifierID());
+        
+        for(int i = 0; i < h.fingers.length; i++)
+            EvaluateFinger(h, i, before);
+    }
+    
+    /**
+     * Checks one finger of a node. The caller holds the lock of h.
+     * 
+     * @param h The node.
+     * @param index Index of the finger.
+     * @param before Identifier of the node before h in the ring, null to 
+     * look it up when needed.
+     */
+    private void EvaluateFinger(NodeHealth h, int index, Identifier before)
+    {
+        boolean correct = false;
+        Finger f = h.node.GetFingerTable().Get(index);
+        
+        if(f != null && f.start != null)
+        {
+            Identifier start = f.start.GetIdentifierID();
+            ChordNode node = f.node;
+            
+            if(node != null)
+            {
+                correct = node == Successor(start);
+            }
+            else
+            {
+                //A finger that would point to the node itself is left empty,
+                //that is right if the start is in (before, node].
+                Identifier self = h.node.PeerID().GetIdentifierID();
+                
+                if(before == null)
+                    before = Before(self);
+                
+                correct = before == null || before.equals(self) 
+                        || Identifier.IsBetweenSuccessor(start, before, self);
+            }
+        }
+        
+        if(correct != h.fingers[index])
+        {
+            h.fingers[index] = correct;
+            mCorrectFingers.addAndGet(correct ? 1 : -1);
+        }
+    }
+    
+    /**
+     * Checks the successor-list of a node. The caller holds the lock of h.
+     */
+    private void EvaluateSuccessors(NodeHealth h)
+    {
+        SuccessorList list = h.node.GetFingerTable().GetSuccessorList();
+        Identifier self = h.node.PeerID().GetIdentifierID();
+        Identifier id = self;
+        boolean wrapped = false;
+        int correct = 0;
+        
+        for(int i = 0; i < h.successors; i++)
+        {
+            ChordNode s = list.Get(i);
+            
+            if(!wrapped)
+            {
+                Map.Entry<Identifier, ChordNode> e = mRing.higherEntry(id);
+                
+                if(e == null)
+                    e = mRing.firstEntry();
+                
+                if(e == null || e.getKey().equals(self))
+                    wrapped = true;
+                else
+                    id = e.getKey();
+                
+                if(!wrapped && s == e.getValue())
+                    correct++;
+            }
+            
+            //A ring smaller than the list leaves the rest of it empty.
+            if(wrapped && s == null)
+                correct++;
+        }
+        
+        if(correct != h.correctSuccessors)
+        {
+            mCorrectSuccessors.addAndGet(correct - h.correctSuccessors);
+            h.correctSuccessors = correct;
+        }
+    }
+    
+    /**
+     * Checks the predecessor of a node. The caller holds the lock of h.
+     */
+    private void EvaluatePredecessor(NodeHealth h)
+    {
+        boolean present = h.node.GetFingerTable().GetPredecessor() != null;
+        
+        if(present != h.predecessor)
+        {
+            h.predecessor = present;
+            mPredecessors.addAndGet(present ? 1 : -1);
+        }
+    }
+    
+    /**
+     * 
+     * @param id An identifier.
+     * @return Identifier of the node before id in the ring, null if the 
+     * ring is empty.
+     */
+    private Identifier Before(Identifier id)
+    {
+        Map.Entry<Identifier, ChordNode> e = mRing.lowerEntry(id);
+        
+        if(e == null)
+            e = mRing.lastEntry();
+        
+        return e == null ? null : e.getKey();
+    }
+    
+    /**
+     * 
+     * @param id An identifier.
+     * @return The true successor of the identifier, null if the ring is 
+     * empty.
+     */
+    private ChordNode Successor(Identifier id)
+    {
+        Map.Entry<Identifier, ChordNode> e = mRing.ceilingEntry(id);
+        
+        if(e == null)
+            e = mRing.firstEntry();
+        
+        return e == null ? null : e.getValue();
+    }
+}
@@ -22,9 +22,9 @@ import Chord.ChordId;
 import Chord.ChordKey;
 import Chord.ChordNode;
 import Chord.Entries;
-import Chord.FakeRMICommunication;
 import Chord.FakeRMIEvents.ReturnRMIevents.PutReplicasEventRE;
 import Chord.FakeRMIEvents.ReturnRMIevents.RemoveReplicasEventRE;
+import Process.Log;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -46,6 +46,8 @@ public class SuccessorList
     private final int MAX_SUCCESSORS;
     private final ChordNode mLocal;
     private final Entries mEntries;
+    private final ReplicationDispatcher mDispatcher;
+    private volatile RingHealth mRingHealth;
 
     /**
      * Construct a successor-list.
@@ -60,6 +62,7 @@ public class SuccessorList
         MAX_SUCCESSORS = maxSuccessors;
         mLocal = self;
         mEntries = new Entries(self);
+        mDispatcher = new ReplicationDispatcher(self);
     }
     
     /**
@@ -102,70 +105,33 @@ public class SuccessorList
     
     /**
      * Replicate the provided keys on to all successors in the list.
+     * The replicas are sent in batches by the replication dispatcher.
      * 
      * @param keys Replicas to be added.
      */
     public void InvokeReplicateAll(final ChordKey[] keys)
     {
-        final FakeRMICommunication com = mLocal.GetCOM();
         //Invoke replication on all successors 
         synchronized(mSuccessorList)
         {
             for (final ChordNode successor : mSuccessorList) 
-            {
-                    Thread t = new Thread(new Runnable()
-                    {
-                            @Override
-                            public void run() 
-                            {
-                                    try {
-                                            com.PutReplicas(
-                                                    false, 
-                                                    keys, 
-                                                    successor);
-
-                                    } catch (Exception e) {
-                                            // do nothing
-                                    }
-                            }
-                    });
-                    t.start();
-            }
+                mDispatcher.Replicate(successor, keys);
         }
     }
     
     /**
      * Remove all replicas from all successors in the list.
+     * The removals are sent in batches by the replication dispatcher.
      * 
      * @param keys Replicas be removed.
      */
     public void InvokeRemoveReplicateAll(final ChordKey[] keys)
     {
-        final FakeRMICommunication com = mLocal.GetCOM();
         //Invoke replication on all successors 
         synchronized(mSuccessorList)
         {
             for (final ChordNode successor : mSuccessorList) 
-            {
-                    Thread t = new Thread(new Runnable()
-                    {
-                            @Override
-                            public void run() 
-                            {
-                                    try {
-                                        com.RemoveReplicas(
-                                                false, 
-                                                mLocal.PeerID(),
-                                                keys, 
-                                                successor);
-
-                                    } catch (Exception e) {
-                                            // do nothing
-                                    }
-                            }
-                    });
-                    t.start();
-            }
+                mDispatcher.RemoveReplicas(successor, keys);
         }
     }
     
@@ -183,9 +149,10 @@ public class SuccessorList
 
         if(ret == null || ret.MESSAGE_REACHED == false)
         {
-            System.out.println(mLocal.PeerID().GetIdentifierCH()
-                    + " Could not replicate keys to "
-                    + n.PeerID().GetIdentifierCH());
+            Log.Write(Log.Category.KEYS, Log.Level.INFO, 
+                    mLocal.PeerID().GetIdentifierCH(), 
+                    " Could not replicate keys to ", 
+                    n.PeerID().GetIdentifierCH());
             
             mLocal.GetFingerTable().RemoveNode(n);
             
@@ -211,9 +178,10 @@ public class SuccessorList
 
         if(ret2 == null || !ret2.REMOVED)
         {
-            System.out.println(mLocal.PeerID().GetIdentifierCH()
-            + "Could not delete replicate on "
-            + n.PeerID().GetIdentifierCH());
+            Log.Write(Log.Category.KEYS, Log.Level.INFO, 
+                    mLocal.PeerID().GetIdentifierCH(), 
+                    "Could not delete replicate on ", 
+                    n.PeerID().GetIdentifierCH());
             
             return false;
         }
@@ -288,7 +256,12 @@ public class SuccessorList
         ChordKey temp[] = new ChordKey[entriesToReplicate.size()];
         
         if( !Replicate(entriesToReplicate.toArray(temp), n) )
+        {
+            if(inserted)
+                Changed();
+            
             return false;
+        }
 
         if(!inserted)
             mSuccessorList.add(n);
@@ -306,6 +279,8 @@ public class SuccessorList
                     nodeToDelete);
         }
         
+        Changed();
+        
         return true;
     }
     
@@ -347,12 +322,57 @@ public class SuccessorList
         
     }
     
+    /**
+     * Replaces the successors, without replicating any keys to them.
+     * Used when a whole ring is created at once and the replicas are placed
+     * directly.
+     * 
+     * @param successors The successors, closest first.
+     */
+    public void SetAll(ChordNode[] successors)
+    {
+        synchronized(mSuccessorList)
+        {
+            mSuccessorList.clear();
+            
+            for(ChordNode n : successors)
+            {
+                if(mSuccessorList.size() < MAX_SUCCESSORS && CanAddNode(n))
+                    mSuccessorList.add(n);
+            }
+        }
+        
+        Changed();
+    }
+    
     /**
      * Clear the successor-list, removing all successors.
      */
     public void Clear()
     {
         mSuccessorList.clear();
+        Changed();
+    }
+    
+    /**
+     * Sets the tracker that is told when the list changes.
+     * 
+     * @param health The tracker, null to not track this list.
+     */
+    void SetRingHealth(RingHealth health)
+    {
+        mRingHealth = health;
+    }
+    
+    /**
+     * Tells the tracker that the list changed.
+     */
+    private void Changed()
+    {
+        RingHealth health = mRingHealth;
+        
+        if(health != null)
+            health.SuccessorsChanged(mLocal);
     }
     
     /**
@@ -371,6 +391,8 @@ public class SuccessorList
         if( !result )
             return false;
         
+        Changed();
+        
         //Fill Holes in successor list
         List<Finger> fingers = this.mLocal.GetFingerTable().GetTable();
 
@@ -29,6 +29,20 @@ import java.util.Random;
 public class IDGenerator
 {
     private static int ID = 1;
+    private static final Random RANDOM = new Random();
+    
+    /**
+     * Seeds the IP address generator, so a simulation can be repeated.
+     * 
+     * @param seed The seed.
+     */
+    public static void SetSeed(long seed)
+    {
+        synchronized(RANDOM)
+        {
+            RANDOM.setSeed(seed);
+        }
+    }
     
     /**
      * Incremented every call.
@@ -46,11 +60,13 @@ public class IDGenerator
      */
     public static String GenerateIP()
     {
-        Random r = new Random();
-        return r.nextInt(256) 
-                + "." 
-                + r.nextInt(256) 
-                + "." + r.nextInt(256) 
-                + "." + r.nextInt(256);
+        synchronized(RANDOM)
+        {
+            return RANDOM.nextInt(256) 
+                    + "." 
+                    + RANDOM.nextInt(256) 
+                    + "." + RANDOM.nextInt(256) 
+                    + "." + RANDOM.nextInt(256);
+        }
     }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Identifier;
+
+import java.math.BigInteger;
+
+/**
+ * An immutable, fixed width, unsigned position on a Chord ring with 2^m
+ * positions. It replaces BigInteger for the ring arithmetic, which is
+ * done on primitive longs.
+ *
+ * Use Create to get the implementation suited for the bit width:
+ * LongIdentifier for m &lt;= 64, WideIdentifier for larger rings.
+ *
+ * @author Simon Edänge
+ */
+public abstract class Identifier implements Comparable<Identifier>
+{
+    /**
+     * Largest supported bit width, the size of a sha1 hash.
+     */
+    public static final int MAX_BITS = 160;
+
+    private final int mBits;
+    private BigInteger mBigInteger;
+
+    /**
+     *
+     * @param bits Bit width of the ring.
+     */
+    Identifier(int bits)
+    {
+        if(bits <= 0 || bits > MAX_BITS)
+            throw new IllegalArgumentException("Bits must be in 1.." + MAX_BITS);
+
+        mBits = bits;
+        mBigInteger = null;
+    }
+
+    /**
+     * Creates an identifier from a BigInteger. The value is reduced
+     * modulo 2^bits.
+     *
+     * @param value The value.
+     * @param bits Bit width of the ring.
+     * @return The identifier, null if value is null.
+     */
+    public static Identifier Create(BigInteger value, int bits)
+    {
+        if(value == null)
+            return null;
+
+        if(bits <= LongIdentifier.BITS)
+            return new LongIdentifier(value.longValue(), bits);
+
+        return new WideIdentifier(value, bits);
+    }
+
+    /**
+     * Creates an identifier from raw hash bytes, without going through a
+     * String or BigInteger. The bytes are read as a big endian unsigned
+     * number, reduced modulo 2^bits (the lowest bits are kept).
+     *
+     * @param digest The hash bytes.
+     * @param length Number of bytes used in digest.
+     * @param bits Bit width of the ring.
+     * @return The identifier.
+     */
+    public static Identifier FromDigest(byte[] digest, int length, int bits)
+    {
+        if(bits <= LongIdentifier.BITS)
+            return new LongIdentifier(ReadWord(digest, length, 0), bits);
+
+        long[] words = new long[WideIdentifier.Words(bits)];
+
+        for(int i = 0; i < words.length; i++)
+            words[i] = ReadWord(digest, length, i);
+
+        return new WideIdentifier(words, bits);
+    }
+
+    /**
+     * Reads one 64 bit word from a big endian byte array. Word 0 is the
+     * least significant one. Missing bytes are read as zero.
+     */
+    private static long ReadWord(byte[] bytes, int length, int word)
+    {
+        int end = length - word * 8;
+        int start = Math.max(0, end - 8);
+        long w = 0;
+
+        for(int i = start; i < end; i++)
+            w = (w << 8) | (bytes[i] & 0xFF);
+
+        return w;
+    }
+
+    /**
+     *
+     * @return Bit width of the ring.
+     */
+    public final int Bits()
+    {
+        return mBits;
+    }
+
+    /**
+     * The value as a BigInteger. It is created once and then cached.
+     *
+     * @return The value.
+     */
+    public final BigInteger ToBigInteger()
+    {
+        BigInteger b = mBigInteger;
+
+        if(b == null)
+        {
+            b = CreateBigInteger();
+            mBigInteger = b;
+        }
+
+        return b;
+    }
+
+    /**
+     *
+     * @return A new BigInteger holding the value.
+     */
+    abstract BigInteger CreateBigInteger();
+
+    /**
+     * One 64 bit word of the value, e.g. to write it without a BigInteger.
+     *
+     * @param index Index of the word, 0 is the least significant one.
+     * @return The word, 0 above the value.
+     */
+    public abstract long GetWord(int index);
+
+    /**
+     * Computes (this + 2^exponent) mod 2^bits. Used to find the start of
+     * fingers.
+     *
+     * @param exponent The exponent.
+     * @return The resulting identifier.
+     */
+    public abstract Identifier AddPowerOfTwo(int exponent);
+
+    /**
+     * Computes (this - 2^exponent) mod 2^bits. Used to find the nodes with
+     * a finger starting at a given identifier.
+     *
+     * @param exponent The exponent.
+     * @return The resulting identifier.
+     */
+    public abstract Identifier SubtractPowerOfTwo(int exponent);
+
+    /**
+     * Compares two identifiers of the same kind, unsigned.
+     *
+     * @param o Identifier to compare with.
+     * @return Negative, zero or positive.
+     */
+    abstract int CompareSameKind(Identifier o);
+
+    @Override
+    public final int compareTo(Identifier o)
+    {
+        if(o == null)
+            return 1;
+
+        if(o.getClass() == getClass())
+            return CompareSameKind(o);
+
+        return ToBigInteger().compareTo(o.ToBigInteger());
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(this == o)
+            return true;
+
+        if( !(o instanceof Identifier) )
+            return false;
+
+        return compareTo((Identifier)o) == 0;
+    }
+
+    /**
+     * Equal identifiers have the same hash, also when they are of different
+     * kinds. The hash is computed from the words of the value, without a
+     * BigInteger.
+     */
+    @Override
+    public abstract int hashCode();
+
+    @Override
+    public String toString()
+    {
+        return ToBigInteger().toString();
+    }
+
+    /**
+     * Checks if id is in the open interval (from, to) on the ring.
+     * If from equals to, the interval is empty.
+     *
+     * @param id Identifier to check.
+     * @param from Start of the interval.
+     * @param to End of the interval.
+     * @return True if between.
+     */
+    public static boolean IsBetween(Identifier id, Identifier from, Identifier to)
+    {
+        int fromTo = from.compareTo(to);
+
+        if(fromTo == 0)
+            return false;
+
+        int idFrom = id.compareTo(from);
+        int idTo = id.compareTo(to);
+
+        if(fromTo < 0)
+            return idFrom > 0 && idTo < 0;
+
+        return idFrom > 0 || idTo < 0;
+    }
+
+    /**
+     * Checks if id is in the open interval (from, to) on the ring.
+     * If from equals to, the interval is the whole ring.
+     *
+     * @param id Identifier to check.
+     * @param from Start of the interval.
+     * @param to End of the interval.
+     * @return True if between.
+     */
+    public static boolean IsBetweenNotify(Identifier id, Identifier from, Identifier to)
+    {
+        int fromTo = from.compareTo(to);
+
+        if(fromTo == 0)
+            return true;
+
+        int idFrom = id.compareTo(from);
+        int idTo = id.compareTo(to);
+
+        if(fromTo < 0)
+            return idFrom > 0 && idTo < 0;
+
+        return idFrom > 0 || idTo < 0;
+    }
+
+    /**
+     * Checks if id is in the half open interval (from, to] on the ring.
+     * If from equals to, every id except from is in the interval.
+     *
+     * @param id Identifier to check.
+     * @param from Start of the interval.
+     * @param to End of the interval.
+     * @return True if between.
+     */
+    public static boolean IsBetweenSuccessor(Identifier id, Identifier from, Identifier to)
+    {
+        int fromTo = from.compareTo(to);
+        int idFrom = id.compareTo(from);
+
+        if(fromTo == 0)
+            return idFrom != 0;
+
+        int idTo = id.compareTo(to);
+
+        if(fromTo < 0)
+            return idFrom > 0 && idTo <= 0;
+
+        return idFrom > 0 || idTo <= 0;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Identifier;
+
+import java.math.BigInteger;
+
+/**
+ * An identifier for rings with m &lt;= 64 bits, stored in one unsigned long.
+ *
+ * @see Identifier
+ * @author Simon Edänge
+ */
+public final class LongIdentifier extends Identifier
+{
+    /**
+     * Largest bit width this identifier can hold.
+     */
+    public static final int BITS = 64;
+
+    private final long mValue;
+
+    /**
+     * Constructs an identifier. The value is reduced modulo 2^bits.
+     *
+     * @param value The value, read as unsigned.
+     * @param bits Bit width of the ring.
+     */
+    public LongIdentifier(long value, int bits)
+    {
+        super(bits);
+
+        if(bits > BITS)
+            throw new IllegalArgumentException("Bits must be <= " + BITS);
+
+        mValue = value & Mask(bits);
+    }
+
+    /**
+     *
+     * @return The value, to be read as unsigned.
+     */
+    public long GetValue()
+    {
+        return mValue;
+    }
+
+    /**
+     *
+     * @param bits Bit width.
+     * @return A mask with the lowest bits set.
+     */
+    static long Mask(int bits)
+    {
+        return bits >= BITS ? -1L : (1L << bits) - 1;
+    }
+
+    @Override
+    BigInteger CreateBigInteger()
+    {
+        if(mValue >= 0)
+            return BigInteger.valueOf(mValue);
+
+        return BigInteger.valueOf(mValue >>> 1).shiftLeft(1)
+                .or(BigInteger.valueOf(mValue & 1));
+    }
+
+    @Override
+    public Identifier AddPowerOfTwo(int exponent)
+    {
+        if(exponent >= Bits())
+            return this;
+
+        return new LongIdentifier(mValue + (1L << exponent), Bits());
+    }
+
+    @Override
+    public Identifier SubtractPowerOfTwo(int exponent)
+    {
+        if(exponent >= Bits())
+            return this;
+
+        return new LongIdentifier(mValue - (1L << exponent), Bits());
+    }
+
+    @Override
+    public long GetWord(int index)
+    {
+        return index == 0 ? mValue : 0;
+    }
+
+    @Override
+    int CompareSameKind(Identifier o)
+    {
+        return Long.compareUnsigned(mValue, ((LongIdentifier)o).mValue);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(o instanceof LongIdentifier)
+            return mValue == ((LongIdentifier)o).mValue;
+
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(mValue);
+    }
+}
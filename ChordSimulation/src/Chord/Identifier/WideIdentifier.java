@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Identifier;
+
+import java.math.BigInteger;
+
+/**
+ * An identifier for rings with 64 &lt; m &lt;= 160 bits, stored in two or
+ * three unsigned longs.
+ *
+ * @see Identifier
+ * @author Simon Edänge
+ */
+public final class WideIdentifier extends Identifier
+{
+    //Least significant word first.
+    private final long[] mWords;
+
+    /**
+     * Constructs an identifier. The value is reduced modulo 2^bits.
+     *
+     * @param value The value.
+     * @param bits Bit width of the ring.
+     */
+    public WideIdentifier(BigInteger value, int bits)
+    {
+        super(bits);
+
+        mWords = new long[Words(bits)];
+
+        for(int i = 0; i < mWords.length; i++)
+            mWords[i] = value.shiftRight(i * LongIdentifier.BITS).longValue();
+
+        MaskTop(mWords, bits);
+    }
+
+    /**
+     * Constructs an identifier from words. The array is owned by the
+     * identifier afterwards.
+     *
+     * @param words The words, least significant first.
+     * @param bits Bit width of the ring.
+     */
+    WideIdentifier(long[] words, int bits)
+    {
+        super(bits);
+
+        if(words.length != Words(bits))
+            throw new IllegalArgumentException("Wrong number of words");
+
+        mWords = words;
+        MaskTop(mWords, bits);
+    }
+
+    /**
+     *
+     * @param bits Bit width.
+     * @return Number of longs needed to store the bits.
+     */
+    static int Words(int bits)
+    {
+        return (bits + LongIdentifier.BITS - 1) / LongIdentifier.BITS;
+    }
+
+    private static void MaskTop(long[] words, int bits)
+    {
+        int top = bits - (words.length - 1) * LongIdentifier.BITS;
+        words[words.length - 1] &= LongIdentifier.Mask(top);
+    }
+
+    @Override
+    BigInteger CreateBigInteger()
+    {
+        byte[] bytes = new byte[mWords.length * 8];
+
+        for(int i = 0; i < mWords.length; i++)
+        {
+            long w = mWords[mWords.length - 1 - i];
+
+            for(int j = 0; j < 8; j++)
+                bytes[i * 8 + j] = (byte)(w >>> (56 - j * 8));
+        }
+
+        return new BigInteger(1, bytes);
+    }
+
+    @Override
+    public Identifier AddPowerOfTwo(int exponent)
+    {
+        if(exponent >= Bits())
+            return this;
+
+        long[] words = mWords.clone();
+        int i = exponent / LongIdentifier.BITS;
+        long add = 1L << (exponent % LongIdentifier.BITS);
+
+        while(i < words.length && add != 0)
+        {
+            long sum = words[i] + add;
+
+            //Carry if the unsigned sum wrapped around.
+            add = Long.compareUnsigned(sum, words[i]) < 0 ? 1 : 0;
+            words[i] = sum;
+            i++;
+        }
+
+        return new WideIdentifier(words, Bits());
+    }
+
+    @Override
+    public Identifier SubtractPowerOfTwo(int exponent)
+    {
+        if(exponent >= Bits())
+            return this;
+
+        long[] words = mWords.clone();
+        int i = exponent / LongIdentifier.BITS;
+        long sub = 1L << (exponent % LongIdentifier.BITS);
+
+        while(i < words.length && sub != 0)
+        {
+            long diff = words[i] - sub;
+
+            //Borrow if the unsigned difference wrapped around.
+            sub = Long.compareUnsigned(diff, words[i]) > 0 ? 1 : 0;
+            words[i] = diff;
+            i++;
+        }
+
+        return new WideIdentifier(words, Bits());
+    }
+
+    @Override
+    public long GetWord(int index)
+    {
+        return index < mWords.length ? mWords[index] : 0;
+    }
+
+    @Override
+    int CompareSameKind(Identifier o)
+    {
+        long[] other = ((WideIdentifier)o).mWords;
+
+        if(other.length != mWords.length)
+            return mWords.length < other.length ? -1 : 1;
+
+        for(int i = mWords.length - 1; i >= 0; i--)
+        {
+            if(mWords[i] != other[i])
+                return Long.compareUnsigned(mWords[i], other[i]);
+        }
+
+        return 0;
+    }
+
+    /**
+     * The zero words above the value do not change the hash, so a value
+     * that fits in one word hashes as the equal LongIdentifier.
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = 0;
+
+        for(int i = mWords.length - 1; i >= 0; i--)
+            hash = 31 * hash + Long.hashCode(mWords[i]);
+
+        return hash;
+    }
+}
@@ -20,40 +20,104 @@ package Chord.Manager;
 
 import Chord.ChordKey;
 import Chord.ChordNode;
+import Process.Log;
 import Statistics.HopData;
 import Statistics.HopLookupMeasure;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class is used to perform lookup simulation tests on the system.
  * 
+ * The tests can be run by several workers at the same time. Every worker
+ * runs one lookup at a time and waits a pause between its lookups.
+ * 
  * @author Simon Edänge
  */
 public class ChordLookupSimulation extends Thread
 {
     private final CircleManager mCircle;
-    private final ArrayList<ChordNode> mNodes;
     private final long mTests;
+    private final int mConcurrency;
+    private final long mSeed;
+    private final long mPause;
     private final Random mRand;
     private final HopLookupMeasure mHopMeasureStatistics;
-    private boolean mKeepAlive;
+    private final AtomicLong mStarted;
+    private final AtomicLong mRetried;
+    private volatile boolean mKeepAlive;
+    private volatile LookupMode mMode;
+    private volatile int mAlpha;
+    
+    private static final String NL = System.lineSeparator();
     
     /**
      * @param circle The Chord circle, containing all the nodes.
      * @param tests How many lookup tests to be performed.
      */
     public ChordLookupSimulation(final CircleManager circle, final long tests)
+    {
+        this(circle, tests, 1, System.currentTimeMillis(), 100, null);
+    }
+    
+    /**
+     * @param circle The Chord circle, containing all the nodes.
+     * @param tests How many lookup tests to be performed.
+     * @param concurrency Number of workers performing lookups at the same 
+     * time.
+     * @param seed Seed used when choosing requesters and targets.
+     * @param pause Time (ms) a worker waits between two lookups.
+     * @param logDestination Directory of the hop log, ending with a 
+     * separator. Null for the default directory.
+     */
+    public ChordLookupSimulation(final CircleManager circle, final long tests,
+            final int concurrency, final long seed, final long pause,
+            final String logDestination)
     {
         mCircle = circle;
         mTests = tests;
-        mNodes = mCircle.GetCircleList();
-        mRand = new Random(System.currentTimeMillis());
+        mConcurrency = Math.max(1, concurrency);
+        mSeed = seed;
+        mPause = Math.max(0, pause);
+        mRand = new Random(seed);
+        mStarted = new AtomicLong(0);
+        mRetried = new AtomicLong(0);
+        
+        if(logDestination == null)
+            mHopMeasureStatistics = new HopLookupMeasure(circle.GetSize());
+        else
+            mHopMeasureStatistics = new HopLookupMeasure(circle.GetSize(), 
+                    logDestination);
         
-        mHopMeasureStatistics = new HopLookupMeasure(circle.GetSize());
         mKeepAlive = true;
+        mMode = LookupMode.RECURSIVE;
+        mAlpha = 1;
+    }
+    
+    /**
+     * Sets how the lookups are routed. Must be called before the simulation
+     * is started.
+     * 
+     * @param mode The lookup mode, recursive unless specified.
+     */
+    public void SetLookupMode(LookupMode mode)
+    {
+        mMode = mode;
+    }
+    
+    /**
+     * Sets how many nodes an iterative lookup asks at each step. Must be 
+     * called before the simulation is started.
+     * 
+     * @param alpha Nodes asked at the same time, 1 unless specified.
+     */
+    public void SetLookupAlpha(int alpha)
+    {
+        mAlpha = Math.max(1, alpha);
     }
 
     @Override
@@ -65,22 +129,71 @@ public class ChordLookupSimulation extends Thread
                 + "randomly.");
         System.out.println("********************");
         
+        List<Thread> workers = new ArrayList<>();
+        
+        for(int i = 1; i < mConcurrency; i++)
+        {
+            final Random rand = new Random(mSeed + i);
+            Thread t = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    RunTests(rand);
+                }
+            });
+            t.setName("LookupSimulation - " + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        
+        RunTests(mRand);
+        
+        for(Thread t : workers)
+        {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Logger.getLogger(ChordLookupSimulation.class.getName()).log(Level.SEVERE, null, ex);
+                break;
+            }
+        }
+        
+        if(mHopMeasureStatistics.GetNumberOfTests() >= mTests)
+            System.out.println("Test Complete! Terminating.");
+        
+        mHopMeasureStatistics.CloseLog();
+    }
+    
+    /**
+     * The worker loop. Performs lookups until all tests have been 
+     * performed or the simulation is stopped.
+     * 
+     * @param rand Random generator of this worker.
+     */
+    private void RunTests(final Random rand)
+    {
         while(mKeepAlive)
         {
+            //Reserve a test, lookups that give no result are retried.
+            if( !Reserve() )
+                break;
+            
             ChordNode req = null;
             ChordNode target = null;
             
             //Get Requester
             do
             {
-                req = RandomizeNode(0);
+                req = mCircle.GetRandomNode(rand);
                 
             }while(req == null);
             
             //Get target
             do
             {
-                target = RandomizeNode(0);
+                target = mCircle.GetRandomNode(rand);
                 
                 if(target == mCircle.GetBootstrap())
                     target = null;
@@ -88,77 +201,114 @@ public class ChordLookupSimulation extends Thread
             }while(target == null 
                     || target == req );
             
-            HopData data = PerformTest(req, target);
+            HopData data = PerformTest(req, target, mMode, mAlpha, mCircle);
             
             if( !mHopMeasureStatistics.AddLookupResult(data) )
             {
-                System.out.println("***Lookup failed***");
-                System.out.println("Hop Data was null, nothing written");
-                System.out.println("Test number: "
-                        + mHopMeasureStatistics.GetNumberOfTests());
-                System.out.println("Req: "+req.PeerID().GetIdentifierCH());
-                System.out.println("Tar: "+target.PeerID().GetIdentifierCH());
-
+                mStarted.decrementAndGet();
+                mRetried.incrementAndGet();
+                
+                if(Log.IsEnabled(Log.Category.SIMULATION, Log.Level.DEBUG))
+                {
+                    Log.Write(Log.Category.SIMULATION, Log.Level.DEBUG, 
+                            "***Lookup failed***" + NL
+                            + "Hop Data was null, nothing written" + NL
+                            + "Test number: " 
+                            + mHopMeasureStatistics.GetNumberOfTests() + NL
+                            + "Req: " + req.PeerID().GetIdentifierCH() + NL
+                            + "Tar: " + target.PeerID().GetIdentifierCH());
+                }
             }
             else if( data.IsFailed() )
             {
-                System.out.println("***Lookup failed***");
-                System.out.println("Unable to find key");
-                System.out.println("Test number: "
-                        + mHopMeasureStatistics.GetNumberOfTests());
-                System.out.println("Req: "+req.PeerID().GetIdentifierCH());
-                System.out.println("Tar: "+target.PeerID().GetIdentifierCH());
+                if(Log.IsEnabled(Log.Category.SIMULATION, Log.Level.DEBUG))
+                {
+                    Log.Write(Log.Category.SIMULATION, Log.Level.DEBUG, 
+                            "***Lookup failed***" + NL
+                            + "Unable to find key" + NL
+                            + "Test number: " 
+                            + mHopMeasureStatistics.GetNumberOfTests() + NL
+                            + "Req: " + req.PeerID().GetIdentifierCH() + NL
+                            + "Tar: " + target.PeerID().GetIdentifierCH());
+                }
             }
-            else
+            else if(Log.IsEnabled(Log.Category.SIMULATION, Log.Level.DEBUG))
             {
                 long time = data.GetEndTime() - data.GetStartTime();
-                System.out.println("***Test \"" 
-                + mHopMeasureStatistics.GetNumberOfTests()
-                + "\" Completed [" 
-                + time
-                +"]***");
+                Log.Write(Log.Category.SIMULATION, Log.Level.DEBUG, 
+                        "***Test \"" 
+                        + mHopMeasureStatistics.GetNumberOfTests()
+                        + "\" Completed [" 
+                        + time
+                        +"]***");
             }
             
-            if(mHopMeasureStatistics.GetNumberOfTests() == mTests)
-            {
-                System.out.println("Test Complete! Terminating.");
-                this.Stop();
-            }
-            else
+            if(mHopMeasureStatistics.GetNumberOfTests() < mTests && mPause > 0)
             {
                 try {
-                    Thread.sleep(100);
+                    Thread.sleep(mPause);
                 } catch (InterruptedException ex) {
                     Logger.getLogger(ChordLookupSimulation.class.getName()).log(Level.SEVERE, null, ex);
+                    return;
                 }
             }
 
         }
+    }
+    
+    /**
+     * Reserves one of the tests. A test is only reserved while fewer than
+     * all tests are reserved, so a test given back after a lookup without
+     * result can always be reserved again.
+     * 
+     * @return False if all tests are reserved.
+     */
+    private boolean Reserve()
+    {
+        long started = mStarted.get();
         
-        mHopMeasureStatistics.CloseLog();
+        while(started < mTests)
+        {
+            if(mStarted.compareAndSet(started, started + 1))
+                return true;
+            
+            started = mStarted.get();
+        }
+        
+        return false;
     }
     
     /**
      * Performs a lookup test on the given target.
      * @param req The issuer node to perform the lookup request.
      * @param target Target node to be found (uses it's key during the test)
+     * @param mode How the lookup is routed.
+     * @param alpha Nodes asked at each step by an iterative lookup.
+     * @param circle The ring, to tell if the result is the true owner.
      * @return The results of the lookup, such as hops.
      */
-    private HopData PerformTest(final ChordNode req, final ChordNode target)
+    static HopData PerformTest(final ChordNode req, final ChordNode target,
+            final LookupMode mode, final int alpha, final CircleManager circle)
     {
         HopData hop = new HopData(req, target);
         ChordNode result;
         
-        System.out.println(req.PeerID().GetIdentifierCH() + " wants to find "
-        + target.PeerID().GetIdentifierCH() 
-        + " With key " + target.PeerID().GetKeyCH() );
+        Log.Write(Log.Category.SIMULATION, Log.Level.DEBUG, 
+                req.PeerID().GetIdentifierCH(), " wants to find ", 
+                target.PeerID().GetIdentifierCH(), " With key ", 
+                target.PeerID().GetKeyCH());
         
         //Start Time Set
         hop.SetStartTime(System.currentTimeMillis());
+        long start = System.nanoTime();
         
-        result = req.lookup(target.PeerID(), req, hop, null);
+        if(mode == LookupMode.ITERATIVE)
+            result = req.lookupIterative(target.PeerID(), hop, alpha);
+        else
+            result = req.lookup(target.PeerID(), req, hop, 0);
         
         //End Time Set
+        hop.SetLatency(System.nanoTime() - start);
         hop.SetEndTime(System.currentTimeMillis());
         
         if( hop.IsFailed() )
@@ -186,7 +336,14 @@ public class ChordLookupSimulation extends Thread
         
         if( testKey.BASE_TEN_RADIX.compareTo(target.PeerID().GetIdentifierCH())
                 == 0)
+        {
+            //A node with a replica, or a copy it should have handed over,
+            //has the key too, but only the true successor owns it.
+            if(result != circle.GetSuccessor(target.PeerID().GetKeyID()))
+                hop.SetWrongOwner(true);
+            
             return hop;
+        }
         else
         {
             hop.SetFailed(true);
@@ -195,14 +352,6 @@ public class ChordLookupSimulation extends Thread
 
     }
     
-    private ChordNode RandomizeNode(final int min)
-    {
-        int max = mNodes.size()-1;
-        int value = mRand.nextInt((max - min) + 1) + min;
-       
-        return mNodes.get(value);
-    }
-    
     /**
      * Stops the simulation.
      */
@@ -210,4 +359,23 @@ public class ChordLookupSimulation extends Thread
     {
         mKeepAlive = false;
     }
+    
+    /**
+     * 
+     * @return The statistics collected by this simulation.
+     */
+    public HopLookupMeasure GetStatistics()
+    {
+        return mHopMeasureStatistics;
+    }
+    
+    /**
+     * 
+     * @return Number of times a test was given back to be performed again,
+     * since its lookup gave no result.
+     */
+    public long GetRetried()
+    {
+        return mRetried.get();
+    }
 }
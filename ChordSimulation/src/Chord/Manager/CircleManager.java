@@ -18,57 +18,140 @@
  */
 package Chord.Manager;
 
+import Chord.ChordId;
 import Chord.ChordKey;
 import Chord.ChordNode;
 import Chord.FingerTable.Finger;
-import GUI.Quicksort;
+import Chord.FingerTable.FingerTable;
+import Chord.FingerTable.LocationCache;
+import Chord.FingerTable.RingHealth;
+import Chord.FingerTable.SuccessorList;
+import Chord.Tasks.MaintenancePolicy;
+import Chord.Identifier.Identifier;
+import Process.Log;
+import Process.SimulationKernel;
+import Process.WorkerPool;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This is where the Chord ring is managed. It contains all the nodes and
  * can be used to extract information and perform tests.
  * 
+ * The nodes are kept in a ring index ordered by identifier, so joins and
+ * removals are O(log n), and the true successor and predecessor of any
+ * identifier can be looked up without asking the nodes.
+ * 
  * @author Simon Edänge
  */
 public class CircleManager implements InChordManager
 {
-    private ArrayList<ChordNode> mCircle = null;
+    private final ConcurrentSkipListMap<Identifier, ChordNode> mCircle;
+    private final ArrayList<ChordNode> mNodes;
+    private final Map<ChordNode, Integer> mNodeIndex;
     private final int mBits;
     private final int mFingers;
+    private final int mSuccessors;
     private ChordNode mBootStrap;
-    private final ArrayList<BigInteger> mKeyPool;
-    private final ScheduledThreadPoolExecutor mExecutor;
+    private final Set<Identifier> mKeyPool;
+    private final SimulationKernel mKernel;
+    private MaintenancePolicy mMaintenance;
+    private int mCacheSize;
+    private long mCacheTtl;
+    private final RingHealth mHealth;
     
     /**
-     * Constructs a ChordRing
+     * Constructs a ChordRing.
+     * The simulation kernel is paced against the wall clock, with a link 
+     * delay of 1 ms.
      * 
      * @param numberOfBits Bits to be used in the Chord ring
      * @param maxfingers Max fingers to be used per node
      */
     public CircleManager(final int numberOfBits, final int maxfingers)
+    {
+        this(numberOfBits, maxfingers, new SimulationKernel(1, 1.0));
+    }
+    
+    /**
+     * Constructs a ChordRing
+     * 
+     * @param numberOfBits Bits to be used in the Chord ring
+     * @param maxfingers Max fingers to be used per node
+     * @param kernel The simulation kernel driving all nodes in the ring.
+     */
+    public CircleManager(final int numberOfBits, final int maxfingers,
+            final SimulationKernel kernel)
+    {
+        this(numberOfBits, maxfingers, ChordNode.DEFAULT_SUCCESSORS, kernel);
+    }
+    
+    /**
+     * Constructs a ChordRing
+     * 
+     * @param numberOfBits Bits to be used in the Chord ring
+     * @param maxfingers Max fingers to be used per node
+     * @param successors Successors in the successor-list of every node.
+     * @param kernel The simulation kernel driving all nodes in the ring.
+     */
+    public CircleManager(final int numberOfBits, final int maxfingers,
+            final int successors, final SimulationKernel kernel)
     {
         mBits = numberOfBits;
-        mCircle = new ArrayList<>();
-        mKeyPool = new ArrayList<>();
+        mSuccessors = successors;
+        mCircle = new ConcurrentSkipListMap<>();
+        mHealth = new RingHealth(mCircle);
+        mNodes = new ArrayList<>();
+        mNodeIndex = new HashMap<>();
+        mKeyPool = new HashSet<>();
         mBootStrap = null;
         mFingers = maxfingers;
-        mExecutor = new ScheduledThreadPoolExecutor(12);
-
+        mKernel = kernel;
+        mMaintenance = MaintenancePolicy.DEFAULT;
+        mCacheSize = 0;
+        mCacheTtl = 0;
+        mKernel.Start();
     }
     
     @Override
-    public String CreateNode()
+    public synchronized String CreateNode()
     {
-        if( Math.pow(2, mBits) <= mCircle.size() )
+        if( Math.pow(2, mBits) <= mNodes.size() )
         {
             return null;
         }
         
+        ChordNode node = NewNode();
+        
+        if(mBootStrap == null)
+            mBootStrap = node;
+        
+        mKernel.Wakeup(node);
+        
+        Log.Write(Log.Category.JOIN, Log.Level.INFO, "Node was created, (", 
+                node.PeerID().GetIdentifierCH(), ") With key: ", 
+                node.PeerID().GetKeyCH());
+        
+        return node.PeerID().GetIdentifierCH().toString();
+    }
+    
+    /**
+     * Creates a node with an identifier and key that no other node in the 
+     * circle has, and adds it to the circle. The node is not started.
+     * @return The node.
+     */
+    private ChordNode NewNode()
+    {
         boolean success;
         ChordNode node;
         
@@ -76,29 +159,214 @@ public class CircleManager implements InChordManager
         {
             success = true;
             
-            node = new ChordNode(mBits, mFingers, mBootStrap);
+            node = new ChordNode(mBits, mFingers, mSuccessors, mBootStrap, 
+                    mKernel, mMaintenance);
             //node.setName("Node: " + node.PeerID().GetIdentifierCH());
 
-            if( mKeyPool.contains(node.PeerID().GetKeyCH()) )
+            if( mKeyPool.contains(node.PeerID().GetKeyID()) )
+                success = false;
+            else if( mCircle.containsKey(node.PeerID().GetIdentifierID()) )
                 success = false;
             else
-                mKeyPool.add(node.PeerID().GetKeyCH());
-
-            if( success && !contains(node.PeerID().GetIdentifierCH()) )
+            {
+                if(mCacheSize > 0)
+                {
+                    node.GetFingerTable().SetLocationCache(
+                            new LocationCache(mCacheSize, mCacheTtl, node));
+                }
+                
+                node.GetFingerTable().SetRingHealth(mHealth);
+                mKeyPool.add(node.PeerID().GetKeyID());
                 AddToCircle(node);
-            else
-                success = false;
+            }
         
         } while( !success );
         
-        if(mBootStrap == null)
-            mBootStrap = node;
+        return node;
+    }
+    
+    /**
+     * Creates a whole ring at once, for experiments that only measure a 
+     * stable ring. Instead of joining one by one, the finger tables, 
+     * successor-lists, predecessors, keys and replicas of all nodes are set
+     * from the ring index, in parallel, and the nodes are started as if the 
+     * ring had already converged.
+     * 
+     * The circle must be empty.
+     * 
+     * @param count Number of nodes to create.
+     * @return Number of nodes created, 0 if the circle is not empty.
+     */
+    public synchronized int CreateConvergedRing(final int count)
+    {
+        if( !mNodes.isEmpty() )
+        {
+            Log.Write(Log.Category.SIMULATION, Log.Level.WARN, 
+                    "Cannot create a converged ring, "
+                    + "the circle is not empty.");
+            return 0;
+        }
         
-        mExecutor.scheduleWithFixedDelay(node, 0, 10, TimeUnit.MILLISECONDS);
+        int total = (int)Math.min(count, Math.pow(2, mBits));
         
-        System.out.println("Node was created, (" + node.PeerID().GetIdentifierCH() + ") With key: " + node.PeerID().GetKeyCH());
+        for(int i = 0; i < total; i++)
+        {
+            ChordNode node = NewNode();
+            
+            if(mBootStrap == null)
+                mBootStrap = node;
+        }
         
-        return node.PeerID().GetIdentifierCH().toString();
+        final ChordNode[] ring = mCircle.values().toArray(
+                new ChordNode[mNodes.size()]);
+        
+        //Routing state, every node only changes its own tables.
+        RunParallel(ring.length, new IndexTask()
+        {
+            @Override
+            public void Run(int i)
+            {
+                SetRoutingState(ring, i);
+            }
+        });
+        
+        //Keys before replicas, a node never keeps a replica of its own key.
+        final ChordKey[] keys = new ChordKey[ring.length];
+        
+        RunParallel(ring.length, new IndexTask()
+        {
+            @Override
+            public void Run(int i)
+            {
+                ChordId id = ring[i].PeerID();
+                keys[i] = new ChordKey(id.GetKeyCH(), id.GetKey(), 
+                        id.GetIdentifierCH(), id.GetIdentifier());
+                
+                GetSuccessor(id.GetKeyID()).GetSuccessorList().GetEntries()
+                        .InsertKey(keys[i]);
+            }
+        });
+        
+        RunParallel(ring.length, new IndexTask()
+        {
+            @Override
+            public void Run(int i)
+            {
+                SuccessorList successors = ring[i].GetSuccessorList();
+                Set<ChordKey> k = successors.GetEntries().GetAllKeys();
+                ChordKey[] replicas = k.toArray(new ChordKey[k.size()]);
+                
+                for(ChordNode s : successors.GetArray())
+                    s.GetSuccessorList().GetEntries().InsertReplica(replicas);
+            }
+        });
+        
+        //Spread the maintenance of the nodes over one quiet round.
+        Random rand = new Random(mBits + (long)ring.length);
+        long round = mMaintenance.GetMaxInterval();
+        
+        for(ChordNode n : ring)
+            n.StartConverged((long)(rand.nextDouble() * round));
+        
+        Log.Write(Log.Category.SIMULATION, Log.Level.INFO, 
+                "Converged ring created with ", ring.length, " nodes");
+        
+        return ring.length;
+    }
+    
+    /**
+     * Sets the finger table, successor-list and predecessor of a node to the
+     * true ones.
+     * @param ring All nodes, in ring order.
+     * @param i Index of the node to set.
+     */
+    private void SetRoutingState(final ChordNode[] ring, final int i)
+    {
+        ChordNode n = ring[i];
+        FingerTable table = n.GetFingerTable();
+        
+        table.InitFingers();
+        
+        if(ring.length == 1)
+            return;
+        
+        for(int f = 0; f < table.GetSize(); f++)
+        {
+            table.SetFinger(f, 
+                    GetSuccessor(table.Get(f).start.GetIdentifierID()));
+        }
+        
+        ChordNode[] successors = new ChordNode[
+                Math.min(mSuccessors, ring.length - 1)];
+        
+        for(int j = 0; j < successors.length; j++)
+            successors[j] = ring[(i + 1 + j) % ring.length];
+        
+        n.GetSuccessorList().SetAll(successors);
+        n.SetPredecessor(ring[(i - 1 + ring.length) % ring.length]);
+    }
+    
+    /**
+     * A task run for every index by RunParallel.
+     */
+    static abstract class IndexTask
+    {
+        abstract void Run(int i);
+    }
+    
+    /**
+     * Runs a task for the indexes 0 to count - 1, split in chunks on the 
+     * worker pool of the simulation, and waits for it to complete.
+     * @param count Number of indexes.
+     * @param task The task.
+     */
+    void RunParallel(final int count, final IndexTask task)
+    {
+        WorkerPool workers = mKernel.GetWorkers();
+        int chunks = Math.max(1, 
+                Math.min(count, workers.GetParallelism() * 4));
+        final CountDownLatch done = new CountDownLatch(chunks);
+        final AtomicReference<RuntimeException> failure = 
+                new AtomicReference<>();
+        
+        for(int c = 0; c < chunks; c++)
+        {
+            final int from = (int)((long)count * c / chunks);
+            final int to = (int)((long)count * (c + 1) / chunks);
+            
+            workers.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for(int i = from; i < to; i++)
+                            task.Run(i);
+                    }
+                    catch(RuntimeException ex)
+                    {
+                        failure.compareAndSet(null, ex);
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        
+        try
+        {
+            workers.Await(done, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        
+        if(failure.get() != null)
+            throw failure.get();
     }
     
     /**
@@ -107,15 +375,44 @@ public class CircleManager implements InChordManager
      */
     private void AddToCircle(ChordNode n)
     {
-        mCircle.add(n);
-        Quicksort.sort(mCircle);
+        mCircle.put(n.PeerID().GetIdentifierID(), n);
+        mNodeIndex.put(n, mNodes.size());
+        mNodes.add(n);
+        mHealth.Join(n);
+    }
+    
+    /**
+     * Removes a node from the circle. The last node in the random access 
+     * list takes its place.
+     * @param n The node to remove.
+     * @return False if the node is not in the circle.
+     */
+    private boolean RemoveFromCircle(ChordNode n)
+    {
+        Integer index = mNodeIndex.remove(n);
+        
+        if(index == null)
+            return false;
+        
+        mCircle.remove(n.PeerID().GetIdentifierID(), n);
+        mHealth.Leave(n);
+        
+        ChordNode last = mNodes.remove(mNodes.size() - 1);
+        
+        if(last != n)
+        {
+            mNodes.set(index, last);
+            mNodeIndex.put(last, index);
+        }
+        
+        return true;
     }
     
     @Override
     public void PrintSuccessorAndPredecessor()
     {
         System.out.println("***********************");
-        for(ChordNode n :  mCircle)
+        for(ChordNode n :  mCircle.values())
         {
            ChordNode pred = n.predecessor();
            ChordNode suc = n.successor();
@@ -146,7 +443,7 @@ public class CircleManager implements InChordManager
     public void PrintSuccessorList()
     {
         System.out.println("***********************");
-        for(ChordNode n : mCircle)
+        for(ChordNode n : mCircle.values())
         {
             ChordNode[] nodes = n.GetSuccessorList().GetArray();
             
@@ -160,7 +457,7 @@ public class CircleManager implements InChordManager
     public void PrintKeys()
     {
         System.out.println("***********************");
-        for( ChordNode n : mCircle)
+        for( ChordNode n : mCircle.values())
         {
             Set<ChordKey> replica = n.GetSuccessorList().GetEntries().GetAllReplicas();
             Set<ChordKey> keys = n.GetSuccessorList().GetEntries().GetAllKeys();
@@ -184,9 +481,9 @@ public class CircleManager implements InChordManager
     }
     
     @Override
-    public void KillAll()
+    public synchronized void KillAll()
     {
-        for(ChordNode node : mCircle  )
+        for(ChordNode node : mCircle.values()  )
         {
             if(node == null)
                 continue;
@@ -194,60 +491,116 @@ public class CircleManager implements InChordManager
             node.kill();
             node = null;
         }
-    }
-    
-    private boolean contains(BigInteger k)
-    {
-        if(k == null)
-            return false;
         
-        return Quicksort.binarySearch(mCircle, k) != null;
+        mKernel.Shutdown();
     }
     
     @Override
-    public boolean RemoveNode(int id)
+    public synchronized boolean RemoveNode(int id)
     {
-        BigInteger temp = new BigInteger(id+"");
-        ChordNode n;
-        
-        n = Quicksort.binarySearch(mCircle, temp);
-        return RemoveNode(n);
+        return RemoveNode(GetNode(id));
     }
     
     @Override
-    public boolean RemoveNode(ChordNode n)
+    public synchronized boolean RemoveNode(ChordNode n)
     {
         if(n == null)
             return false;
         
         n.kill();
-        mKeyPool.remove(n.PeerID().GetKeyCH());
-        mExecutor.remove(n);
-        mCircle.remove(n);
+        mKeyPool.remove(n.PeerID().GetKeyID());
+        RemoveFromCircle(n);
         n = null;
         
         return true;
     }
     
     @Override
-    public int GetSize()
+    public synchronized int GetSize()
     {
-        return mCircle.size();
+        return mNodes.size();
     }
     
     @Override
     public ChordNode GetNode(int id)
     {
-        BigInteger temp = new BigInteger(id+"");
-        for(ChordNode n : mCircle)
-        {
-            if(n.PeerID().GetIdentifierCH().compareTo(temp) == 0)
-            {
-                return n;
-            }
-        }
+        return GetNode(BigInteger.valueOf(id));
+    }
+    
+    /**
+     * 
+     * @param id The id of the node to return.
+     * @return The node with the id, null if there is none.
+     */
+    public ChordNode GetNode(BigInteger id)
+    {
+        if(id == null || id.signum() < 0 || id.bitLength() > mBits)
+            return null;
+        
+        return mCircle.get(Identifier.Create(id, mBits));
+    }
+    
+    /**
+     * The true successor of an identifier, i.e. the first node at or after
+     * it on the ring. This is the node that should be responsible for it.
+     * 
+     * @param id The identifier.
+     * @return The successor, null if the ring is empty.
+     */
+    public ChordNode GetSuccessor(Identifier id)
+    {
+        Map.Entry<Identifier, ChordNode> e = mCircle.ceilingEntry(id);
+        
+        if(e == null)
+            e = mCircle.firstEntry();
         
-        return null;
+        return e == null ? null : e.getValue();
+    }
+    
+    /**
+     * The true predecessor of an identifier, i.e. the first node before it
+     * on the ring.
+     * 
+     * @param id The identifier.
+     * @return The predecessor, null if the ring is empty.
+     */
+    public ChordNode GetPredecessor(Identifier id)
+    {
+        Map.Entry<Identifier, ChordNode> e = mCircle.lowerEntry(id);
+        
+        if(e == null)
+            e = mCircle.lastEntry();
+        
+        return e == null ? null : e.getValue();
+    }
+    
+    /**
+     * Takes a snapshot of the ring, to look up the true successors of many
+     * identifiers at once.
+     * 
+     * @return The snapshot.
+     */
+    public RingOracle CreateOracle()
+    {
+        return new RingOracle(mCircle.values());
+    }
+    
+    /**
+     * The node following a node on the ring.
+     * 
+     * @param n The node.
+     * @return The next node, n itself if it is alone, null if the ring is 
+     * empty.
+     */
+    public ChordNode GetNext(ChordNode n)
+    {
+        Map.Entry<Identifier, ChordNode> e = 
+                mCircle.higherEntry(n.PeerID().GetIdentifierID());
+        
+        if(e == null)
+            e = mCircle.firstEntry();
+        
+        return e == null ? null : e.getValue();
     }
     
     @Override
@@ -256,12 +609,20 @@ public class CircleManager implements InChordManager
         return mBits;
     }
     
+    /**
+     * 
+     * @return A copy of the nodes in the ring, in ring order.
+     */
     public final ArrayList<ChordNode> GetCircleList()
     {
-        return mCircle;
+        return new ArrayList<>(mCircle.values());
     }
 
-    ChordNode GetBootstrap()
+    /**
+     * 
+     * @return The node that new nodes join the ring through.
+     */
+    public ChordNode GetBootstrap()
     {
         return mBootStrap;
     }
@@ -270,4 +631,102 @@ public class CircleManager implements InChordManager
     {
         return mFingers;
     }
+    
+    /**
+     * 
+     * @return Successors in the successor-list of every node.
+     */
+    public int GetSuccessors()
+    {
+        return mSuccessors;
+    }
+    
+    /**
+     * 
+     * @return A copy of the nodes in the ring, in ring order.
+     */
+    public List<ChordNode> GetNodes()
+    {
+        return GetCircleList();
+    }
+    
+    /**
+     * Picks a random node in the ring.
+     * 
+     * @param rand Random generator to use.
+     * @return A node, null if the ring is empty.
+     */
+    public synchronized ChordNode GetRandomNode(final Random rand)
+    {
+        if(mNodes.isEmpty())
+            return null;
+        
+        return mNodes.get(rand.nextInt(mNodes.size()));
+    }
+    
+    /**
+     * Sets how often the nodes created from now on run their maintenance.
+     * 
+     * @param policy The policy.
+     */
+    public synchronized void SetMaintenancePolicy(MaintenancePolicy policy)
+    {
+        mMaintenance = policy;
+    }
+    
+    /**
+     * 
+     * @return The maintenance policy of new nodes.
+     */
+    public synchronized MaintenancePolicy GetMaintenancePolicy()
+    {
+        return mMaintenance;
+    }
+    
+    /**
+     * Sets if the nodes created from now on cache where lookups found 
+     * their keys.
+     * 
+     * @param size Maximum number of nodes in the cache of every node, 0 to
+     * not cache any locations.
+     * @param ttl Time (ms) a cached location is used.
+     * @see LocationCache
+     */
+    public synchronized void SetLocationCache(int size, long ttl)
+    {
+        if(size > 0 && ttl <= 0)
+            throw new IllegalArgumentException("Invalid location cache");
+        
+        mCacheSize = Math.max(0, size);
+        mCacheTtl = ttl;
+    }
+    
+    /**
+     * 
+     * @return Maximum number of nodes in the location cache of new nodes, 
+     * 0 if locations are not cached.
+     */
+    public synchronized int GetLocationCacheSize()
+    {
+        return mCacheSize;
+    }
+    
+    /**
+     * 
+     * @return The tracker of how much of the routing state in the ring is
+     * correct.
+     */
+    public RingHealth GetRingHealth()
+    {
+        return mHealth;
+    }
+    
+    /**
+     * 
+     * @return The simulation kernel driving the nodes in this ring.
+     */
+    public SimulationKernel GetKernel()
+    {
+        return mKernel;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Manager;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Decides how popular every lookup target is. Targets are ranked from 0 to
+ * n - 1, and Next returns the rank of the next target to look up.
+ *
+ * @see LookupLoadGenerator
+ * @author Simon Edänge
+ */
+public abstract class KeyPopularity
+{
+    protected final int mSize;
+
+    /**
+     *
+     * @param size Number of targets.
+     */
+    KeyPopularity(int size)
+    {
+        if(size <= 0)
+            throw new IllegalArgumentException("Size must be positive");
+
+        mSize = size;
+    }
+
+    /**
+     *
+     * @param rand Random generator to use.
+     * @return Rank of the next target, between 0 and size - 1.
+     */
+    public abstract int Next(Random rand);
+
+    /**
+     *
+     * @return Number of targets.
+     */
+    public int GetSize()
+    {
+        return mSize;
+    }
+
+    /**
+     * Creates a popularity from a description:
+     * "uniform", "zipf:s" (e.g. zipf:0.99) or "hotspot:fraction:probability"
+     * (e.g. hotspot:0.1:0.9, 90% of the lookups go to 10% of the targets).
+     *
+     * @param description The description.
+     * @param size Number of targets.
+     * @return The popularity.
+     */
+    public static KeyPopularity Create(String description, int size)
+    {
+        String[] parts = description.trim().toLowerCase().split(":");
+
+        try
+        {
+            switch(parts[0])
+            {
+                case "uniform":
+                    return new Uniform(size);
+
+                case "zipf":
+                    return new Zipf(size,
+                            parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+
+                case "hotspot":
+                    return new Hotspot(size,
+                            parts.length > 1 ? Double.parseDouble(parts[1]) : 0.1,
+                            parts.length > 2 ? Double.parseDouble(parts[2]) : 0.9);
+            }
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(
+                    "Invalid key popularity: " + description);
+        }
+
+        throw new IllegalArgumentException(
+                "Unknown key popularity: " + description);
+    }
+
+    /**
+     * Every target is equally popular.
+     */
+    public static class Uniform extends KeyPopularity
+    {
+        public Uniform(int size)
+        {
+            super(size);
+        }
+
+        @Override
+        public int Next(Random rand)
+        {
+            return rand.nextInt(mSize);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "uniform";
+        }
+    }
+
+    /**
+     * The popularity of the target with rank k is proportional to
+     * 1 / (k + 1)^s.
+     */
+    public static class Zipf extends KeyPopularity
+    {
+        private final double mExponent;
+        private final double[] mCumulative;
+
+        /**
+         *
+         * @param size Number of targets.
+         * @param exponent The skew s, 0 is uniform.
+         */
+        public Zipf(int size, double exponent)
+        {
+            super(size);
+
+            if(exponent < 0)
+                throw new IllegalArgumentException("Exponent must be >= 0");
+
+            mExponent = exponent;
+            mCumulative = new double[size];
+
+            double sum = 0;
+
+            for(int i = 0; i < size; i++)
+            {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                mCumulative[i] = sum;
+            }
+
+            for(int i = 0; i < size; i++)
+                mCumulative[i] /= sum;
+        }
+
+        @Override
+        public int Next(Random rand)
+        {
+            int i = Arrays.binarySearch(mCumulative, rand.nextDouble());
+
+            if(i < 0)
+                i = -i - 1;
+
+            return Math.min(i, mSize - 1);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "zipf:" + mExponent;
+        }
+    }
+
+    /**
+     * A fraction of the targets (the hot ones) gets a fixed share of the
+     * lookups, the rest is spread uniformly over the other targets.
+     */
+    public static class Hotspot extends KeyPopularity
+    {
+        private final double mFraction;
+        private final double mProbability;
+        private final int mHot;
+
+        /**
+         *
+         * @param size Number of targets.
+         * @param fraction Fraction of the targets that are hot.
+         * @param probability Probability that a lookup goes to a hot target.
+         */
+        public Hotspot(int size, double fraction, double probability)
+        {
+            super(size);
+
+            if(fraction <= 0 || fraction > 1 || probability < 0 || probability > 1)
+                throw new IllegalArgumentException(
+                        "Fraction must be in (0, 1] and probability in [0, 1]");
+
+            mFraction = fraction;
+            mProbability = probability;
+            mHot = Math.max(1, (int)Math.round(size * fraction));
+        }
+
+        @Override
+        public int Next(Random rand)
+        {
+            if(mHot >= mSize || rand.nextDouble() < mProbability)
+                return rand.nextInt(mHot);
+
+            return mHot + rand.nextInt(mSize - mHot);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "hotspot:" + mFraction + ":" + mProbability;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Manager;
+
+import Chord.ChordNode;
+import Process.Log;
+import Statistics.HopData;
+import Statistics.HopLookupMeasure;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An open-loop lookup workload. Lookups arrive with a target rate (Poisson
+ * arrivals) whether or not earlier lookups have completed, and are executed
+ * by a fixed number of workers. A lookup that arrives when all workers are
+ * busy waits in a bounded queue, and is dropped if the queue is full.
+ *
+ * The latency of a lookup is measured from its scheduled arrival, so time
+ * spent waiting for a worker is included. The targets are the nodes in the
+ * ring when the workload starts, and how often each one is looked up is
+ * decided by a KeyPopularity.
+ *
+ * @see KeyPopularity
+ * @see ChordLookupSimulation
+ * @author Simon Edänge
+ */
+public class LookupLoadGenerator extends Thread
+{
+    private final CircleManager mCircle;
+    private final double mRate;
+    private final long mRequests;
+    private final int mConcurrency;
+    private final int mMaxQueue;
+    private final String mPopularity;
+    private final Random mRand;
+    private final HopLookupMeasure mHopMeasureStatistics;
+
+    private final AtomicLong mIssued;
+    private final AtomicLong mDropped;
+    private volatile long mElapsed;
+    private volatile boolean mKeepAlive;
+    private volatile LookupMode mMode;
+    private volatile int mAlpha;
+
+    private static final String NL = System.lineSeparator();
+
+    /**
+     * @param circle The Chord circle, containing all the nodes.
+     * @param rate Target rate, lookups per second.
+     * @param requests Number of lookups to issue.
+     * @param concurrency Maximum number of lookups in flight.
+     * @param maxQueue Maximum number of lookups waiting for a worker.
+     * @param popularity Key popularity description, see KeyPopularity.
+     * @param seed Seed used when choosing requesters, targets and arrivals.
+     * @param logDestination Directory of the hop log, ending with a
+     * separator. Null for the default directory.
+     */
+    public LookupLoadGenerator(final CircleManager circle, final double rate,
+            final long requests, final int concurrency, final int maxQueue,
+            final String popularity, final long seed,
+            final String logDestination)
+    {
+        if(rate <= 0)
+            throw new IllegalArgumentException("Rate must be positive");
+
+        mCircle = circle;
+        mRate = rate;
+        mRequests = requests;
+        mConcurrency = Math.max(1, concurrency);
+        mMaxQueue = Math.max(1, maxQueue);
+        mPopularity = popularity;
+        mRand = new Random(seed);
+
+        if(logDestination == null)
+            mHopMeasureStatistics = new HopLookupMeasure(circle.GetSize());
+        else
+            mHopMeasureStatistics = new HopLookupMeasure(circle.GetSize(),
+                    logDestination);
+
+        mIssued = new AtomicLong(0);
+        mDropped = new AtomicLong(0);
+        mElapsed = 0;
+        mKeepAlive = true;
+        mMode = LookupMode.RECURSIVE;
+        mAlpha = 1;
+
+        setName("LookupLoadGenerator");
+    }
+
+    /**
+     * Sets how the lookups are routed. Must be called before the workload
+     * is started.
+     *
+     * @param mode The lookup mode, recursive unless specified.
+     */
+    public void SetLookupMode(LookupMode mode)
+    {
+        mMode = mode;
+    }
+
+    /**
+     * Sets how many nodes an iterative lookup asks at each step. Must be
+     * called before the workload is started.
+     *
+     * @param alpha Nodes asked at the same time, 1 unless specified.
+     */
+    public void SetLookupAlpha(int alpha)
+    {
+        mAlpha = Math.max(1, alpha);
+    }
+
+    @Override
+    public void run()
+    {
+        List<ChordNode> targets = mCircle.GetNodes();
+        targets.remove(mCircle.GetBootstrap());
+
+        if(targets.isEmpty())
+        {
+            Log.Write(Log.Category.SIMULATION, Log.Level.WARN,
+                    "Load generator: no lookup targets");
+            mHopMeasureStatistics.CloseLog();
+            return;
+        }
+
+        Collections.shuffle(targets, mRand);
+        KeyPopularity popularity = KeyPopularity.Create(mPopularity,
+                targets.size());
+
+        Log.Write(Log.Category.SIMULATION, Log.Level.INFO,
+                "Load generator started" + NL
+                + mRequests + " lookups at " + mRate + " lookups/s, "
+                + mConcurrency + " in flight, popularity " + popularity + NL
+                + "********************");
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(mConcurrency,
+                mConcurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(mMaxQueue),
+                new WorkerFactory());
+
+        long start = System.nanoTime();
+        long next = start;
+
+        for(long i = 0; i < mRequests && mKeepAlive; i++)
+        {
+            next += NextInterArrival();
+
+            long wait = next - System.nanoTime();
+            if(wait > 0)
+                LockSupport.parkNanos(wait);
+
+            ChordNode target = targets.get(popularity.Next(mRand));
+            ChordNode req;
+
+            do
+            {
+                req = mCircle.GetRandomNode(mRand);
+
+            } while(req == null || req == target);
+
+            Issue(workers, req, target, next);
+        }
+
+        workers.shutdown();
+
+        try
+        {
+            while(!workers.awaitTermination(100, TimeUnit.MILLISECONDS))
+            {
+                if(!mKeepAlive)
+                    workers.shutdownNow();
+            }
+        }
+        catch(InterruptedException ex)
+        {
+            workers.shutdownNow();
+        }
+
+        mElapsed = System.nanoTime() - start;
+
+        Log.Write(Log.Category.SIMULATION, Log.Level.INFO,
+                "Load generator done. Issued: ", mIssued.get(),
+                " Dropped: ", mDropped.get(),
+                " No result: ", mHopMeasureStatistics.GetNoResultAttempts());
+
+        mHopMeasureStatistics.CloseLog();
+    }
+
+    /**
+     *
+     * @return Time (ns) until the next arrival, exponentially distributed.
+     */
+    private long NextInterArrival()
+    {
+        return (long)(-Math.log(1.0 - mRand.nextDouble()) / mRate * 1e9);
+    }
+
+    /**
+     * Hands a lookup to the workers, or drops it if the queue is full.
+     */
+    private void Issue(ThreadPoolExecutor workers, final ChordNode req,
+            final ChordNode target, final long scheduled)
+    {
+        try
+        {
+            workers.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    HopData data = ChordLookupSimulation.PerformTest(req,
+                            target, mMode, mAlpha, mCircle);
+
+                    if(data != null)
+                        data.SetLatency(System.nanoTime() - scheduled);
+
+                    boolean added = mHopMeasureStatistics.AddLookupResult(data);
+
+                    if( (!added || data.IsFailed()) && Log.IsEnabled(
+                            Log.Category.SIMULATION, Log.Level.DEBUG) )
+                    {
+                        Log.Write(Log.Category.SIMULATION, Log.Level.DEBUG,
+                                "***Lookup failed***" + NL
+                                + (added ? "Unable to find key" 
+                                        : "Hop Data was null, nothing written")
+                                + NL
+                                + "Req: " + req.PeerID().GetIdentifierCH() + NL
+                                + "Tar: " + target.PeerID().GetIdentifierCH());
+                    }
+                }
+            });
+
+            mIssued.incrementAndGet();
+        }
+        catch(RejectedExecutionException ex)
+        {
+            mDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops issuing lookups. Lookups in flight are interrupted.
+     */
+    public void Stop()
+    {
+        mKeepAlive = false;
+    }
+
+    /**
+     *
+     * @return The statistics collected by this workload.
+     */
+    public HopLookupMeasure GetStatistics()
+    {
+        return mHopMeasureStatistics;
+    }
+
+    /**
+     *
+     * @return Number of lookups handed to the workers.
+     */
+    public long GetIssued()
+    {
+        return mIssued.get();
+    }
+
+    /**
+     *
+     * @return Number of lookups dropped because the queue was full.
+     */
+    public long GetDropped()
+    {
+        return mDropped.get();
+    }
+
+    /**
+     *
+     * @return Number of lookups that gave no result.
+     */
+    public long GetNoResult()
+    {
+        return mHopMeasureStatistics.GetNoResultAttempts();
+    }
+
+    /**
+     *
+     * @return Duration (ns) of the workload, set when it is done.
+     */
+    public long GetElapsed()
+    {
+        return mElapsed;
+    }
+
+    private static class WorkerFactory implements ThreadFactory
+    {
+        private final AtomicInteger mCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r);
+            t.setName("LookupLoadGenerator - " + mCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Manager;
+
+import Chord.ChordNode;
+import Chord.Identifier.Identifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A snapshot of the ring, the nodes sorted by identifier. It tells the true
+ * successor and predecessor of any identifier with a binary search, and 
+ * never changes, so it can be read by many threads while the ring goes on.
+ * 
+ * @see CircleManager#CreateOracle()
+ * @author Simon Edänge
+ */
+public class RingOracle
+{
+    private final ChordNode[] mNodes;
+    private final Identifier[] mIds;
+    
+    /**
+     * Constructs a ring oracle.
+     * 
+     * @param ring The nodes, in ring order.
+     */
+    public RingOracle(Collection<ChordNode> ring)
+    {
+        List<ChordNode> nodes = new ArrayList<>(ring);
+        
+        mNodes = nodes.toArray(new ChordNode[nodes.size()]);
+        mIds = new Identifier[mNodes.length];
+        
+        for(int i = 0; i < mNodes.length; i++)
+            mIds[i] = mNodes[i].PeerID().GetIdentifierID();
+    }
+    
+    /**
+     * 
+     * @return Number of nodes in the ring.
+     */
+    public int GetSize()
+    {
+        return mNodes.length;
+    }
+    
+    /**
+     * 
+     * @param index Position in the ring, counted around the ring if it is 
+     * outside [0, size).
+     * @return The node at the position, null if the ring is empty.
+     */
+    public ChordNode Get(int index)
+    {
+        if(mNodes.length == 0)
+            return null;
+        
+        int i = index % mNodes.length;
+        
+        return mNodes[i < 0 ? i + mNodes.length : i];
+    }
+    
+    /**
+     * 
+     * @param id An identifier.
+     * @return Position of the true successor of id, -1 if the ring is empty.
+     */
+    public int SuccessorIndex(Identifier id)
+    {
+        if(mNodes.length == 0)
+            return -1;
+        
+        int i = Arrays.binarySearch(mIds, id);
+        
+        if(i >= 0)
+            return i;
+        
+        i = -i - 1;
+        
+        return i == mNodes.length ? 0 : i;
+    }
+    
+    /**
+     * 
+     * @param id An identifier.
+     * @return The true successor of id, the node responsible for it. Null if
+     * the ring is empty.
+     */
+    public ChordNode Successor(Identifier id)
+    {
+        int i = SuccessorIndex(id);
+        
+        return i < 0 ? null : mNodes[i];
+    }
+    
+    /**
+     * 
+     * @param id An identifier.
+     * @return The node before id in the ring, null if the ring is empty.
+     */
+    public ChordNode Predecessor(Identifier id)
+    {
+        if(mNodes.length == 0)
+            return null;
+        
+        int i = Arrays.binarySearch(mIds, id);
+        
+        if(i < 0)
+            i = -i - 1;
+        
+        return Get(i - 1);
+    }
+    
+    /**
+     * 
+     * @param n A node.
+     * @return Position of the node in the ring, -1 if it is not in the ring.
+     */
+    public int IndexOf(ChordNode n)
+    {
+        if(n == null)
+            return -1;
+        
+        int i = Arrays.binarySearch(mIds, n.PeerID().GetIdentifierID());
+        
+        return i >= 0 && mNodes[i] == n ? i : -1;
+    }
+    
+    /**
+     * 
+     * @param n A node.
+     * @return True if the node is in the ring.
+     */
+    public boolean Contains(ChordNode n)
+    {
+        return IndexOf(n) >= 0;
+    }
+}
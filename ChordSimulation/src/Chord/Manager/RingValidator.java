@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Manager;
+
+import Chord.ChordKey;
+import Chord.ChordNode;
+import Chord.Entries;
+import Chord.FingerTable.Finger;
+import Chord.FingerTable.FingerTable;
+import Chord.FingerTable.SuccessorList;
+import Chord.Identifier.Identifier;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Checks the routing state and the keys of every node against a snapshot 
+ * of the ring, using all cores. The result is a report that counts every 
+ * kind of defect found.
+ * 
+ * The nodes go on while they are checked, so on a ring that is changing a 
+ * few defects may be ones that were just fixed, or just made.
+ * 
+ * @see RingOracle
+ * @author Simon Edänge
+ */
+public class RingValidator
+{
+    /**
+     * What can be wrong in a ring.
+     */
+    public enum Defect
+    {
+        /**
+         * A finger points to a node in the ring that is not the successor of
+         * its start.
+         */
+        WRONG_FINGER("wrong fingers"),
+        
+        /**
+         * A finger points to a node that left the ring.
+         */
+        DEAD_FINGER("dead fingers"),
+        
+        /**
+         * A finger is empty, or the finger table is not initialized.
+         */
+        MISSING_FINGER("missing fingers"),
+        
+        /**
+         * A successor-list position holds a node in the ring that is not the
+         * successor at that position.
+         */
+        WRONG_SUCCESSOR("wrong successors"),
+        
+        /**
+         * A successor-list position holds a node that left the ring.
+         */
+        DEAD_SUCCESSOR("dead successors"),
+        
+        /**
+         * A successor-list position is empty.
+         */
+        MISSING_SUCCESSOR("missing successors"),
+        
+        /**
+         * The predecessor is a node in the ring, but not the one before.
+         */
+        WRONG_PREDECESSOR("wrong predecessors"),
+        
+        /**
+         * The predecessor left the ring.
+         */
+        DEAD_PREDECESSOR("dead predecessors"),
+        
+        /**
+         * The node has no predecessor.
+         */
+        MISSING_PREDECESSOR("missing predecessors"),
+        
+        /**
+         * The key of a node is not kept by the successor of the key.
+         */
+        MISSING_KEY("missing keys"),
+        
+        /**
+         * A node keeps a key it is not responsible for.
+         */
+        MISPLACED_KEY("misplaced keys"),
+        
+        /**
+         * A successor of the node responsible for a key has no replica of it.
+         */
+        MISSING_REPLICA("missing replicas"),
+        
+        /**
+         * A node keeps a replica of a key although it is not one of the 
+         * successors of the node responsible for it.
+         */
+        STALE_REPLICA("stale replicas");
+        
+        private final String mName;
+        
+        private Defect(String name)
+        {
+            mName = name;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return mName;
+        }
+    }
+    
+    /**
+     * The result of a validation.
+     */
+    public static class Report
+    {
+        private final long[] mDefects;
+        private final int mNodes;
+        private final long mFingers;
+        private final long mSuccessors;
+        private final long mKeys;
+        private final long mTime;
+        
+        Report(long[] defects, int nodes, long fingers, long successors, 
+                long keys, long time)
+        {
+            mDefects = defects;
+            mNodes = nodes;
+            mFingers = fingers;
+            mSuccessors = successors;
+            mKeys = keys;
+            mTime = time;
+        }
+        
+        /**
+         * 
+         * @param d A kind of defect.
+         * @return Number of defects of that kind.
+         */
+        public long GetCount(Defect d)
+        {
+            return mDefects[d.ordinal()];
+        }
+        
+        /**
+         * 
+         * @return Number of defects of all kinds.
+         */
+        public long GetTotal()
+        {
+            long total = 0;
+            
+            for(long c : mDefects)
+                total += c;
+            
+            return total;
+        }
+        
+        /**
+         * 
+         * @return True if no defect was found.
+         */
+        public boolean IsCorrect()
+        {
+            return GetTotal() == 0;
+        }
+        
+        /**
+         * 
+         * @return Number of nodes checked.
+         */
+        public int GetNodes()
+        {
+            return mNodes;
+        }
+        
+        /**
+         * 
+         * @return Number of fingers checked.
+         */
+        public long GetFingers()
+        {
+            return mFingers;
+        }
+        
+        /**
+         * 
+         * @return Number of successor-list positions checked.
+         */
+        public long GetSuccessors()
+        {
+            return mSuccessors;
+        }
+        
+        /**
+         * 
+         * @return Number of keys checked, with their replicas.
+         */
+        public long GetKeys()
+        {
+            return mKeys;
+        }
+        
+        /**
+         * 
+         * @return Time (ms) the validation took.
+         */
+        public long GetTime()
+        {
+            return mTime;
+        }
+        
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            
+            sb.append("Validated ").append(mNodes).append(" nodes, ")
+                    .append(mFingers).append(" fingers, ")
+                    .append(mSuccessors).append(" successors and ")
+                    .append(mKeys).append(" keys in ")
+                    .append(mTime).append(" ms, ");
+            
+            if(IsCorrect())
+                return sb.append("no defects").toString();
+            
+            sb.append(GetTotal()).append(" defects:");
+            
+            for(Defect d : Defect.values())
+            {
+                if(GetCount(d) > 0)
+                {
+                    sb.append(System.lineSeparator()).append("  ").append(d)
+                            .append(": ").append(GetCount(d));
+                }
+            }
+            
+            return sb.toString();
+        }
+    }
+    
+    private final CircleManager mCircle;
+    
+    /**
+     * Constructs a ring validator.
+     * 
+     * @param circle The ring to validate.
+     */
+    public RingValidator(CircleManager circle)
+    {
+        mCircle = circle;
+    }
+    
+    /**
+     * Validates every node in the ring.
+     * 
+     * @return The report.
+     */
+    public Report Validate()
+    {
+        long start = System.currentTimeMillis();
+        final RingOracle oracle = mCircle.CreateOracle();
+        final AtomicLongArray defects = 
+                new AtomicLongArray(Defect.values().length);
+        final AtomicLongArray checked = new AtomicLongArray(3);
+        
+        mCircle.RunParallel(oracle.GetSize(), 
+                new CircleManager.IndexTask()
+        {
+            @Override
+            public void Run(int i)
+            {
+                long[] found = new long[Defect.values().length];
+                ChordNode n = oracle.Get(i);
+                
+                checked.addAndGet(0, CheckFingers(oracle, n, found));
+                checked.addAndGet(1, CheckSuccessors(oracle, i, found));
+                CheckPredecessor(oracle, i, found);
+                checked.addAndGet(2, CheckKeys(oracle, i, found));
+                
+                for(int d = 0; d < found.length; d++)
+                {
+                    if(found[d] != 0)
+                        defects.addAndGet(d, found[d]);
+                }
+            }
+        });
+        
+        long[] counts = new long[defects.length()];
+        
+        for(int d = 0; d < counts.length; d++)
+            counts[d] = defects.get(d);
+        
+        return new Report(counts, oracle.GetSize(), checked.get(0), 
+                checked.get(1), checked.get(2), 
+                System.currentTimeMillis() - start);
+    }
+    
+    private static void Add(long[] found, Defect d)
+    {
+        found[d.ordinal()]++;
+    }
+    
+    /**
+     * Checks that every finger is the true successor of its start. A finger 
+     * that would point to the node itself may be empty.
+     * 
+     * @return Number of fingers checked.
+     */
+    private static int CheckFingers(RingOracle oracle, ChordNode n, 
+            long[] found)
+    {
+        FingerTable table = n.GetFingerTable();
+        int fingers = table.GetMaxFingers();
+        
+        for(int i = 0; i < fingers; i++)
+        {
+            Finger f = table.Get(i);
+            
+            if(f == null || f.start == null)
+            {
+                Add(found, Defect.MISSING_FINGER);
+                continue;
+            }
+            
+            ChordNode node = f.node;
+            ChordNode truth = oracle.Successor(f.start.GetIdentifierID());
+            
+            if(node == truth || (node == null && truth == n))
+                continue;
+            
+            if(node == null)
+                Add(found, Defect.MISSING_FINGER);
+            else if(!oracle.Contains(node))
+                Add(found, Defect.DEAD_FINGER);
+            else
+                Add(found, Defect.WRONG_FINGER);
+        }
+        
+        return fingers;
+    }
+    
+    /**
+     * Checks that the successor-list holds the next nodes in the ring, and 
+     * is empty after them if the ring is smaller than the list.
+     * 
+     * @return Number of positions checked.
+     */
+    private static int CheckSuccessors(RingOracle oracle, int index, 
+            long[] found)
+    {
+        SuccessorList list = oracle.Get(index).GetSuccessorList();
+        int successors = list.GetMaxSuccesors();
+        
+        for(int j = 0; j < successors; j++)
+        {
+            ChordNode s = list.Get(j);
+            ChordNode truth = j < oracle.GetSize() - 1 
+                    ? oracle.Get(index + 1 + j) : null;
+            
+            if(s == truth)
+                continue;
+            
+            if(s == null)
+                Add(found, Defect.MISSING_SUCCESSOR);
+            else if(!oracle.Contains(s))
+                Add(found, Defect.DEAD_SUCCESSOR);
+            else
+                Add(found, Defect.WRONG_SUCCESSOR);
+        }
+        
+        return successors;
+    }
+    
+    /**
+     * Checks that the predecessor is the node before in the ring. A node 
+     * alone in the ring has none.
+     */
+    private static void CheckPredecessor(RingOracle oracle, int index, 
+            long[] found)
+    {
+        ChordNode p = oracle.Get(index).GetFingerTable().GetPredecessor();
+        ChordNode truth = oracle.GetSize() > 1 ? oracle.Get(index - 1) : null;
+        
+        if(p == truth)
+            return;
+        
+        if(p == null)
+            Add(found, Defect.MISSING_PREDECESSOR);
+        else if(!oracle.Contains(p))
+            Add(found, Defect.DEAD_PREDECESSOR);
+        else
+            Add(found, Defect.WRONG_PREDECESSOR);
+    }
+    
+    /**
+     * Checks the keys and replicas a node keeps, and that the key of the 
+     * node is kept, and replicated, where it should be.
+     * 
+     * @return Number of keys checked.
+     */
+    private static int CheckKeys(RingOracle oracle, int index, long[] found)
+    {
+        ChordNode n = oracle.Get(index);
+        Entries entries = n.GetSuccessorList().GetEntries();
+        int bits = n.PeerID().GetIdentifierID().Bits();
+        int size = oracle.GetSize();
+        
+        for(ChordKey k : entries.GetAllKeys())
+        {
+            if(oracle.Successor(Identifier.Create(k.KEY, bits)) != n)
+                Add(found, Defect.MISPLACED_KEY);
+        }
+        
+        for(ChordKey k : entries.GetAllReplicas())
+        {
+            int owner = oracle.SuccessorIndex(Identifier.Create(k.KEY, bits));
+            int distance = ((index - owner) % size + size) % size;
+            
+            if(distance == 0 || distance > Replicas(oracle, owner))
+                Add(found, Defect.STALE_REPLICA);
+        }
+        
+        //The key of this node.
+        Identifier key = n.PeerID().GetKeyID();
+        int owner = oracle.SuccessorIndex(key);
+        
+        if(!oracle.Get(owner).GetSuccessorList().GetEntries().HasKey(key))
+            Add(found, Defect.MISSING_KEY);
+        
+        for(int j = 1; j <= Replicas(oracle, owner); j++)
+        {
+            if(!oracle.Get(owner + j).GetSuccessorList().GetEntries()
+                    .HasReplica(key))
+            {
+                Add(found, Defect.MISSING_REPLICA);
+            }
+        }
+        
+        return 1;
+    }
+    
+    /**
+     * 
+     * @return Number of nodes that should keep a replica of the keys of a 
+     * node, its successors that are in the ring.
+     */
+    private static int Replicas(RingOracle oracle, int owner)
+    {
+        return Math.min(oracle.Get(owner).GetSuccessorList()
+                .GetMaxSuccesors(), oracle.GetSize() - 1);
+    }
+}
@@ -20,12 +20,14 @@ package Chord.Tasks;
 
 import Chord.ChordNode;
 import Chord.FakeRMIEvents.ReturnRMIevents.PingEventRE;
+import java.util.function.Consumer;
 
 /**
  * This class is used as a background worker, and called every time t.
  * 
  * It checks if the current predecessor of this local node
  * has died. If so, it will be set to null.
+ * The ping is sent asynchronously, so no thread waits for the reply.
  * 
  * @author Simon Edänge
  */
@@ -50,18 +52,27 @@ public class CheckPredecessorTask implements Runnable
     
     private void CheckPredecessor()
     {
-       ChordNode pred = mLocal.predecessor();
+       final ChordNode pred = mLocal.predecessor();
 
        if(pred != null)
        {
            //ping the pred, to check if running
-           PingEventRE re = mLocal.GetCOM().Ping(pred);
-           
-           if(re == null)
+           mLocal.GetCOM().PingAsync(pred).thenAcceptAsync(
+                   new Consumer<PingEventRE>()
            {
-               //Node is down, remove
-               mLocal.GetFingerTable().RemoveNode(pred);
-           } 
+               @Override
+               public void accept(PingEventRE re)
+               {
+                   if(re == null)
+                   {
+                       //Node is down, remove
+                       mLocal.GetFingerTable().RemoveNode(pred);
+                       mLocal.GetMaintenance().Changed();
+                   }
+               }
+           }, mLocal.GetExecutor());
        }
+       
+       mLocal.GetMaintenance().CheckPredecessorDone();
     }
 }
@@ -48,7 +48,7 @@ public class ClosestPrecedingFingerTask extends EventTask
         ChordNode result = mLocal.closestPrecedingNode(cpfe.NODE_TARGET);
 
         mLocal.GetCOM().GetReturnCOM().ClosestPrecedingFingerEventRETURN(
-                cpfe.GetUUID(), result, cpfe.NODE_CALLER);
+                cpfe.GetID(), result, cpfe.NODE_CALLER);
     }
     
 }
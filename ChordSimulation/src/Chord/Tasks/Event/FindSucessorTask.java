@@ -20,6 +20,7 @@ package Chord.Tasks.Event;
 
 import Chord.ChordNode;
 import Chord.FakeRMIEvents.FindSuccessorEvent;
+import java.util.function.Consumer;
 
 /**
  * Perform a successor lookup in this local node and return the results to the
@@ -40,14 +41,24 @@ public class FindSucessorTask extends EventTask
     {
         if(mEvent instanceof FindSuccessorEvent && mLocal != null )
         {   
-            FindSuccessorEvent e = (FindSuccessorEvent)mEvent;
+            final FindSuccessorEvent e = (FindSuccessorEvent)mEvent;
             
             if(e.NODE_CALLER == null)
                 return;
             
-            ChordNode result = mLocal.findSuccessor(e.TARGET);
-            mLocal.GetCOM().GetReturnCOM().FindSuccessorEventRETURN(
-                    e.GetUUID(), result, e.NODE_CALLER);
+            //Reply when the forwarded query is answered, the worker is not
+            //blocked meanwhile. On failure no reply is sent and the caller
+            //times out.
+            mLocal.findSuccessorAsync(e.TARGET).thenAccept(
+                    new Consumer<ChordNode>()
+            {
+                @Override
+                public void accept(ChordNode result)
+                {
+                    mLocal.GetCOM().GetReturnCOM().FindSuccessorEventRETURN(
+                            e.GetID(), result, e.NODE_CALLER);
+                }
+            });
         }
     }
     
@@ -21,6 +21,7 @@ package Chord.Tasks.Event;
 import Chord.ChordNode;
 import Chord.Entries;
 import Chord.FakeRMIEvents.ReturnRMIevents.LookupEventRE;
+import Process.Log;
 import Process.ProcessEvent;
 
 /**
@@ -46,11 +47,12 @@ public class LookupTask extends EventTask
         Chord.FakeRMIEvents.LookupEvent le = 
                 (Chord.FakeRMIEvents.LookupEvent)mEvent;
         
-        String ID;
+        long ID;
         Entries entries = mLocal.GetSuccessorList().GetEntries();
         
-        System.out.println(mLocal.PeerID().GetIdentifierCH() + ", Lookup rec from " 
-                + le.NODE_CALLER.PeerID().GetIdentifierCH());
+        Log.Write(Log.Category.LOOKUP, Log.Level.DEBUG, 
+                mLocal.PeerID().GetIdentifierCH(), ", Lookup rec from ", 
+                le.NODE_CALLER.PeerID().GetIdentifierCH());
 
         if(le.NODE_CALLER == null)
             return;
@@ -60,16 +62,16 @@ public class LookupTask extends EventTask
         if(le.NODE_CALLER != le.NODE_CALLER_ORIGIN)
         {
             mLocal.GetCOM().GetReturnCOM().LookupEventRETURN(
-                    le.GetUUID(), null, 
+                    le.GetID(), null, 
                     LookupEventRE.Status.STATUS_FOWARED, 
                     le.HOP_DATA, 
                     le.NODE_CALLER);
             
-            ID = le.NODE_CALLER_ORIGIN_UUID;
+            ID = le.NODE_CALLER_ORIGIN_ID;
         }
         else
         {
-            ID = le.GetUUID();
+            ID = le.GetID();
         }
 
         ChordNode result = mLocal.lookup(le.TARGET, 
@@ -77,12 +79,13 @@ public class LookupTask extends EventTask
 
         if( result == mLocal )
         {
-            if( entries.HasKey(le.TARGET.GetKeyCH()) 
-                    ||  entries.HasReplica(le.TARGET.GetKeyCH()) )
+            if( entries.HasKey(le.TARGET.GetKeyID()) 
+                    ||  entries.HasReplica(le.TARGET.GetKeyID()) )
             {
                 
-                System.out.println(mLocal.PeerID().GetIdentifierCH() 
-                        + " Target found, returning to caller");
+                Log.Write(Log.Category.LOOKUP, Log.Level.DEBUG, 
+                        mLocal.PeerID().GetIdentifierCH(), 
+                        " Target found, returning to caller");
 
                 mLocal.GetCOM().GetReturnCOM().LookupEventRETURN(
                         ID, result, 
@@ -93,8 +96,9 @@ public class LookupTask extends EventTask
             
             else
             {
-                System.out.println(mLocal.PeerID().GetIdentifierCH() 
-                        + " Target NOT found, returning to caller");
+                Log.Write(Log.Category.LOOKUP, Log.Level.DEBUG, 
+                        mLocal.PeerID().GetIdentifierCH(), 
+                        " Target NOT found, returning to caller");
                 
                 mLocal.GetCOM().GetReturnCOM().LookupEventRETURN(
                         ID, result, 
@@ -54,7 +54,7 @@ public class NotifyTask extends EventTask
             
    
             mLocal.GetCOM().GetReturnCOM().NotifyEventRETURN(
-                    mEvent.GetUUID()
+                    mEvent.GetID()
                     ,oldPred
                     ,mySuccessors
                     ,caller);
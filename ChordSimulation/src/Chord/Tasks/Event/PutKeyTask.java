@@ -46,7 +46,7 @@ public class PutKeyTask extends EventTask
         boolean added = mLocal.PutKey(keys);
 
         mLocal.GetCOM().GetReturnCOM().PutKeyEventRETURN(
-                ev.GetUUID(), 
+                ev.GetID(), 
                 added, 
         ev.NODE_CALLER);
     }
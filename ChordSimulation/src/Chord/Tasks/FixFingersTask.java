@@ -25,7 +25,8 @@ import Chord.FingerTable.FingerTable;
 /**
  * This class is used as a background worker, and called every time t.
  * 
- * It corrects the finger entries in the local nodes finger table.
+ * It corrects the finger entries in the local nodes finger table, a number
+ * of fingers per round as given by the nodes MaintenancePolicy.
  * 
  * @author Simon Edänge
  */
@@ -43,29 +44,47 @@ public class FixFingersTask implements Runnable
     @Override
     public void run()
     {
-        if(mLocal != null)
-            FixFingers();
+        if(mLocal == null)
+            return;
+        
+        int fingers = mLocal.GetMaintenance().GetPolicy().GetFingersPerRound();
+        boolean changed = false;
+        
+        for(int i = 0; i < fingers; i++)
+            changed |= FixFingers();
+        
+        mLocal.GetMaintenance().FixFingersDone(changed);
     }
     
-    private void FixFingers()
+    /**
+     * Fixes the next finger.
+     * @return True if the finger changed.
+     */
+    private boolean FixFingers()
     {
         FingerTable fingerTable = mLocal.GetFingerTable();
         if( mFixFingerIndex >= fingerTable.GetSize() )
             mFixFingerIndex = 0;
         
         ChordNode n;
-        Finger f = fingerTable.Get(mFixFingerIndex++);
+        int index = mFixFingerIndex++;
+        Finger f = fingerTable.Get(index);
         
         if(f == null)
-            return;
+            return false;
                     
         n = mLocal.findSuccessor(f.start);
 
         if(n != null && n != mLocal)
         {
-            f.node = n;
+            boolean changed = fingerTable.SetFinger(index, n);
+            
             fingerTable.AddSuccessorToList(n);
+            
+            return changed;
         }
+        
+        return false;
     }
     
 }
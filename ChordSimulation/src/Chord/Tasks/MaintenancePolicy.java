@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Tasks;
+
+/**
+ * Decides how often a node runs its background tasks (Stabilize, FixFingers
+ * and CheckPredecessor), and how many fingers are fixed per round.
+ * 
+ * The interval of a task starts at the minimum. Every round that changes
+ * nothing doubles it, up to the maximum, and any change observed by the
+ * node brings all tasks back to the minimum. A policy where the minimum
+ * equals the maximum gives fixed intervals.
+ * 
+ * @see MaintenanceSchedule
+ * @author Simon Edänge
+ */
+public class MaintenancePolicy
+{
+    /**
+     * Adaptive, 1 to 30 seconds, 4 fingers per round.
+     */
+    public static final MaintenancePolicy DEFAULT 
+            = new MaintenancePolicy(1000, 30000, 4);
+    
+    /**
+     * Fixed 6 second intervals, 1 finger per round.
+     */
+    public static final MaintenancePolicy FIXED 
+            = new MaintenancePolicy(6000, 6000, 1);
+    
+    private final long mMin;
+    private final long mMax;
+    private final int mFingersPerRound;
+    
+    /**
+     * Constructs a policy.
+     * 
+     * @param min Shortest interval (ms).
+     * @param max Longest interval (ms).
+     * @param fingersPerRound Fingers fixed in every FixFingers round.
+     */
+    public MaintenancePolicy(long min, long max, int fingersPerRound)
+    {
+        if(min <= 0 || max < min || fingersPerRound <= 0)
+            throw new IllegalArgumentException("Invalid maintenance policy");
+        
+        mMin = min;
+        mMax = max;
+        mFingersPerRound = fingersPerRound;
+    }
+    
+    /**
+     * 
+     * @return Shortest interval (ms).
+     */
+    public long GetMinInterval()
+    {
+        return mMin;
+    }
+    
+    /**
+     * 
+     * @return Longest interval (ms).
+     */
+    public long GetMaxInterval()
+    {
+        return mMax;
+    }
+    
+    /**
+     * 
+     * @return Fingers fixed in every FixFingers round.
+     */
+    public int GetFingersPerRound()
+    {
+        return mFingersPerRound;
+    }
+    
+    /**
+     * 
+     * @return True if the intervals change with the activity in the ring.
+     */
+    public boolean IsAdaptive()
+    {
+        return mMin < mMax;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return mMin + ".." + mMax + " ms, " + mFingersPerRound 
+                + " fingers per round";
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Chord.Tasks;
+
+import Chord.ChordNode;
+import Process.SimulationKernel;
+import Process.SimulationKernel.PeriodicTask;
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules the background tasks of one node, following a 
+ * MaintenancePolicy. Rounds that change nothing make the task run less 
+ * often, and a change seen by the node (a new successor, predecessor or 
+ * finger, a dead node or moved keys) makes all tasks run at the shortest 
+ * interval again. The maintenance traffic then follows the churn instead of
+ * the number of nodes.
+ * 
+ * @see MaintenancePolicy
+ * @author Simon Edänge
+ */
+public class MaintenanceSchedule
+{
+    private final MaintenancePolicy mPolicy;
+    private final Interval mStabilize;
+    private final Interval mFixFingers;
+    private final Interval mCheckPredecessor;
+    
+    /**
+     * Constructs a schedule.
+     * 
+     * @param policy The policy to follow.
+     */
+    public MaintenanceSchedule(MaintenancePolicy policy)
+    {
+        mPolicy = policy;
+        mStabilize = new Interval();
+        mFixFingers = new Interval();
+        mCheckPredecessor = new Interval();
+    }
+    
+    /**
+     * Starts the background tasks of a node.
+     * 
+     * @param self The node.
+     * @param kernel The kernel timing the tasks.
+     * @param worker The executor running the tasks.
+     * @param offset Time (ms) before the first stabilize.
+     * @param quiet True if the node starts in a stable ring, the tasks then
+     * start at the longest interval.
+     */
+    public void Start(ChordNode self, SimulationKernel kernel, Executor worker,
+            long offset, boolean quiet)
+    {
+        long first = mPolicy.GetMinInterval();
+        
+        if(quiet)
+        {
+            first = mPolicy.GetMaxInterval();
+            mStabilize.mCurrent = first;
+            mFixFingers.mCurrent = first;
+            mCheckPredecessor.mCurrent = first;
+        }
+        
+        mStabilize.Start(kernel.SchedulePeriodic(new StabilizeTask(self), 
+                offset, mStabilize, worker));
+        mFixFingers.Start(kernel.SchedulePeriodic(new FixFingersTask(self), 
+                first + offset, mFixFingers, worker));
+        mCheckPredecessor.Start(kernel.SchedulePeriodic(
+                new CheckPredecessorTask(self), first + offset, 
+                mCheckPredecessor, worker));
+    }
+    
+    /**
+     * Stops the background tasks.
+     */
+    public void Stop()
+    {
+        mStabilize.Stop();
+        mFixFingers.Stop();
+        mCheckPredecessor.Stop();
+    }
+    
+    /**
+     * Tells the schedule that the node has seen a change in the ring. All
+     * tasks go back to the shortest interval.
+     */
+    public void Changed()
+    {
+        if(!mPolicy.IsAdaptive())
+            return;
+        
+        mStabilize.Reset();
+        mFixFingers.Reset();
+        mCheckPredecessor.Reset();
+    }
+    
+    /**
+     * Called when a stabilize round is done.
+     * 
+     * @param changed True if the round changed anything.
+     */
+    void StabilizeDone(boolean changed)
+    {
+        Done(mStabilize, changed);
+    }
+    
+    /**
+     * Called when a fix fingers round is done.
+     * 
+     * @param changed True if the round changed any finger.
+     */
+    void FixFingersDone(boolean changed)
+    {
+        Done(mFixFingers, changed);
+    }
+    
+    /**
+     * Called when a check predecessor round is done. A dead predecessor is
+     * reported with Changed, when the ping has timed out.
+     */
+    void CheckPredecessorDone()
+    {
+        Done(mCheckPredecessor, false);
+    }
+    
+    private void Done(Interval interval, boolean changed)
+    {
+        if(changed)
+            Changed();
+        else
+            interval.Quiet();
+    }
+    
+    /**
+     * 
+     * @return The policy followed.
+     */
+    public MaintenancePolicy GetPolicy()
+    {
+        return mPolicy;
+    }
+    
+    /**
+     * 
+     * @return Current stabilize interval (ms).
+     */
+    public long GetStabilizeInterval()
+    {
+        return mStabilize.mCurrent;
+    }
+    
+    /**
+     * The interval of one task.
+     */
+    private class Interval implements SimulationKernel.Delay
+    {
+        private volatile long mCurrent = mPolicy.GetMinInterval();
+        private volatile PeriodicTask mTask = null;
+        
+        void Start(PeriodicTask task)
+        {
+            mTask = task;
+        }
+        
+        void Stop()
+        {
+            PeriodicTask t = mTask;
+            
+            if(t != null)
+                t.Cancel();
+        }
+        
+        void Quiet()
+        {
+            mCurrent = Math.min(mPolicy.GetMaxInterval(), mCurrent * 2);
+        }
+        
+        void Reset()
+        {
+            long min = mPolicy.GetMinInterval();
+            boolean wasQuiet = mCurrent > min;
+            mCurrent = min;
+            
+            PeriodicTask t = mTask;
+            
+            if(wasQuiet && t != null)
+                t.RunWithin(min);
+        }
+
+        @Override
+        public long Next()
+        {
+            return mCurrent;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import Chord.FakeRMIEvents.ReturnRMIevents.NotifyEventRE;
 import Chord.FakeRMIEvents.ReturnRMIevents.TransferKeysEventRE;
 import Chord.FakeRMIEvents.ReturnRMIevents.RetrieveKeysEventRE;
 import Chord.FingerTable.FingerTable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -60,8 +61,26 @@ public class StabilizeTask implements Runnable
     @Override
     public void run()
     {
-        if( mLocalNode != null )
-            Stabilize();
+        if( mLocalNode == null )
+            return;
+        
+        Entries entries = mLocalNode.GetSuccessorList().GetEntries();
+        ChordNode successor = mLocalNode.successor();
+        ChordNode predecessor = mLocalNode.predecessor();
+        ChordNode[] successors = mLocalNode.GetSuccessorList().GetArray();
+        int keys = entries.GetAllKeys().size();
+        int replicas = entries.GetAllReplicas().size();
+        
+        Stabilize();
+        
+        boolean changed = successor != mLocalNode.successor()
+                || predecessor != mLocalNode.predecessor()
+                || !Arrays.equals(successors, 
+                        mLocalNode.GetSuccessorList().GetArray())
+                || keys != entries.GetAllKeys().size()
+                || replicas != entries.GetAllReplicas().size();
+        
+        mLocalNode.GetMaintenance().StabilizeDone(changed);
     }
     
     public void Stabilize()
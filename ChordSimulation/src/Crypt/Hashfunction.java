@@ -18,21 +18,129 @@
  */
 package Crypt;
 
-import java.io.UnsupportedEncodingException;
+import Chord.Identifier.Identifier;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
 
 /**
  * This class has static methods that will hash (sha1) a value or perform
  * Consistent hashing on the hash value.
  * It is used to determine the position of a node/key on the ring.
  * 
+ * Each thread reuses its own MessageDigest and buffers, and HashIdentifier
+ * writes the raw digest straight into an Identifier without creating any
+ * hex String or BigInteger.
+ * 
  * @author Simon Edänge
  */
 public class Hashfunction
 {
+    /**
+     * Length of a sha1 digest in bytes.
+     */
+    public static final int DIGEST_LENGTH = 20;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    /**
+     * The per thread hashing state.
+     */
+    private static final class Sha1
+    {
+        final MessageDigest DIGEST;
+        final byte[] OUT;
+        byte[] mIn;
+        
+        Sha1()
+        {
+            try
+            {
+                DIGEST = MessageDigest.getInstance("SHA-1");
+            }
+            catch(NoSuchAlgorithmException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            
+            OUT = new byte[DIGEST_LENGTH];
+            mIn = new byte[64];
+        }
+        
+        /**
+         * Hashes a String into OUT.
+         * 
+         * @param value To be hashed.
+         */
+        void Hash(String value)
+        {
+            int length = value.length();
+            
+            if(length > mIn.length)
+                mIn = new byte[Math.max(length, mIn.length * 2)];
+            
+            //ASCII is encoded in place, anything else goes through UTF-8.
+            for(int i = 0; i < length; i++)
+            {
+                char c = value.charAt(i);
+                
+                if(c >= 0x80)
+                {
+                    DIGEST.update(value.getBytes(StandardCharsets.UTF_8));
+                    Finish();
+                    return;
+                }
+                
+                mIn[i] = (byte)c;
+            }
+            
+            DIGEST.update(mIn, 0, length);
+            Finish();
+        }
+        
+        private void Finish()
+        {
+            try
+            {
+                DIGEST.digest(OUT, 0, DIGEST_LENGTH);
+            }
+            catch(DigestException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    private static final ThreadLocal<Sha1> SHA1 = new ThreadLocal<Sha1>()
+    {
+        @Override
+        protected Sha1 initialValue()
+        {
+            return new Sha1();
+        }
+    };
+    
+    /**
+     * Hashes a value with sha1 and performs consistent hashing on it, giving
+     * a position between 0 and 2^bits - 1.
+     * 
+     * @param value To be hashed.
+     * @param bits Bits used in the Chord ring.
+     * @return The position, null if value is null or empty.
+     */
+    public static Identifier HashIdentifier(String value, int bits)
+    {
+        if( value == null || value.isEmpty() )
+            return null;
+        
+        Sha1 sha1 = SHA1.get();
+        sha1.Hash(value);
+        
+        return Identifier.FromDigest(sha1.OUT, DIGEST_LENGTH, bits);
+    }
+    
     /**
      * Takes an input value String that will be hashed with sha1, and returned.
      * 
@@ -44,19 +152,10 @@ public class Hashfunction
         if( value == null || value.isEmpty() )
             return null;
         
-        String sha1 = "";
-        try
-        {
-            MessageDigest crypt = MessageDigest.getInstance("SHA-1");
-            crypt.reset();
-            crypt.update(value.getBytes("UTF-8"));
-            sha1 = ByteToHex(crypt.digest());
-        }
-        catch(NoSuchAlgorithmException | UnsupportedEncodingException e)
-        {
-            e.printStackTrace();
-        }
-        return sha1;
+        Sha1 sha1 = SHA1.get();
+        sha1.Hash(value);
+        
+        return ByteToHex(sha1.OUT);
     }
     
     /**
@@ -67,15 +166,15 @@ public class Hashfunction
      */
     private static String ByteToHex(final byte[] hash)
     {
-        Formatter formatter = new Formatter();
-        for (byte b : hash)
+        char[] hex = new char[hash.length * 2];
+        
+        for(int i = 0; i < hash.length; i++)
         {
-            formatter.format("%02x", b);
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
         }
-        String result = formatter.toString();
-        formatter.close();
         
-        return result;
+        return new String(hex);
     }
     
     /**
@@ -89,13 +188,13 @@ public class Hashfunction
     {
         if( hash == null || hash.isEmpty() )
             return null;
-                
-       BigInteger bi1 = new BigInteger(hash, 16);
-       BigInteger bi2 = new BigInteger("2");
-       
-       BigInteger a = (bi1.mod(bi2.pow(mod)));
-       
-       return a;
+        
+        BigInteger value = new BigInteger(hash, 16);
+        
+        if(value.bitLength() <= mod)
+            return value;
+        
+        return value.and(BigInteger.ONE.shiftLeft(mod).subtract(BigInteger.ONE));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package GUI;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+
+/**
+ * The text of the console, shown in a JTextArea. 
+ * 
+ * Only the last lines are kept, up to a fixed number. Text can be added 
+ * from any thread. It is collected and shown in batches, at most once per 
+ * refresh interval, so the Swing thread gets one update per interval no 
+ * matter how much is printed. If more lines are added in one interval than
+ * the console keeps, the oldest of them are never shown.
+ * 
+ * The console can be paused. It then keeps recording lines, but does not
+ * update the text area until it is resumed.
+ * 
+ * @author Simon Edänge
+ */
+public class ConsoleModel
+{
+    /**
+     * Lines kept, unless specified.
+     */
+    public static final int DEFAULT_CAPACITY = 5000;
+    
+    /**
+     * Time (ms) between two updates of the text area, unless specified.
+     */
+    public static final int DEFAULT_REFRESH = 100;
+    
+    private final JTextArea mView;
+    private final int mCapacity;
+    private final Timer mTimer;
+    
+    //The kept lines, the last mUnshown of them are not shown yet.
+    private final Deque<String> mLines;
+    private final StringBuilder mPartial;
+    private int mUnshown;
+    private boolean mRebuild;
+    private long mDropped;
+    private volatile boolean mPaused;
+    
+    //Number of lines in the text area, only used on the Swing thread.
+    private int mShown;
+    
+    /**
+     * Constructs a console with the default capacity and refresh interval.
+     * 
+     * @param view The text area to show the console in.
+     */
+    public ConsoleModel(JTextArea view)
+    {
+        this(view, DEFAULT_CAPACITY, DEFAULT_REFRESH);
+    }
+    
+    /**
+     * Constructs a console.
+     * 
+     * @param view The text area to show the console in.
+     * @param capacity Number of lines kept.
+     * @param refresh Time (ms) between two updates of the text area.
+     */
+    public ConsoleModel(JTextArea view, int capacity, int refresh)
+    {
+        if(view == null)
+            throw new IllegalArgumentException("View is null");
+        
+        if(capacity <= 0 || refresh <= 0)
+            throw new IllegalArgumentException("Invalid console size");
+        
+        mView = view;
+        mCapacity = capacity;
+        mLines = new ArrayDeque<>();
+        mPartial = new StringBuilder();
+        mUnshown = 0;
+        mRebuild = false;
+        mDropped = 0;
+        mPaused = false;
+        mShown = 0;
+        
+        mTimer = new Timer(refresh, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                Refresh();
+            }
+        });
+        mTimer.setCoalesce(true);
+        mTimer.start();
+    }
+    
+    /**
+     * Adds text to the console. A line is complete when its line break is
+     * added. May be called from any thread.
+     * 
+     * @param text The text.
+     */
+    public synchronized void Append(String text)
+    {
+        int start = 0;
+        int end;
+        
+        while((end = text.indexOf('\n', start)) >= 0)
+        {
+            int lineEnd = end > start && text.charAt(end - 1) == '\r' 
+                    ? end - 1 : end;
+            
+            mPartial.append(text, start, lineEnd);
+            AddLine(mPartial.toString());
+            mPartial.setLength(0);
+            start = end + 1;
+        }
+        
+        mPartial.append(text, start, text.length());
+    }
+    
+    private void AddLine(String line)
+    {
+        mLines.addLast(line);
+        mUnshown++;
+        
+        if(mLines.size() > mCapacity)
+        {
+            mLines.removeFirst();
+            
+            if(mUnshown > mCapacity)
+            {
+                mUnshown = mCapacity;
+                mDropped++;
+            }
+        }
+    }
+    
+    /**
+     * Updates the text area with the lines added since the last update.
+     * Called on the Swing thread by the timer.
+     */
+    private void Refresh()
+    {
+        if(mPaused)
+            return;
+        
+        String text;
+        int lines;
+        boolean rebuild;
+        
+        synchronized(this)
+        {
+            if(!mRebuild && mUnshown == 0)
+                return;
+            
+            //If all kept lines are new, the text area is replaced.
+            rebuild = mRebuild || mUnshown == mLines.size();
+            lines = rebuild ? mLines.size() : mUnshown;
+            
+            StringBuilder sb = new StringBuilder();
+            int skip = mLines.size() - lines;
+            
+            for(String line : mLines)
+            {
+                if(skip-- <= 0)
+                    sb.append(line).append('\n');
+            }
+            
+            text = sb.toString();
+            mUnshown = 0;
+            mRebuild = false;
+        }
+        
+        if(rebuild)
+        {
+            mView.setText(text);
+            mShown = lines;
+        }
+        else
+        {
+            mView.append(text);
+            mShown += lines;
+            
+            if(mShown > mCapacity)
+            {
+                try
+                {
+                    int end = mView.getLineEndOffset(mShown - mCapacity - 1);
+                    mView.replaceRange("", 0, end);
+                    mShown = mCapacity;
+                }
+                catch(BadLocationException ex)
+                {
+                    mView.setText(text);
+                    mShown = lines;
+                }
+            }
+        }
+        
+        mView.setCaretPosition(mView.getDocument().getLength());
+    }
+    
+    /**
+     * Pauses or resumes updating the text area. Lines are still recorded 
+     * while paused, and the kept ones are shown when resumed.
+     * 
+     * @param paused True to pause.
+     */
+    public void SetPaused(boolean paused)
+    {
+        if(!paused && mPaused)
+        {
+            synchronized(this)
+            {
+                mRebuild = true;
+            }
+        }
+        
+        mPaused = paused;
+    }
+    
+    /**
+     * 
+     * @return True if the text area is not updated.
+     */
+    public boolean IsPaused()
+    {
+        return mPaused;
+    }
+    
+    /**
+     * Removes all lines from the console and the text area.
+     */
+    public void Clear()
+    {
+        synchronized(this)
+        {
+            mLines.clear();
+            mPartial.setLength(0);
+            mUnshown = 0;
+            mRebuild = false;
+        }
+        
+        Runnable clear = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mView.setText("");
+                mShown = 0;
+            }
+        };
+        
+        if(SwingUtilities.isEventDispatchThread())
+            clear.run();
+        else
+            SwingUtilities.invokeLater(clear);
+    }
+    
+    /**
+     * Stops updating the text area.
+     */
+    public void Stop()
+    {
+        mTimer.stop();
+    }
+    
+    /**
+     * 
+     * @return Number of lines kept.
+     */
+    public int GetCapacity()
+    {
+        return mCapacity;
+    }
+    
+    /**
+     * 
+     * @return Number of lines that were dropped before they were shown,
+     * because they came faster than they could be shown or the console was
+     * paused.
+     */
+    public synchronized long GetDropped()
+    {
+        return mDropped;
+    }
+}
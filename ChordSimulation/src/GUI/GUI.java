@@ -55,6 +55,7 @@ public class GUI extends javax.swing.JFrame
     
     private ChordManager mManager;
     private ScheduledExecutorService mMaintenanceTasks;
+    private final ConsoleModel mConsole;
     
     /**
      * Creates new form GUI
@@ -64,7 +65,8 @@ public class GUI extends javax.swing.JFrame
         initComponents();
         mManager = null;
         
-        JTextAreaOutputStream out = new JTextAreaOutputStream (jTextArea1);
+        mConsole = new ConsoleModel(jTextArea1);
+        JTextAreaOutputStream out = new JTextAreaOutputStream (mConsole);
         System.setOut (new PrintStream (out));
         jTextField2.setText(jTextField2.getText());
     }
@@ -104,6 +106,7 @@ public class GUI extends javax.swing.JFrame
         jButton8 = new javax.swing.JButton();
         jLabel6 = new javax.swing.JLabel();
         jLabel7 = new javax.swing.JLabel();
+        jToggleButton2 = new javax.swing.JToggleButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
 
@@ -282,6 +285,13 @@ public class GUI extends javax.swing.JFrame
 
         jLabel7.setText("0%");
 
+        jToggleButton2.setText("Pause Text");
+        jToggleButton2.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jToggleButton2ActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout jPanel2Layout = new javax.swing.GroupLayout(jPanel2);
         jPanel2.setLayout(jPanel2Layout);
         jPanel2Layout.setHorizontalGroup(
@@ -323,7 +333,9 @@ public class GUI extends javax.swing.JFrame
                                         .addComponent(jLabel4))
                                     .addGroup(jPanel2Layout.createSequentialGroup()
                                         .addComponent(jButton8)
-                                        .addGap(38, 38, 38)
+                                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                        .addComponent(jToggleButton2)
+                                        .addGap(18, 18, 18)
                                         .addComponent(jButton7)))
                                 .addGap(22, 22, 22)
                                 .addGroup(jPanel2Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
@@ -362,7 +374,8 @@ public class GUI extends javax.swing.JFrame
                             .addComponent(jTextField4, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                             .addComponent(jButton7)
                             .addComponent(jLabel5)
-                            .addComponent(jButton8)))
+                            .addComponent(jButton8)
+                            .addComponent(jToggleButton2)))
                     .addGroup(jPanel2Layout.createSequentialGroup()
                         .addGroup(jPanel2Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                             .addComponent(jComboBox1, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
@@ -414,7 +427,7 @@ public class GUI extends javax.swing.JFrame
             // start thread which periodically stabilizes with successor
             this.mMaintenanceTasks.scheduleWithFixedDelay(
                     new StabilityCheck(mManager.GetCircleManager(), jLabel7)
-                    , 8, 8, TimeUnit.SECONDS);
+                    , 100, 100, TimeUnit.MILLISECONDS);
             
              
         }
@@ -423,7 +436,7 @@ public class GUI extends javax.swing.JFrame
             this.mMaintenanceTasks.shutdownNow();
             this.mMaintenanceTasks = null;
             
-            jTextArea1.setText("");
+            mConsole.Clear();
             jToggleButton1.setText("Start");
             mManager.KillAll();
             mManager = null;
@@ -637,9 +650,17 @@ public class GUI extends javax.swing.JFrame
     private void jButton8ActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_jButton8ActionPerformed
     {//GEN-HEADEREND:event_jButton8ActionPerformed
         // TODO add your handling code here:
-        jTextArea1.setText("");
+        mConsole.Clear();
     }//GEN-LAST:event_jButton8ActionPerformed
 
+    private void jToggleButton2ActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_jToggleButton2ActionPerformed
+    {//GEN-HEADEREND:event_jToggleButton2ActionPerformed
+        //Output is still recorded while paused, up to the console capacity.
+        mConsole.SetPaused(jToggleButton2.isSelected());
+        jToggleButton2.setText(jToggleButton2.isSelected() 
+                ? "Resume Text" : "Pause Text");
+    }//GEN-LAST:event_jToggleButton2ActionPerformed
+
     private void jTextField2FocusLost(java.awt.event.FocusEvent evt) {//GEN-FIRST:event_jTextField2FocusLost
         // TODO add your handling code here:
         String text = jTextField2.getText();
@@ -723,5 +744,6 @@ public class GUI extends javax.swing.JFrame
     private javax.swing.JTextField jTextField3;
     private javax.swing.JTextField jTextField4;
     private javax.swing.JToggleButton jToggleButton1;
+    private javax.swing.JToggleButton jToggleButton2;
     // End of variables declaration//GEN-END:variables
 }
@@ -20,14 +20,25 @@ package GUI;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
 
+/**
+ * An output stream that writes to the console of the GUI, e.g. to be used
+ * as System.out. The text is shown in batches by a ConsoleModel.
+ * 
+ * @see ConsoleModel
+ */
 public class JTextAreaOutputStream extends OutputStream
 {
-    private final JTextArea destination;
+    private final ConsoleModel destination;
 
     public JTextAreaOutputStream (JTextArea destination)
+    {
+        this(new ConsoleModel(destination));
+    }
+
+    public JTextAreaOutputStream (ConsoleModel destination)
     {
         if (destination == null)
             throw new IllegalArgumentException ("Destination is null");
@@ -38,15 +49,8 @@ public class JTextAreaOutputStream extends OutputStream
     @Override
     public void write(byte[] buffer, int offset, int length) throws IOException
     {
-        final String text = new String (buffer, offset, length);
-        SwingUtilities.invokeLater(new Runnable ()
-            {
-                @Override
-                public void run() 
-                {
-                    destination.append (text);
-                }
-            });
+        destination.Append(new String (buffer, offset, length, 
+                Charset.defaultCharset()));
     }
 
     @Override
@@ -54,4 +58,13 @@ public class JTextAreaOutputStream extends OutputStream
     {
         write (new byte [] {(byte)b}, 0, 1);
     }
-}
\ No newline at end of file
+
+    /**
+     * 
+     * @return The console written to.
+     */
+    public ConsoleModel GetConsole()
+    {
+        return destination;
+    }
+}
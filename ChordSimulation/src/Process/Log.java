@@ -0,0 +1,472 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Process;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Leveled logging of the simulation, used instead of System.out on the 
+ * paths that every lookup and every message pass through.
+ * 
+ * Every record has a category and a level, and is only written if its 
+ * level is at least the level of its category. A record is put in a 
+ * bounded lock free ring and written by a background thread, so the node 
+ * threads never wait for the console. The parts of a record are only
+ * turned into text by that thread, and a record that is off allocates 
+ * nothing as long as its parts are objects that already exist. If the ring
+ * is full the record is dropped and counted.
+ * 
+ * Records are written to System.out as they are, unless another output is
+ * set. Records of the same thread are written in order.
+ * 
+ * @author Simon Edänge
+ */
+public final class Log
+{
+    /**
+     * Levels, from the most to the least detailed.
+     */
+    public enum Level
+    {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        OFF
+    }
+    
+    /**
+     * Categories that can be enabled separately.
+     */
+    public enum Category
+    {
+        /**
+         * Routing of lookups.
+         */
+        LOOKUP,
+        
+        /**
+         * Messages between nodes, e.g. time outs and dead targets.
+         */
+        RPC,
+        
+        /**
+         * Nodes joining and leaving.
+         */
+        JOIN,
+        
+        /**
+         * Keys and replicas.
+         */
+        KEYS,
+        
+        /**
+         * The simulation kernel and the worker pool.
+         */
+        KERNEL,
+        
+        /**
+         * The lookup tests and workloads.
+         */
+        SIMULATION
+    }
+    
+    /**
+     * Records in the ring.
+     */
+    public static final int CAPACITY = 1 << 13;
+    
+    /**
+     * Level of all categories, unless specified.
+     */
+    public static final Level DEFAULT_LEVEL = Level.INFO;
+    
+    private static final int MAX_PARTS = 6;
+    private static final int MASK = CAPACITY - 1;
+    private static final Object NONE = new Object();
+    
+    private static final AtomicIntegerArray LEVELS = 
+            new AtomicIntegerArray(Category.values().length);
+    
+    //Slot i is free for the record with sequence s when SEQUENCES[i] == s,
+    //and holds it when SEQUENCES[i] == s + 1.
+    private static final AtomicLongArray SEQUENCES = 
+            new AtomicLongArray(CAPACITY);
+    private static final Object[] PARTS = new Object[CAPACITY * MAX_PARTS];
+    private static final AtomicLong TAIL = new AtomicLong(0);
+    private static final AtomicLong HEAD = new AtomicLong(0);
+    private static final AtomicLong DROPPED = new AtomicLong(0);
+    
+    private static volatile PrintStream OUTPUT = null;
+    private static volatile Thread WRITER = null;
+    
+    static
+    {
+        for(int i = 0; i < CAPACITY; i++)
+            SEQUENCES.set(i, i);
+        
+        SetLevel(DEFAULT_LEVEL);
+    }
+    
+    private Log()
+    {
+    }
+    
+    /**
+     * Sets the level of all categories.
+     * 
+     * @param level The level.
+     */
+    public static void SetLevel(Level level)
+    {
+        for(Category c : Category.values())
+            SetLevel(c, level);
+    }
+    
+    /**
+     * Sets the level of a category.
+     * 
+     * @param category The category.
+     * @param level The level.
+     */
+    public static void SetLevel(Category category, Level level)
+    {
+        LEVELS.set(category.ordinal(), level.ordinal());
+    }
+    
+    /**
+     * 
+     * @param category The category.
+     * @return The level of the category.
+     */
+    public static Level GetLevel(Category category)
+    {
+        return Level.values()[LEVELS.get(category.ordinal())];
+    }
+    
+    /**
+     * Parses a level, e.g. "debug".
+     * 
+     * @param name Name of the level, in any case.
+     * @return The level.
+     * @throws IllegalArgumentException If there is no such level.
+     */
+    public static Level ParseLevel(String name)
+    {
+        return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+    
+    /**
+     * Sets where the records are written.
+     * 
+     * @param out The output, null for System.out.
+     */
+    public static void SetOutput(PrintStream out)
+    {
+        OUTPUT = out;
+    }
+    
+    /**
+     * 
+     * @param category The category.
+     * @param level The level.
+     * @return True if records of this level and category are written. Used
+     * to skip building a record that is off.
+     */
+    public static boolean IsEnabled(Category category, Level level)
+    {
+        return level.ordinal() >= LEVELS.get(category.ordinal()) 
+                && level != Level.OFF;
+    }
+    
+    /**
+     * Writes a record of one part, as the six part Write.
+     */
+    public static void Write(Category category, Level level, Object a)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, NONE, NONE, NONE, NONE, NONE);
+    }
+    
+    /**
+     * Writes a record of two parts, as the six part Write.
+     */
+    public static void Write(Category category, Level level, Object a, 
+            Object b)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, b, NONE, NONE, NONE, NONE);
+    }
+    
+    /**
+     * Writes a record of three parts, as the six part Write.
+     */
+    public static void Write(Category category, Level level, Object a, 
+            Object b, Object c)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, b, c, NONE, NONE, NONE);
+    }
+    
+    /**
+     * Writes a record of four parts, as the six part Write.
+     */
+    public static void Write(Category category, Level level, Object a, 
+            Object b, Object c, Object d)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, b, c, d, NONE, NONE);
+    }
+    
+    /**
+     * Writes a record of five parts, as the six part Write.
+     */
+    public static void Write(Category category, Level level, Object a, 
+            Object b, Object c, Object d, Object e)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, b, c, d, e, NONE);
+    }
+    
+    /**
+     * Writes a record, if its level is on. The record is the parts one 
+     * after the other, as by String.valueOf.
+     * 
+     * @param category Category of the record.
+     * @param level Level of the record.
+     * @param a First part.
+     * @param b Second part.
+     * @param c Third part.
+     * @param d Fourth part.
+     * @param e Fifth part.
+     * @param f Sixth part.
+     */
+    public static void Write(Category category, Level level, Object a, 
+            Object b, Object c, Object d, Object e, Object f)
+    {
+        if(IsEnabled(category, level))
+            Offer(a, b, c, d, e, f);
+    }
+    
+    /**
+     * A part that is written as the stack trace of a throwable, e.g. the 
+     * last part of an error record. The trace is only turned into text by
+     * the writer thread.
+     * 
+     * @param t The throwable.
+     * @return The part.
+     */
+    public static Object StackTrace(final Throwable t)
+    {
+        return new Object()
+        {
+            @Override
+            public String toString()
+            {
+                StringWriter text = new StringWriter();
+                t.printStackTrace(new PrintWriter(text));
+                
+                //The record gets its own line separator.
+                return text.toString().trim();
+            }
+        };
+    }
+    
+    /**
+     * Puts a record in the ring, or drops it if the ring is full.
+     */
+    private static void Offer(Object a, Object b, Object c, Object d, 
+            Object e, Object f)
+    {
+        if(WRITER == null)
+            StartWriter();
+        
+        long pos = TAIL.get();
+        
+        while(true)
+        {
+            int slot = (int)(pos & MASK);
+            long diff = SEQUENCES.get(slot) - pos;
+            
+            if(diff == 0)
+            {
+                if(TAIL.compareAndSet(pos, pos + 1))
+                    break;
+                
+                pos = TAIL.get();
+            }
+            else if(diff < 0)
+            {
+                DROPPED.incrementAndGet();
+                return;
+            }
+            else
+                pos = TAIL.get();
+        }
+        
+        int base = (int)(pos & MASK) * MAX_PARTS;
+        PARTS[base] = a;
+        PARTS[base + 1] = b;
+        PARTS[base + 2] = c;
+        PARTS[base + 3] = d;
+        PARTS[base + 4] = e;
+        PARTS[base + 5] = f;
+        
+        //Publishes the parts to the writer.
+        SEQUENCES.lazySet((int)(pos & MASK), pos + 1);
+    }
+    
+    private static synchronized void StartWriter()
+    {
+        if(WRITER != null)
+            return;
+        
+        Thread t = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                StringBuilder text = new StringBuilder(4096);
+                long reported = 0;
+                
+                while(true)
+                {
+                    if(Drain(text) == 0)
+                        LockSupport.parkNanos(1000000);
+                    
+                    long dropped = DROPPED.get();
+                    
+                    if(dropped != reported)
+                    {
+                        text.append("Log: ").append(dropped - reported)
+                                .append(" records dropped, the ring was full")
+                                .append(System.lineSeparator());
+                        Print(text);
+                        reported = dropped;
+                    }
+                }
+            }
+        });
+        
+        t.setName("LogWriter");
+        t.setDaemon(true);
+        t.start();
+        
+        WRITER = t;
+    }
+    
+    /**
+     * Writes the records in the ring. Only called by the writer thread.
+     * 
+     * @param text Buffer to build the text in.
+     * @return Number of records written.
+     */
+    private static int Drain(StringBuilder text)
+    {
+        int count = 0;
+        long head = HEAD.get();
+        
+        while(true)
+        {
+            int slot = (int)(head & MASK);
+            
+            if(SEQUENCES.get(slot) != head + 1)
+                break;
+            
+            int base = slot * MAX_PARTS;
+            
+            for(int i = 0; i < MAX_PARTS; i++)
+            {
+                Object part = PARTS[base + i];
+                PARTS[base + i] = null;
+                
+                if(part != NONE)
+                    text.append(part);
+            }
+            
+            text.append(System.lineSeparator());
+            SEQUENCES.lazySet(slot, head + CAPACITY);
+            head++;
+            count++;
+            
+            //Write in batches, the output gets one call per batch.
+            if(text.length() >= 1 << 16)
+                Print(text);
+        }
+        
+        if(text.length() > 0)
+            Print(text);
+        
+        //Flush waits for the head, so it moves once the records are out.
+        HEAD.lazySet(head);
+        
+        return count;
+    }
+    
+    private static void Print(StringBuilder text)
+    {
+        PrintStream out = OUTPUT;
+        
+        if(out == null)
+            out = System.out;
+        
+        out.print(text);
+        out.flush();
+        text.setLength(0);
+    }
+    
+    /**
+     * Waits until the records written before this call are out, e.g. before
+     * printing a summary with System.out.
+     * 
+     * @param timeout Maximum time (ms) to wait.
+     * @return True if the records are out.
+     */
+    public static boolean Flush(long timeout)
+    {
+        long target = TAIL.get();
+        long deadline = System.nanoTime() + timeout * 1000000L;
+        
+        while(HEAD.get() < target)
+        {
+            if(WRITER == null || System.nanoTime() > deadline)
+                return false;
+            
+            LockSupport.parkNanos(100000);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * 
+     * @return Number of records dropped because the ring was full.
+     */
+    public static long GetDropped()
+    {
+        return DROPPED.get();
+    }
+}
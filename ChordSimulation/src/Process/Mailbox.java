@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Process;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer/single-consumer ring buffer.
+ * It is used as the event queue of a ProcessX.
+ *
+ * Any thread may offer elements, but only one thread at a time may poll or
+ * drain them (the process owning the mailbox).
+ *
+ * @see ProcessX
+ * @param <E> Element type.
+ * @author Simon Edänge
+ */
+public class Mailbox<E>
+{
+    private final AtomicReferenceArray<E> mBuffer;
+    private final int mMask;
+    private final AtomicLong mTail;
+    private final AtomicLong mHead;
+    private final AtomicLong mHighWaterMark;
+    private final AtomicLong mRejected;
+
+    /**
+     * Constructs a mailbox.
+     *
+     * @param capacity Maximum number of elements. Rounded up to the next
+     * power of two.
+     */
+    public Mailbox(int capacity)
+    {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity)
+            size <<= 1;
+
+        mBuffer = new AtomicReferenceArray<>(size);
+        mMask = size - 1;
+        mTail = new AtomicLong(0);
+        mHead = new AtomicLong(0);
+        mHighWaterMark = new AtomicLong(0);
+        mRejected = new AtomicLong(0);
+    }
+
+    /**
+     * Puts an element in the mailbox. Can be called by any thread.
+     *
+     * @param e Element to put.
+     * @return False if the mailbox is full or the element is null.
+     */
+    public boolean Offer(E e)
+    {
+        if(e == null)
+            return false;
+
+        long tail;
+
+        do
+        {
+            tail = mTail.get();
+
+            if(tail - mHead.get() > mMask)
+            {
+                mRejected.incrementAndGet();
+                return false;
+            }
+
+        } while( !mTail.compareAndSet(tail, tail + 1) );
+
+        mBuffer.lazySet((int)tail & mMask, e);
+        UpdateHighWaterMark(tail + 1 - mHead.get());
+
+        return true;
+    }
+
+    /**
+     * Takes the first (FIFO) element from the mailbox.
+     * Must only be called by the consumer thread.
+     *
+     * @return The element, null if empty.
+     */
+    public E Poll()
+    {
+        long head = mHead.get();
+        int index = (int)head & mMask;
+        E e = mBuffer.get(index);
+
+        //Either empty, or the producer has claimed the slot but not yet
+        //published the element.
+        if(e == null)
+            return null;
+
+        mBuffer.lazySet(index, null);
+        mHead.lazySet(head + 1);
+
+        return e;
+    }
+
+    /**
+     * Takes up to max elements from the mailbox, in FIFO order.
+     * Must only be called by the consumer thread.
+     *
+     * @param into Collection the elements are added to.
+     * @param max Maximum number of elements to take.
+     * @return Number of elements taken.
+     */
+    public int Drain(Collection<? super E> into, int max)
+    {
+        long head = mHead.get();
+        int count = 0;
+
+        while(count < max)
+        {
+            int index = (int)head & mMask;
+            E e = mBuffer.get(index);
+
+            if(e == null)
+                break;
+
+            mBuffer.lazySet(index, null);
+            into.add(e);
+            head++;
+            count++;
+        }
+
+        if(count > 0)
+            mHead.lazySet(head);
+
+        return count;
+    }
+
+    /**
+     *
+     * @return Number of elements in the mailbox.
+     */
+    public int Size()
+    {
+        long size = mTail.get() - mHead.get();
+
+        if(size < 0)
+            return 0;
+
+        return (int)Math.min(size, mMask + 1);
+    }
+
+    /**
+     *
+     * @return True if the mailbox is empty.
+     */
+    public boolean IsEmpty()
+    {
+        return Size() == 0;
+    }
+
+    /**
+     *
+     * @return Maximum number of elements.
+     */
+    public int Capacity()
+    {
+        return mMask + 1;
+    }
+
+    /**
+     *
+     * @return The highest number of elements the mailbox has held.
+     */
+    public long GetHighWaterMark()
+    {
+        return mHighWaterMark.get();
+    }
+
+    /**
+     *
+     * @return Number of elements rejected because the mailbox was full.
+     */
+    public long GetRejected()
+    {
+        return mRejected.get();
+    }
+
+    /**
+     * Removes all elements. Must only be called by the consumer thread.
+     */
+    public void Clear()
+    {
+        while(!IsEmpty())
+        {
+            if(Poll() == null)
+                break;
+        }
+    }
+
+    private void UpdateHighWaterMark(long depth)
+    {
+        long mark = mHighWaterMark.get();
+
+        while(depth > mark)
+        {
+            if(mHighWaterMark.compareAndSet(mark, depth))
+                return;
+
+            mark = mHighWaterMark.get();
+        }
+    }
+}
@@ -17,19 +17,33 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 package Process;
-import java.util.UUID;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is an abstract class.
  * Events used to pass to other ProcessX threads. Events will end up in the
  * process event queue, and will be handled by each process.
+ * 
+ * Every event gets a correlation ID, taken from a monotonically increasing
+ * counter. A return event carries the ID of the event it replies to.
+ * 
+ * The counter is shared by every simulation in the JVM. An ID is only used
+ * to find the request a reply belongs to, among the replies a node waits
+ * for, so an ID that is unique in the JVM is unique in its simulation too.
+ * Nothing is ordered by the ID (the kernel orders events by its own 
+ * sequence), and a 64 bit counter does not wrap. A counter per simulation
+ * would have to be passed to every event, which are created where the 
+ * simulation is not known, and a node can run without a kernel.
  * @see ProcessX
  * @author Simon Edänge
  */
 public abstract class ProcessEvent 
 {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    
     private final long mTimeCreated;
-    private String mID;
+    private long mID;
 
     /**
      * Constructs an event.
@@ -37,18 +51,29 @@ public abstract class ProcessEvent
     public ProcessEvent()
     {
         mTimeCreated = System.currentTimeMillis();
-        mID = UUID.randomUUID().toString();
+        mID = NEXT_ID.getAndIncrement();
     }
     
     /**
-     * Sets the unique ID for this event.
+     * Sets the correlation ID for this event.
      * @param ID The id to be set 
      */
-    public void SetUUID(String ID)
+    public void SetID(long ID)
     {
         mID = ID;
     }
     
+    /**
+     * Sets the unique ID for this event.
+     * @param ID The id to be set, as returned by GetUUID.
+     * @deprecated Use SetID.
+     */
+    @Deprecated
+    public void SetUUID(String ID)
+    {
+        mID = Long.parseLong(ID);
+    }
+    
     /**
      * 
      * @return When the event was created.
@@ -60,10 +85,21 @@ public abstract class ProcessEvent
     
     /**
      * 
-     * @return The unique event ID
+     * @return The correlation ID of this event.
      */
-    public String GetUUID()
+    public long GetID()
     {
         return mID;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 
+     * @return The unique event ID, as a String.
+     * @deprecated Use GetID.
+     */
+    @Deprecated
+    public String GetUUID()
+    {
+        return Long.toString(mID);
+    }
+}
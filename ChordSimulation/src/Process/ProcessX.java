@@ -19,12 +19,10 @@
 package Process;
 
 import Chord.FakeRMIEvents.ReturnRMIevents.ReturnEvent;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
 
@@ -42,17 +40,23 @@ import java.util.concurrent.CountDownLatch;
  */
 public abstract class ProcessX implements Runnable
 {
-    private final List<ProcessEvent> mEventList;
-    private final List<ReturnEvent> mRetEventList;
+    /**
+     * Maximum number of events the event queue can hold.
+     */
+    public static final int EVENT_QUEUE_CAPACITY = 4096;
     
-    private final Map<String, NotifyOnWaitObject> mNotifyBypassReg;
+    private final Mailbox<ProcessEvent> mEventList;
+    
+    private final Map<Long, NotifyOnWaitObject> mNotifyBypassReg;
+    private final Map<Long, PendingReply<?>> mPendingReplies;
     private boolean mEnableWaitObject;
     protected boolean mKeepAlive;
+    private SimulationKernel mKernel;
     
     /**
-     * This object is stored in ProcessX event list.
-     * The object is notified using a lash when the ProcessEvent, it is waiting
-     * for, has been discovered in the EventQueue of ProcessX.
+     * This object is stored in ProcessX wait register.
+     * The object is notified using a latch when the ProcessEvent, it is 
+     * waiting for, is received by ProcessX.
      * It is used when an owner to this object is waiting for a specific
      * ProcessEvent to to be put in the EventQueue.
      * @see CountDownLatch
@@ -64,7 +68,7 @@ public abstract class ProcessX implements Runnable
         
         private final Class<T> mTheClass;
         private final long    mTimeStamp;
-        private final String mUUID;
+        private final long mID;
         private final CountDownLatch mMutex;
         private ProcessEvent mEvent;
         
@@ -74,13 +78,13 @@ public abstract class ProcessX implements Runnable
          * @param timeStamp Timestamp on when the object is created.
          * @param ID ID of the ProcessEvent it is waiting for.
          */
-        public NotifyOnWaitObject(Class<T> myClass, long timeStamp, String ID)
+        public NotifyOnWaitObject(Class<T> myClass, long timeStamp, long ID)
         {
             mTheClass = myClass;
             mTimeStamp = timeStamp;
             mMutex = new CountDownLatch(1);
             mEvent = null;
-            mUUID = ID;
+            mID = ID;
         }
         
         /**
@@ -114,9 +118,9 @@ public abstract class ProcessX implements Runnable
          * 
          * @return The event ID this class is waiting for. 
          */
-        public String GetUUID()
+        public long GetID()
         {
-            return mUUID;
+            return mID;
         }
         
         /**
@@ -124,9 +128,9 @@ public abstract class ProcessX implements Runnable
          * @param target Target ID to compare.
          * @return True if equal
          */
-        public boolean IsUUIDEqualTo(String target)
+        public boolean IsIDEqualTo(long target)
         {
-            return mUUID.compareTo(target) == 0;
+            return mID == target;
         }
         
         /**
@@ -144,6 +148,16 @@ public abstract class ProcessX implements Runnable
             }
             
         }
+        
+        /**
+         * Releases the mutex latch without an event, when the time out of
+         * the wait has passed.
+         */
+        public void Expire()
+        {
+            mMutex.countDown();
+        }
+        
         /**
          * 
          * @return The target event that has been set, returns null if not set.
@@ -155,17 +169,49 @@ public abstract class ProcessX implements Runnable
         
     }
 
+    /**
+     * A reply this process is waiting for asynchronously. The future is
+     * completed directly when the return event is received, without passing
+     * the event queue.
+     * @param <T> Class type of the return event.
+     */
+    private static class PendingReply<T>
+    {
+        private final Class<T> mTheClass;
+        private final CompletableFuture<T> mFuture;
+        
+        PendingReply(Class<T> theClass)
+        {
+            mTheClass = theClass;
+            mFuture = new CompletableFuture<>();
+        }
+        
+        /**
+         * Completes the future if the event is of the expected class.
+         * @param e The received event.
+         * @return True if completed.
+         */
+        boolean Complete(ProcessEvent e)
+        {
+            if(!mTheClass.isInstance(e))
+                return false;
+            
+            return mFuture.complete(mTheClass.cast(e));
+        }
+    }
+
     /**
      * Constructs a ProcessX object.
      */
     public ProcessX()
     {
-        mNotifyBypassReg = Collections.synchronizedMap(new HashMap<String, NotifyOnWaitObject>());
-        mEventList = Collections.synchronizedList(new ArrayList<ProcessEvent>());
-        mRetEventList = Collections.synchronizedList(new ArrayList<ReturnEvent>());
+        mNotifyBypassReg = new ConcurrentHashMap<>();
+        mPendingReplies = new ConcurrentHashMap<>();
+        mEventList = new Mailbox<>(EVENT_QUEUE_CAPACITY);
         
         mKeepAlive = true;
         mEnableWaitObject = false;
+        mKernel = null;
     }
     
     @Override
@@ -175,33 +221,66 @@ public abstract class ProcessX implements Runnable
      */
     public abstract void run();
     
+    /**
+     * Attach this process to a simulation kernel. Events put to this process
+     * will then be delivered by the kernel, which also runs the process when
+     * an event arrives.
+     * @see SimulationKernel
+     * @param kernel The kernel, null to put events directly in the queue.
+     */
+    public void attachKernel(SimulationKernel kernel)
+    {
+        mKernel = kernel;
+    }
+    
+    /**
+     * 
+     * @return The simulation kernel driving this process, null if none.
+     */
+    public SimulationKernel getKernel()
+    {
+        return mKernel;
+    }
+    
     /**
      * This function puts an event in
-     * this threads Event Queue.
+     * this threads Event Queue. If a simulation kernel is attached, the
+     * event is delivered through the kernel.
      * @param e The event to be put.
      */
     public void putEvent(ProcessEvent e)
     {
         if(e == null)
           return;
-    
-        if( e instanceof ReturnEvent)
+        
+        if(mKernel != null)
         {
-            if(mEnableWaitObject)
-            {
-                mRetEventList.add((ReturnEvent) e);
-            }
+            mKernel.Deliver(this, e);
+            return;
         }
         
-        else
+        receiveEvent(e);
+    }
+    
+    /**
+     * Puts an event directly in this threads Event Queue.
+     * Return events never enter the queue. They are handed straight to the
+     * NotifyOnWaitObject or asynchronous wait registered for their ID. 
+     * Return events nobody waits for (e.g. after a time out) are dropped.
+     * @param e The event to be put.
+     */
+    void receiveEvent(ProcessEvent e)
+    {
+        if( e instanceof ReturnEvent)
         {
-            mEventList.add(e);
+            dispatchReturnEvent((ReturnEvent) e);
         }
         
-        
-        if( mEventList.size() > 400 )
+        else if( !mEventList.Offer(e) )
         {
-            System.out.println("Too many events: " + mEventList.size());
+            Log.Write(Log.Category.KERNEL, Log.Level.WARN, 
+                    "Event queue full, event dropped: ", 
+                    e.getClass().getSimpleName());
         }
 
     }
@@ -209,42 +288,58 @@ public abstract class ProcessX implements Runnable
     /**
      * This function returns the first (FIFO) event in the event queue. When
      * the event has been returned, it will also be deleted from the event queue.
-     * This function when called, also checks if there are NotifyOnWaitObject's
-     * waiting for any Events. If the event has been found, 
-     * the NotifyOnWaitObject's Latch will be notified.
-     * Events that NotifyOnWaitObject are waiting for, will not be returned.
      * @return The first event in the Queue.
      */
     protected ProcessEvent peekEvent()
     {
-        ProcessEvent e = null;
-        
-        checkWaitObjects();
-        
-        if(mEventList.isEmpty())
-        {
-            return null;
-        }
-
-        try{
-
-            e = mEventList.get(0);
-            mEventList.remove(0);
-
-        }catch(ArrayIndexOutOfBoundsException ex){
-            mEventList.remove(e);
-            return null;
-        }  
-        
-        return e;
+        return mEventList.Poll();
     }
+    
+    /**
+     * Takes up to max events (FIFO) from the event queue in one batch.
+     * @param into Collection the events are added to.
+     * @param max Maximum number of events to take.
+     * @return Number of events taken.
+     */
+    protected int drainEvents(Collection<? super ProcessEvent> into, int max)
+    {
+        return mEventList.Drain(into, max);
+    }
+    
     /**
      * Returns the Event Queue size.
      * @return Number of events.
      */
     protected int queueSize()
     {
-        return mEventList.size();
+        return mEventList.Size();
+    }
+    
+    /**
+     * 
+     * @return Number of events currently in the Event Queue.
+     */
+    public int getQueueDepth()
+    {
+        return mEventList.Size();
+    }
+    
+    /**
+     * 
+     * @return The highest number of events the Event Queue has held.
+     */
+    public long getQueueHighWaterMark()
+    {
+        return mEventList.GetHighWaterMark();
+    }
+    
+    /**
+     * 
+     * @return Number of events dropped because the Event Queue was full.
+     */
+    public long getDroppedEvents()
+    {
+        return mEventList.GetRejected();
     }
     
     /**
@@ -256,57 +351,39 @@ public abstract class ProcessX implements Runnable
     }
     
     /**
-     * Goes through the list of NotifyOnWaitObject's, for each event in the
-     * event return queue.
+     * Hands a return event to the NotifyOnWaitObject or asynchronous wait
+     * registered for its ID. 
+     * @param e The return event.
+     * @return True if someone was waiting for the event.
      */
-    protected void checkWaitObjects()
+    private boolean dispatchReturnEvent(ReturnEvent e)
     {
-        if(!mEnableWaitObject)
-            return;
+        long ID = e.GetID();
         
-        if(mRetEventList.isEmpty())
-            return;
+        PendingReply<?> reply = mPendingReplies.get(ID);
         
-        if(mRetEventList.size() > 100)
+        if(reply != null && reply.Complete(e))
         {
-            System.out.println("Too many Ret events: " + 
-                    mRetEventList.size()); 
+            mPendingReplies.remove(ID);
+            return true;
         }
         
-        long timeNow = System.currentTimeMillis();
-        long timeOut = 3000;
+        NotifyOnWaitObject obj = mNotifyBypassReg.get(ID);
         
-        synchronized(mRetEventList)
+        if( obj != null && obj.GetNotifyClass().isInstance(e) )
         {
-            Iterator<ReturnEvent> i = mRetEventList.iterator();
-            
-            while( i.hasNext() )
-            {
-                ReturnEvent e = i.next();
-                
-                if(e == null){}
-                
-                else
-                {
-                    NotifyOnWaitObject obj =  mNotifyBypassReg.get(e.GetUUID());
-                    
-                    if( obj != null && obj.GetNotifyClass().isInstance(e))
-                    {
-                        obj.SetEvent(e);
-                        mNotifyBypassReg.remove(obj.GetUUID());
-                        i.remove();
-                    }
-                    else if( (timeNow - e.GetTimeCreated()) > timeOut )
-                    {
-                        i.remove();
-                    }
-                    
-                }
-            }
+            mNotifyBypassReg.remove(ID);
+            obj.SetEvent(e);
+            return true;
         }
+        
+        return false;
     }
+    
     /**
-     * Register a NotifyOnWaitObject to be checked for a specific event.
+     * Register a NotifyOnWaitObject to be notified of a specific event.
+     * Must be registered before the request is sent, since a return event
+     * nobody waits for is dropped.
      * @param <T> A class type to be checked.
      * @param object A NotifyOnWaitObject to be registered.
      * @return True if added.
@@ -316,13 +393,7 @@ public abstract class ProcessX implements Runnable
         if(!mEnableWaitObject)
             return false;
         
-        if( !mNotifyBypassReg.containsValue(object) )
-        {
-           NotifyOnWaitObject k =  mNotifyBypassReg.put(object.GetUUID(), object);
-            return true;
-        }
-        
-        return false;
+        return mNotifyBypassReg.putIfAbsent(object.GetID(), object) == null;
     }
     
     /**
@@ -332,7 +403,42 @@ public abstract class ProcessX implements Runnable
      */
     public <T> void unregisterOnWaitObject(NotifyOnWaitObject<T> object)
     {
-        mNotifyBypassReg.remove(object.GetUUID());
+        mNotifyBypassReg.remove(object.GetID(), object);
+    }
+    
+    /**
+     * Register an asynchronous wait for a return event. The returned future 
+     * is completed when a return event of the given class and ID is received.
+     * @param <T> A class type to be waited for.
+     * @param theClass The return class to wait for, e.g. GetSuccessorEventRE.
+     * @param ID The expected ID of the return Event.
+     * @return A future completed with the return event.
+     */
+    public <T> CompletableFuture<T> registerReply(Class<T> theClass, long ID)
+    {
+        PendingReply<T> reply = new PendingReply<>(theClass);
+        mPendingReplies.put(ID, reply);
+        
+        return reply.mFuture;
+    }
+    
+    /**
+     * Removes an asynchronous wait, e.g. on time out.
+     * @param ID The expected ID of the return Event.
+     * @return True if the wait was still pending.
+     */
+    public boolean unregisterReply(long ID)
+    {
+        return mPendingReplies.remove(ID) != null;
+    }
+    
+    /**
+     * 
+     * @return Number of asynchronous waits that are pending.
+     */
+    public int getPendingReplies()
+    {
+        return mPendingReplies.size();
     }
     
     /**
@@ -346,8 +452,8 @@ public abstract class ProcessX implements Runnable
         
         if(!option)
         {
-            mRetEventList.clear();
             mNotifyBypassReg.clear();
+            mPendingReplies.clear();
         }
         
     }
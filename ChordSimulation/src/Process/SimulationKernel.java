@@ -0,0 +1,699 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Process;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A discrete-event simulation kernel. It keeps a virtual clock and a priority
+ * queue of timestamped events, and executes them in time order on one single
+ * dispatcher thread.
+ *
+ * The kernel drives the delivery of ProcessEvents between ProcessX objects:
+ * instead of every process polling its event queue, an event is put in the
+ * target queue and the target is run when the event is due. Periodic timers
+ * (e.g. Stabilize, FixFingers and CheckPredecessor) are also driven by the
+ * virtual clock.
+ *
+ * The virtual clock can either run as fast as possible, or be paced against
+ * the wall clock with a speed up factor. When it runs as fast as possible,
+ * it only jumps to the next due event once the worker pool has nothing left
+ * to run, so a task never sees time pass while it is still working. The
+ * kernel is the only clock of the simulation, time outs are events in its
+ * queue as well.
+ *
+ * The kernel also owns the worker pool of the simulation, which runs the
+ * tasks of all processes on a bounded number of threads.
+ *
+ * @see ProcessX
+ * @see WorkerPool
+ * @author Simon Edänge
+ */
+public class SimulationKernel
+{
+    /**
+     * An event in the kernel queue. Events with the same timestamp are
+     * executed in the order they were scheduled.
+     */
+    private static class TimedEvent implements Comparable<TimedEvent>
+    {
+        final long TIME;
+        final long SEQUENCE;
+        final Runnable ACTION;
+
+        TimedEvent(long time, long sequence, Runnable action)
+        {
+            TIME = time;
+            SEQUENCE = sequence;
+            ACTION = action;
+        }
+
+        @Override
+        public int compareTo(TimedEvent o)
+        {
+            if(TIME != o.TIME)
+                return TIME < o.TIME ? -1 : 1;
+
+            if(SEQUENCE != o.SEQUENCE)
+                return SEQUENCE < o.SEQUENCE ? -1 : 1;
+
+            return 0;
+        }
+    }
+
+    /**
+     * The delay between the rounds of a periodic task. It is asked for a
+     * new delay every time a round has completed, so the delay may change
+     * over time.
+     */
+    public interface Delay
+    {
+        /**
+         *
+         * @return Virtual time (ms) until the next round.
+         */
+        long Next();
+    }
+
+    /**
+     * A periodic task driven by the virtual clock. The task is handed to a
+     * worker when it is due, and the next round is scheduled first when the
+     * current round has completed (fixed delay). The next round can also be
+     * brought forward with RunWithin.
+     */
+    public final class PeriodicTask
+    {
+        private final Runnable mTask;
+        private final Delay mDelay;
+        private final Executor mWorker;
+        private volatile boolean mCancelled;
+        private boolean mRunning;
+        private long mGeneration;
+        private long mDue;
+        private long mSoon;
+
+        private PeriodicTask(Runnable task, Delay delay, Executor worker)
+        {
+            mTask = task;
+            mDelay = delay;
+            mWorker = worker;
+            mCancelled = false;
+            mRunning = false;
+            mGeneration = 0;
+            mDue = Long.MAX_VALUE;
+            mSoon = Long.MAX_VALUE;
+        }
+
+        /**
+         * Starts a round, unless a newer round has been scheduled since.
+         */
+        private void Fire(long generation)
+        {
+            synchronized(this)
+            {
+                if(mCancelled || mRunning || generation != mGeneration)
+                    return;
+
+                mRunning = true;
+                mDue = Long.MAX_VALUE;
+            }
+
+            try
+            {
+                mWorker.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            if(!mCancelled)
+                                mTask.run();
+                        }
+                        finally
+                        {
+                            RoundDone();
+                        }
+                    }
+                });
+            }
+            catch(java.util.concurrent.RejectedExecutionException ex)
+            {
+                mCancelled = true;
+            }
+        }
+
+        private synchronized void RoundDone()
+        {
+            mRunning = false;
+
+            if(mCancelled)
+                return;
+
+            long next = Math.min(mDelay.Next(), mSoon);
+            mSoon = Long.MAX_VALUE;
+            ScheduleNext(next);
+        }
+
+        private synchronized void ScheduleNext(long delay)
+        {
+            final long generation = ++mGeneration;
+            mDue = Now() + Math.max(0, delay);
+
+            Schedule(delay, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Fire(generation);
+                }
+            });
+        }
+
+        /**
+         * Makes sure the next round starts within a delay. Does nothing if
+         * it is already due sooner. If a round is running, the round after
+         * it starts within the delay from its end.
+         *
+         * @param delay Virtual time (ms) from now.
+         */
+        public synchronized void RunWithin(long delay)
+        {
+            if(mCancelled)
+                return;
+
+            if(mRunning)
+                mSoon = Math.min(mSoon, delay);
+            else if(mDue > Now() + delay)
+                ScheduleNext(delay);
+        }
+
+        /**
+         * Stops the task. A round that is already running will complete, but
+         * no new round will be scheduled.
+         */
+        public void Cancel()
+        {
+            mCancelled = true;
+        }
+
+        /**
+         *
+         * @return True if the task has been cancelled.
+         */
+        public boolean IsCancelled()
+        {
+            return mCancelled;
+        }
+    }
+
+    /**
+     * Wall time (ns) the clock waits for workers that make no progress, e.g.
+     * a task blocked outside WorkerPool.Await, before it moves on anyway.
+     */
+    private static final long MAX_STALL = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final PriorityQueue<TimedEvent> mQueue;
+    private final ReentrantLock mLock;
+    private final Condition mChanged;
+    private final long mLinkDelay;
+    private final double mSpeedUp;
+
+    private volatile long mNow;
+    private long mSequence;
+    private long mProcessed;
+    private long mWallStart;
+    private boolean mKeepAlive;
+    private Thread mDispatcher;
+    private final WorkerPool mWorkers;
+    private long mStallCompleted;
+    private long mStallSince;
+    private volatile boolean mAwaitingWorkers;
+
+    /**
+     * Constructs a kernel that runs as fast as possible.
+     *
+     * @param linkDelay Virtual time (ms) it takes for an event to reach its
+     * target.
+     */
+    public SimulationKernel(long linkDelay)
+    {
+        this(linkDelay, 0);
+    }
+
+    /**
+     * Constructs a kernel.
+     *
+     * @param linkDelay Virtual time (ms) it takes for an event to reach its
+     * target.
+     * @param speedUp How many times faster than the wall clock the virtual
+     * clock may run. Zero or less means the clock is not paced at all.
+     */
+    public SimulationKernel(long linkDelay, double speedUp)
+    {
+        this(linkDelay, speedUp, new WorkerPool());
+    }
+
+    /**
+     * Constructs a kernel.
+     *
+     * @param linkDelay Virtual time (ms) it takes for an event to reach its
+     * target.
+     * @param speedUp How many times faster than the wall clock the virtual
+     * clock may run. Zero or less means the clock is not paced at all.
+     * @param workers The worker pool of the simulation.
+     */
+    public SimulationKernel(long linkDelay, double speedUp, WorkerPool workers)
+    {
+        mQueue = new PriorityQueue<>();
+        mLock = new ReentrantLock();
+        mChanged = mLock.newCondition();
+        mLinkDelay = Math.max(0, linkDelay);
+        mSpeedUp = speedUp;
+
+        mNow = 0;
+        mSequence = 0;
+        mProcessed = 0;
+        mKeepAlive = false;
+        mDispatcher = null;
+        mWorkers = workers;
+        mStallCompleted = -1;
+        mStallSince = 0;
+        mAwaitingWorkers = false;
+    }
+
+    /**
+     * Starts the dispatcher thread and the worker pool. Does nothing if 
+     * already started.
+     */
+    public void Start()
+    {
+        mLock.lock();
+        try
+        {
+            if(mDispatcher != null)
+                return;
+
+            mWorkers.Start();
+            mWorkers.SetIdleListener(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    WorkersChanged();
+                }
+            });
+
+            mKeepAlive = true;
+            mWallStart = System.nanoTime();
+            mDispatcher = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Dispatch();
+                }
+            });
+            mDispatcher.setName("SimulationKernel");
+            mDispatcher.setDaemon(true);
+            mDispatcher.start();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the dispatcher thread and the worker pool, and discards all 
+     * pending events and tasks.
+     */
+    public void Shutdown()
+    {
+        mLock.lock();
+        try
+        {
+            mKeepAlive = false;
+            mQueue.clear();
+            mDispatcher = null;
+            mChanged.signalAll();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+
+        mWorkers.Shutdown();
+    }
+
+    /**
+     * Schedules an action to be executed on the kernel thread.
+     *
+     * @param delay Virtual time (ms) from now.
+     * @param action The action to execute.
+     */
+    public void Schedule(long delay, Runnable action)
+    {
+        if(action == null)
+            return;
+
+        mLock.lock();
+        try
+        {
+            if(!mKeepAlive)
+                return;
+
+            TimedEvent e = new TimedEvent(mNow + Math.max(0, delay),
+                    mSequence++, action);
+            mQueue.add(e);
+
+            if(mQueue.peek() == e)
+                mChanged.signal();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Schedules a periodic task. When the task is due, it is executed by the
+     * worker, so a blocking task never stalls the kernel thread.
+     *
+     * @param task Task to execute.
+     * @param initialDelay Virtual time (ms) until the first round.
+     * @param delay Virtual time (ms) between the end of a round and the start
+     * of the next one.
+     * @param worker The executor that runs the task.
+     * @return A handle used to cancel the task.
+     */
+    public PeriodicTask SchedulePeriodic(Runnable task, long initialDelay,
+            final long delay, Executor worker)
+    {
+        return SchedulePeriodic(task, initialDelay, new Delay()
+        {
+            @Override
+            public long Next()
+            {
+                return delay;
+            }
+        }, worker);
+    }
+
+    /**
+     * Schedules a periodic task with a delay that may change between the
+     * rounds. When the task is due, it is executed by the worker.
+     *
+     * @param task Task to execute.
+     * @param initialDelay Virtual time (ms) until the first round.
+     * @param delay Gives the virtual time (ms) between the end of a round
+     * and the start of the next one.
+     * @param worker The executor that runs the task.
+     * @return A handle used to cancel the task or bring a round forward.
+     */
+    public PeriodicTask SchedulePeriodic(Runnable task, long initialDelay,
+            Delay delay, Executor worker)
+    {
+        PeriodicTask p = new PeriodicTask(task, delay, worker);
+        p.ScheduleNext(initialDelay);
+
+        return p;
+    }
+
+    /**
+     * Delivers an event to a process after the link delay. When delivered,
+     * the event is put in the process event queue and the process is run.
+     *
+     * @param target Process to receive the event.
+     * @param e The event.
+     */
+    public void Deliver(final ProcessX target, final ProcessEvent e)
+    {
+        if(target == null || e == null)
+            return;
+
+        Schedule(mLinkDelay, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                target.receiveEvent(e);
+                target.run();
+            }
+        });
+    }
+
+    /**
+     * Runs a process on the kernel thread as soon as possible.
+     *
+     * @param target Process to run.
+     */
+    public void Wakeup(final ProcessX target)
+    {
+        if(target == null)
+            return;
+
+        Schedule(0, target);
+    }
+
+    /**
+     *
+     * @return Current virtual time in ms.
+     */
+    public long Now()
+    {
+        //Only written by the dispatcher, under the lock.
+        return mNow;
+    }
+
+    /**
+     *
+     * @return True if started and not shut down.
+     */
+    public boolean IsRunning()
+    {
+        mLock.lock();
+        try
+        {
+            return mKeepAlive;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     *
+     * @return Number of events that are waiting to be executed.
+     */
+    public int GetPendingEvents()
+    {
+        mLock.lock();
+        try
+        {
+            return mQueue.size();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     *
+     * @return Number of events executed since start.
+     */
+    public long GetProcessedEvents()
+    {
+        mLock.lock();
+        try
+        {
+            return mProcessed;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     *
+     * @return The worker pool running the tasks of the processes.
+     */
+    public WorkerPool GetWorkers()
+    {
+        return mWorkers;
+    }
+
+    /**
+     *
+     * @return Link delay in virtual ms.
+     */
+    public long GetLinkDelay()
+    {
+        return mLinkDelay;
+    }
+
+    /**
+     * The dispatcher loop. Takes the next due event, advances the virtual
+     * clock and executes it.
+     */
+    private void Dispatch()
+    {
+        while(true)
+        {
+            TimedEvent e;
+
+            mLock.lock();
+            try
+            {
+                e = NextDueEvent();
+
+                if(e == null)
+                    return;
+
+                mNow = Math.max(mNow, e.TIME);
+                mProcessed++;
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+
+            try
+            {
+                e.ACTION.run();
+            }
+            catch(RuntimeException ex)
+            {
+                Log.Write(Log.Category.KERNEL, Log.Level.ERROR, 
+                        "SimulationKernel: event failed, ", Log.StackTrace(ex));
+            }
+        }
+    }
+
+    /**
+     * Waits until the head of the queue is due. Must hold the lock.
+     *
+     * @return The event, or null if the kernel has been shut down.
+     */
+    private TimedEvent NextDueEvent()
+    {
+        while(mKeepAlive)
+        {
+            TimedEvent head = mQueue.peek();
+
+            try
+            {
+                if(head == null)
+                {
+                    mChanged.await();
+                    continue;
+                }
+
+                if(mSpeedUp > 0)
+                {
+                    long due = mWallStart
+                            + (long)(TimeUnit.MILLISECONDS.toNanos(head.TIME)
+                            / mSpeedUp);
+                    long wait = due - System.nanoTime();
+
+                    if(wait > 0)
+                    {
+                        mChanged.awaitNanos(wait);
+                        continue;
+                    }
+                }
+                else if(head.TIME > mNow)
+                {
+                    //Set before the workers are looked at, so a change
+                    //after the look always signals.
+                    mAwaitingWorkers = true;
+
+                    if(!WorkersDone())
+                    {
+                        mChanged.awaitNanos(MAX_STALL);
+                        mAwaitingWorkers = false;
+                        continue;
+                    }
+
+                    mAwaitingWorkers = false;
+                }
+            }
+            catch(InterruptedException ex)
+            {
+                return null;
+            }
+
+            return mQueue.poll();
+        }
+
+        return null;
+    }
+
+    /**
+     * Called by the worker pool when a task completes or starts to wait.
+     * Wakes up the dispatcher if it waits for the workers.
+     */
+    private void WorkersChanged()
+    {
+        if(!mAwaitingWorkers)
+            return;
+
+        mLock.lock();
+        try
+        {
+            mChanged.signal();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Tells if the clock may move on. The workers are done when the pool has
+     * nothing to run, or when no task has completed for MAX_STALL.
+     */
+    private boolean WorkersDone()
+    {
+        if(mWorkers.IsQuiescent())
+        {
+            mStallCompleted = -1;
+            return true;
+        }
+
+        long completed = mWorkers.GetCompleted();
+        long now = System.nanoTime();
+
+        if(completed != mStallCompleted)
+        {
+            mStallCompleted = completed;
+            mStallSince = now;
+            return false;
+        }
+
+        return now - mStallSince > MAX_STALL;
+    }
+}
@@ -0,0 +1,836 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Process;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The worker threads of one simulation. All nodes run their tasks on the
+ * same bounded pool, so the number of threads depends on the number of
+ * cores and not on the size of the ring.
+ *
+ * The pool is a work stealing ForkJoinPool in async (FIFO) mode. A node
+ * that needs its tasks to run one at a time, in the order they were
+ * submitted, uses a Strand on top of the pool.
+ *
+ * The nodes block while waiting for a reply. A worker that blocks in Await
+ * tells the pool, which may start a spare thread so the replies it is
+ * waiting for can still be handled. At most maxSpare waits are compensated,
+ * waits above that block the worker and are counted as uncompensated.
+ * Strands usually start requests while plain tasks usually answer them, so
+ * at most half of the threads run strands at the same time. The other
+ * strands wait for their turn, and the answers are never stuck behind them.
+ *
+ * On a runtime with virtual threads the pool can instead start one virtual
+ * thread per task, blocking is then cheap and no spare threads are needed.
+ *
+ * @author Simon Edänge
+ */
+public class WorkerPool implements Executor
+{
+    /**
+     * Number of spare threads that may be started for blocked workers,
+     * unless specified.
+     */
+    public static final int DEFAULT_SPARE = 256;
+
+    /**
+     * Tasks a strand runs before it lets other tasks use the worker.
+     */
+    private static final int STRAND_BATCH = 16;
+
+    private final int mParallelism;
+    private final int mMaxSpare;
+    private final boolean mUseVirtual;
+
+    private volatile ExecutorService mExecutor;
+    private volatile ForkJoinPool mForkJoin;
+
+    private final AtomicLong mSubmitted;
+    private final AtomicLong mCompleted;
+    private final AtomicLong mFailed;
+    private final AtomicInteger mRunning;
+    private final AtomicInteger mPeakRunning;
+    private final AtomicInteger mBlocked;
+    private final AtomicInteger mPeakBlocked;
+    private final AtomicLong mUncompensated;
+    private final AtomicLong mPeakBacklog;
+    private final AtomicInteger mPeakThreads;
+    private final Map<Thread, CountDownLatch> mWaiting;
+    private final ThreadLocal<Boolean> mInTask;
+    private volatile Runnable mIdleListener;
+
+    private final int mStrandLimit;
+    private final Queue<Strand> mReadyStrands;
+    private final AtomicInteger mStrandsRunning;
+    private final AtomicInteger mStrandsWaiting;
+    private final AtomicInteger mPeakStrandsWaiting;
+
+    /**
+     * A serial executor on top of the pool. The tasks run one at a time in
+     * the order they were submitted, but not always on the same thread.
+     */
+    public final class Strand implements Executor
+    {
+        private final Queue<Runnable> mTasks;
+        private final AtomicBoolean mScheduled;
+        private volatile boolean mShutdown;
+        private final boolean mLimited;
+        private final Runnable mDrain;
+
+        private Strand(boolean limited)
+        {
+            mLimited = limited;
+            mTasks = new ConcurrentLinkedQueue<>();
+            mScheduled = new AtomicBoolean(false);
+            mShutdown = false;
+            mDrain = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Drain();
+                }
+            };
+        }
+
+        /**
+         * Queues a task.
+         *
+         * @param task The task.
+         * @throws RejectedExecutionException If the strand or the pool has
+         * been shut down.
+         */
+        @Override
+        public void execute(Runnable task)
+        {
+            if(mShutdown)
+                throw new RejectedExecutionException("Strand is shut down");
+
+            if(mExecutor == null)
+                throw new RejectedExecutionException("WorkerPool is not started");
+
+            mTasks.add(task);
+            Schedule();
+        }
+
+        /**
+         * Discards all queued tasks and rejects new ones. A task that is
+         * running is not interrupted.
+         */
+        public void Shutdown()
+        {
+            mShutdown = true;
+            mTasks.clear();
+        }
+
+        /**
+         *
+         * @return True if shut down.
+         */
+        public boolean IsShutdown()
+        {
+            return mShutdown;
+        }
+
+        private void Schedule()
+        {
+            if(mTasks.isEmpty() || !mScheduled.compareAndSet(false, true))
+                return;
+
+            if(mLimited)
+            {
+                ScheduleStrand(this);
+                return;
+            }
+
+            try
+            {
+                WorkerPool.this.execute(mDrain);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                //The pool is shut down, the queued tasks are discarded.
+                mScheduled.set(false);
+                Shutdown();
+            }
+        }
+
+        private void Drain()
+        {
+            try
+            {
+                for(int i = 0; i < STRAND_BATCH && !mShutdown; i++)
+                {
+                    Runnable task = mTasks.poll();
+
+                    if(task == null)
+                        break;
+
+                    RunTask(task);
+                }
+            }
+            finally
+            {
+                mScheduled.set(false);
+
+                if(mLimited)
+                    mStrandsRunning.decrementAndGet();
+            }
+
+            Schedule();
+
+            if(mLimited)
+                DispatchStrands();
+        }
+    }
+
+    /**
+     * A wait for a latch that the ForkJoinPool can compensate for.
+     */
+    private static final class LatchBlocker implements ForkJoinPool.ManagedBlocker
+    {
+        private final CountDownLatch mLatch;
+        private final long mDeadline;
+        private boolean mDone;
+
+        private LatchBlocker(CountDownLatch latch, long deadline)
+        {
+            mLatch = latch;
+            mDeadline = deadline;
+            mDone = false;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException
+        {
+            long left = mDeadline - System.nanoTime();
+
+            if(left > 0)
+                mLatch.await(left, TimeUnit.NANOSECONDS);
+
+            mDone = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable()
+        {
+            return mDone || mLatch.getCount() == 0
+                    || mDeadline - System.nanoTime() <= 0;
+        }
+    }
+
+    /**
+     * Constructs a pool with one thread per core.
+     */
+    public WorkerPool()
+    {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SPARE, false);
+    }
+
+    /**
+     * Constructs a pool. The threads are started by Start.
+     *
+     * @param parallelism Number of threads that run tasks at the same time.
+     * @param maxSpare Number of blocked workers that may be replaced by a
+     * spare thread.
+     * @param useVirtual Start one virtual thread per task instead, if the
+     * runtime supports it.
+     */
+    public WorkerPool(int parallelism, int maxSpare, boolean useVirtual)
+    {
+        mParallelism = Math.max(1, parallelism);
+        mMaxSpare = Math.max(0, maxSpare);
+        mUseVirtual = useVirtual;
+
+        mExecutor = null;
+        mForkJoin = null;
+
+        mSubmitted = new AtomicLong(0);
+        mCompleted = new AtomicLong(0);
+        mFailed = new AtomicLong(0);
+        mRunning = new AtomicInteger(0);
+        mPeakRunning = new AtomicInteger(0);
+        mBlocked = new AtomicInteger(0);
+        mPeakBlocked = new AtomicInteger(0);
+        mUncompensated = new AtomicLong(0);
+        mPeakBacklog = new AtomicLong(0);
+        mPeakThreads = new AtomicInteger(0);
+        mWaiting = new ConcurrentHashMap<>();
+        mInTask = new ThreadLocal<>();
+        mIdleListener = null;
+
+        mStrandLimit = Math.max(1, (mParallelism + mMaxSpare) / 2);
+        mReadyStrands = new ConcurrentLinkedQueue<>();
+        mStrandsRunning = new AtomicInteger(0);
+        mStrandsWaiting = new AtomicInteger(0);
+        mPeakStrandsWaiting = new AtomicInteger(0);
+    }
+
+    /**
+     * Starts the threads. Does nothing if already started.
+     */
+    public synchronized void Start()
+    {
+        if(mExecutor != null)
+            return;
+
+        //Tasks discarded by an earlier Shutdown never complete.
+        mCompleted.set(mSubmitted.get());
+        mReadyStrands.clear();
+        mStrandsRunning.set(0);
+        mStrandsWaiting.set(0);
+
+        if(mUseVirtual)
+        {
+            ExecutorService virtual = CreateVirtualExecutor();
+
+            if(virtual != null)
+            {
+                mExecutor = virtual;
+                return;
+            }
+
+            Log.Write(Log.Category.KERNEL, Log.Level.INFO, 
+                    "WorkerPool: virtual threads are not supported, "
+                    + "using a ForkJoinPool");
+        }
+
+        mForkJoin = new ForkJoinPool(mParallelism,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory()
+        {
+            private final AtomicInteger mCount = new AtomicInteger(0);
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+            {
+                ForkJoinWorkerThread t = ForkJoinPool
+                        .defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("ChordWorker-" + mCount.incrementAndGet());
+                return t;
+            }
+        }, null, true);
+
+        mExecutor = mForkJoin;
+    }
+
+    /**
+     * Stops the threads and discards all queued tasks. The pool can be
+     * started again.
+     */
+    public synchronized void Shutdown()
+    {
+        if(mExecutor == null)
+            return;
+
+        mExecutor.shutdownNow();
+        mExecutor = null;
+        mForkJoin = null;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, using
+     * reflection so this class still runs on older runtimes.
+     *
+     * @return The executor, null if not supported.
+     */
+    private static ExecutorService CreateVirtualExecutor()
+    {
+        try
+        {
+            Method m = java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)m.invoke(null);
+        }
+        catch(ReflectiveOperationException | RuntimeException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a task on the pool. Tasks submitted this way are not ordered.
+     *
+     * @param task The task.
+     * @throws RejectedExecutionException If the pool is not started.
+     */
+    @Override
+    public void execute(final Runnable task)
+    {
+        ExecutorService executor = mExecutor;
+
+        if(executor == null)
+            throw new RejectedExecutionException("WorkerPool is not started");
+
+        long backlog = mSubmitted.incrementAndGet() - mCompleted.get();
+        UpdatePeak(mPeakBacklog, backlog);
+
+        try
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    UpdatePeak(mPeakRunning, mRunning.incrementAndGet());
+                    mInTask.set(Boolean.TRUE);
+
+                    try
+                    {
+                        RunTask(task);
+                    }
+                    finally
+                    {
+                        mInTask.remove();
+                        mRunning.decrementAndGet();
+                        mCompleted.incrementAndGet();
+                        NotifyIdle();
+                    }
+                }
+            });
+        }
+        catch(RejectedExecutionException ex)
+        {
+            mCompleted.incrementAndGet();
+            throw ex;
+        }
+
+        ForkJoinPool pool = mForkJoin;
+
+        if(pool != null)
+            UpdatePeak(mPeakThreads, pool.getPoolSize());
+    }
+
+    /**
+     * Creates a serial executor on top of this pool. At most the strand
+     * limit of such strands run at the same time.
+     *
+     * @return The strand.
+     */
+    public Strand NewStrand()
+    {
+        return new Strand(true);
+    }
+
+    /**
+     * Creates a serial executor on top of this pool.
+     *
+     * @param limited False for a strand whose tasks never block. It starts
+     * at once, without waiting for the strand limit, so it never waits
+     * behind strands that are blocked on it.
+     * @return The strand.
+     */
+    public Strand NewStrand(boolean limited)
+    {
+        return new Strand(limited);
+    }
+
+    /**
+     * Queues a strand that has tasks to run.
+     */
+    private void ScheduleStrand(Strand strand)
+    {
+        UpdatePeak(mPeakStrandsWaiting, mStrandsWaiting.incrementAndGet());
+        mReadyStrands.add(strand);
+        DispatchStrands();
+    }
+
+    /**
+     * Starts the waiting strands, as long as fewer than the strand limit
+     * are running.
+     */
+    private void DispatchStrands()
+    {
+        while(!mReadyStrands.isEmpty())
+        {
+            int running = mStrandsRunning.get();
+
+            if(running >= mStrandLimit)
+                return;
+
+            if(!mStrandsRunning.compareAndSet(running, running + 1))
+                continue;
+
+            Strand strand = mReadyStrands.poll();
+
+            if(strand == null)
+            {
+                mStrandsRunning.decrementAndGet();
+                continue;
+            }
+
+            try
+            {
+                execute(strand.mDrain);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                //The pool is shut down, the queued tasks are discarded.
+                mStrandsRunning.decrementAndGet();
+                strand.mScheduled.set(false);
+                strand.Shutdown();
+            }
+            finally
+            {
+                //Only after the drain is submitted, so the strand is never
+                //seen as neither waiting nor submitted.
+                mStrandsWaiting.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Waits for a latch. If called from a worker of this pool, the wait is
+     * counted as blocked, and the pool may start a spare thread while the
+     * worker is blocked.
+     *
+     * @param latch The latch to wait for.
+     * @param timeout Longest time to wait.
+     * @param unit Unit of the time out.
+     * @return True if the latch reached zero, false on time out.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean Await(CountDownLatch latch, long timeout, TimeUnit unit)
+            throws InterruptedException
+    {
+        if(latch.getCount() == 0)
+            return true;
+
+        if(mInTask.get() == null)
+            return latch.await(timeout, unit);
+
+        Thread t = Thread.currentThread();
+        ForkJoinPool pool = mForkJoin;
+
+        int blocked = mBlocked.incrementAndGet();
+        UpdatePeak(mPeakBlocked, blocked);
+        mWaiting.put(t, latch);
+        NotifyIdle();
+
+        try
+        {
+            if(pool == null || !(t instanceof ForkJoinWorkerThread)
+                    || ((ForkJoinWorkerThread)t).getPool() != pool)
+            {
+                return latch.await(timeout, unit);
+            }
+
+            if(blocked > mMaxSpare)
+            {
+                mUncompensated.incrementAndGet();
+                return latch.await(timeout, unit);
+            }
+
+            ForkJoinPool.managedBlock(new LatchBlocker(latch,
+                    System.nanoTime() + unit.toNanos(timeout)));
+            UpdatePeak(mPeakThreads, pool.getPoolSize());
+
+            return latch.getCount() == 0;
+        }
+        finally
+        {
+            mWaiting.remove(t);
+            mBlocked.decrementAndGet();
+        }
+    }
+
+    /**
+     * Sets a listener that is run every time a task completes or starts to
+     * wait in Await, i.e. every time the pool may have become quiescent.
+     * The listener must be short and must not block.
+     *
+     * @param listener The listener, null for none.
+     */
+    public void SetIdleListener(Runnable listener)
+    {
+        mIdleListener = listener;
+    }
+
+    private void NotifyIdle()
+    {
+        Runnable listener = mIdleListener;
+
+        if(listener != null)
+            listener.run();
+    }
+
+    /**
+     * Tells if every task that has been submitted is either done or blocked
+     * in Await on a latch that has not been released yet. Strands waiting
+     * for the strand limit only count if the limit lets them start. Nothing
+     * more can happen on the pool until one of those latches is released.
+     *
+     * @return True if the pool has nothing to run.
+     */
+    public boolean IsQuiescent()
+    {
+        if(mStrandsWaiting.get() > 0 && mStrandsRunning.get() < mStrandLimit)
+            return false;
+
+        long completed = mCompleted.get();
+        long busy = mSubmitted.get() - completed;
+
+        if(busy <= 0)
+            return true;
+
+        for(CountDownLatch latch : mWaiting.values())
+        {
+            if(latch.getCount() > 0 && --busy <= 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    private void RunTask(Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch(RuntimeException ex)
+        {
+            mFailed.incrementAndGet();
+            Log.Write(Log.Category.KERNEL, Log.Level.ERROR, 
+                    "WorkerPool: task failed, ", Log.StackTrace(ex));
+        }
+    }
+
+    private static void UpdatePeak(AtomicInteger peak, int value)
+    {
+        int p = peak.get();
+
+        while(value > p && !peak.compareAndSet(p, value))
+            p = peak.get();
+    }
+
+    private static void UpdatePeak(AtomicLong peak, long value)
+    {
+        long p = peak.get();
+
+        while(value > p && !peak.compareAndSet(p, value))
+            p = peak.get();
+    }
+
+    /**
+     *
+     * @return True if the tasks run on virtual threads.
+     */
+    public boolean IsVirtual()
+    {
+        return mExecutor != null && mForkJoin == null;
+    }
+
+    /**
+     *
+     * @return Number of threads that run tasks at the same time.
+     */
+    public int GetParallelism()
+    {
+        return mParallelism;
+    }
+
+    /**
+     *
+     * @return Current number of threads, 0 if not started or virtual.
+     */
+    public int GetPoolSize()
+    {
+        ForkJoinPool pool = mForkJoin;
+        return pool == null ? 0 : pool.getPoolSize();
+    }
+
+    /**
+     *
+     * @return Largest number of threads seen.
+     */
+    public int GetPeakPoolSize()
+    {
+        return mPeakThreads.get();
+    }
+
+    /**
+     *
+     * @return Number of tasks running right now.
+     */
+    public int GetRunning()
+    {
+        return mRunning.get();
+    }
+
+    /**
+     *
+     * @return Largest number of tasks running at the same time.
+     */
+    public int GetPeakRunning()
+    {
+        return mPeakRunning.get();
+    }
+
+    /**
+     *
+     * @return Number of tasks submitted but not yet completed.
+     */
+    public long GetBacklog()
+    {
+        return Math.max(0, mSubmitted.get() - mCompleted.get());
+    }
+
+    /**
+     *
+     * @return Largest backlog seen.
+     */
+    public long GetPeakBacklog()
+    {
+        return mPeakBacklog.get();
+    }
+
+    /**
+     *
+     * @return Number of workers blocked in Await right now.
+     */
+    public int GetBlocked()
+    {
+        return mBlocked.get();
+    }
+
+    /**
+     *
+     * @return Largest number of workers blocked in Await at the same time.
+     */
+    public int GetPeakBlocked()
+    {
+        return mPeakBlocked.get();
+    }
+
+    /**
+     *
+     * @return Number of waits that got no spare thread because maxSpare
+     * workers were already blocked.
+     */
+    public long GetUncompensatedWaits()
+    {
+        return mUncompensated.get();
+    }
+
+    /**
+     *
+     * @return Number of strands running at most at the same time.
+     */
+    public int GetStrandLimit()
+    {
+        return mStrandLimit;
+    }
+
+    /**
+     *
+     * @return Number of strands waiting for their turn.
+     */
+    public int GetWaitingStrands()
+    {
+        return mStrandsWaiting.get();
+    }
+
+    /**
+     *
+     * @return Largest number of strands waiting at the same time.
+     */
+    public int GetPeakWaitingStrands()
+    {
+        return mPeakStrandsWaiting.get();
+    }
+
+    /**
+     *
+     * @return Number of tasks stolen by another worker.
+     */
+    public long GetSteals()
+    {
+        ForkJoinPool pool = mForkJoin;
+        return pool == null ? 0 : pool.getStealCount();
+    }
+
+    /**
+     *
+     * @return Number of submitted tasks.
+     */
+    public long GetSubmitted()
+    {
+        return mSubmitted.get();
+    }
+
+    /**
+     *
+     * @return Number of completed tasks.
+     */
+    public long GetCompleted()
+    {
+        return mCompleted.get();
+    }
+
+    /**
+     *
+     * @return Number of tasks that threw an exception.
+     */
+    public long GetFailed()
+    {
+        return mFailed.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        if(IsVirtual())
+        {
+            return "virtual threads, tasks=" + GetCompleted()
+                    + " running=" + GetRunning() + "/" + GetPeakRunning()
+                    + " backlog=" + GetBacklog() + "/" + GetPeakBacklog()
+                    + " waiting strands=" + GetWaitingStrands() + "/"
+                    + GetPeakWaitingStrands()
+                    + " failed=" + GetFailed();
+        }
+
+        return "threads=" + GetPoolSize() + "/" + GetPeakPoolSize()
+                + " (parallelism " + mParallelism + ")"
+                + " tasks=" + GetCompleted()
+                + " running=" + GetRunning() + "/" + GetPeakRunning()
+                + " backlog=" + GetBacklog() + "/" + GetPeakBacklog()
+                + " blocked=" + GetBlocked() + "/" + GetPeakBlocked()
+                + " uncompensated=" + GetUncompensatedWaits()
+                + " waiting strands=" + GetWaitingStrands() + "/"
+                + GetPeakWaitingStrands()
+                + " steals=" + GetSteals()
+                + " failed=" + GetFailed();
+    }
+}
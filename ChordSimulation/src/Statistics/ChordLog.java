@@ -18,6 +18,7 @@
  */
 package Statistics;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DateFormat;
@@ -49,7 +50,7 @@ public abstract class ChordLog
     {
         Calendar cal = Calendar.getInstance();
                 
-        mDest = "log\\";
+        mDest = "log" + File.separator;
         
         if(include_date)
             mFileName = fileName+mDateFormat.format(cal.getTime());
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed memory histogram of non negative long values, with log-linear
+ * buckets in the style of HdrHistogram. Values below 2^precisionBits are
+ * counted exactly, larger values with a relative error of at most
+ * 2^-(precisionBits - 1). Values above the highest trackable value are
+ * counted as the highest trackable value.
+ *
+ * Recording is lock free and can be done by several threads at once.
+ *
+ * @author Simon Edänge
+ */
+public class Histogram
+{
+    private final long mHighest;
+    private final int mSubBits;
+    private final int mHalf;
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mTotal;
+    private final AtomicLong mSum;
+    private final AtomicLong mMin;
+    private final AtomicLong mMax;
+
+    /**
+     * Constructs a histogram.
+     *
+     * @param highestTrackable Highest value that can be told apart.
+     * @param precisionBits Bits of precision per bucket, 1 to 20.
+     */
+    public Histogram(long highestTrackable, int precisionBits)
+    {
+        if(highestTrackable < 1 || precisionBits < 1 || precisionBits > 20)
+            throw new IllegalArgumentException("Invalid histogram size");
+
+        mHighest = highestTrackable;
+        mSubBits = precisionBits;
+        mHalf = 1 << (precisionBits - 1);
+        mCounts = new AtomicLongArray(IndexOf(highestTrackable) + 1);
+        mTotal = new AtomicLong(0);
+        mSum = new AtomicLong(0);
+        mMin = new AtomicLong(Long.MAX_VALUE);
+        mMax = new AtomicLong(0);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value, negative values are counted as zero.
+     */
+    public void Record(long value)
+    {
+        if(value < 0)
+            value = 0;
+        else if(value > mHighest)
+            value = mHighest;
+
+        mCounts.incrementAndGet(IndexOf(value));
+        mTotal.incrementAndGet();
+        mSum.addAndGet(value);
+
+        long min = mMin.get();
+        while(value < min && !mMin.compareAndSet(min, value))
+            min = mMin.get();
+
+        long max = mMax.get();
+        while(value > max && !mMax.compareAndSet(max, value))
+            max = mMax.get();
+    }
+
+    /**
+     *
+     * @return Number of recorded values.
+     */
+    public long GetTotalCount()
+    {
+        return mTotal.get();
+    }
+
+    /**
+     *
+     * @return Smallest recorded value, 0 if empty.
+     */
+    public long GetMin()
+    {
+        return mTotal.get() == 0 ? 0 : mMin.get();
+    }
+
+    /**
+     *
+     * @return Largest recorded value, 0 if empty.
+     */
+    public long GetMax()
+    {
+        return mMax.get();
+    }
+
+    /**
+     *
+     * @return Mean of the recorded values, 0 if empty.
+     */
+    public double GetMean()
+    {
+        long total = mTotal.get();
+        return total == 0 ? 0 : (double)mSum.get() / total;
+    }
+
+    /**
+     * The value at a percentile. The result is the highest value that falls
+     * in the same bucket, but never more than the largest recorded value.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value, 0 if empty.
+     */
+    public long GetValueAtPercentile(double percentile)
+    {
+        long total = 0;
+
+        for(int i = 0; i < mCounts.length(); i++)
+            total += mCounts.get(i);
+
+        if(total == 0)
+            return 0;
+
+        double p = Math.min(100, Math.max(0, percentile));
+        long rank = Math.max(1, (long)Math.ceil(p / 100 * total));
+        long seen = 0;
+
+        for(int i = 0; i < mCounts.length(); i++)
+        {
+            seen += mCounts.get(i);
+
+            if(seen >= rank)
+                return Math.min(HighestEquivalent(i), GetMax());
+        }
+
+        return GetMax();
+    }
+
+    /**
+     * Makes a copy of this histogram. A value recorded while copying is
+     * either in the copy or not, it is never counted twice.
+     *
+     * @return The copy.
+     */
+    public Histogram Copy()
+    {
+        Histogram h = new Histogram(mHighest, mSubBits);
+        long total = 0;
+
+        for(int i = 0; i < mCounts.length(); i++)
+        {
+            long c = mCounts.get(i);
+
+            if(c != 0)
+            {
+                h.mCounts.set(i, c);
+                total += c;
+            }
+        }
+
+        h.mTotal.set(total);
+        h.mSum.set(mSum.get());
+        h.mMin.set(mMin.get());
+        h.mMax.set(mMax.get());
+
+        return h;
+    }
+
+    /**
+     * Creates the difference between this histogram and an earlier copy of
+     * it, i.e. the values recorded in between.
+     *
+     * @param earlier An earlier copy of this histogram.
+     * @return The difference.
+     */
+    public Histogram Subtract(Histogram earlier)
+    {
+        if(earlier.mCounts.length() != mCounts.length())
+            throw new IllegalArgumentException("Histograms of different size");
+
+        Histogram h = new Histogram(mHighest, mSubBits);
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+
+        for(int i = 0; i < mCounts.length(); i++)
+        {
+            long c = mCounts.get(i) - earlier.mCounts.get(i);
+
+            if(c > 0)
+            {
+                h.mCounts.set(i, c);
+                total += c;
+                min = Math.min(min, LowestEquivalent(i));
+                max = Math.max(max, Math.min(HighestEquivalent(i), GetMax()));
+            }
+        }
+
+        h.mTotal.set(total);
+        h.mSum.set(Math.max(0, mSum.get() - earlier.mSum.get()));
+        h.mMin.set(min);
+        h.mMax.set(max);
+
+        return h;
+    }
+
+    private int IndexOf(long value)
+    {
+        int bucket = Math.max(0,
+                (63 - Long.numberOfLeadingZeros(value)) - (mSubBits - 1));
+
+        return bucket * mHalf + (int)(value >>> bucket);
+    }
+
+    private long LowestEquivalent(int index)
+    {
+        if(index < 2 * mHalf)
+            return index;
+
+        int bucket = (index >> (mSubBits - 1)) - 1;
+        long sub = index - (long)bucket * mHalf;
+
+        return sub << bucket;
+    }
+
+    private long HighestEquivalent(int index)
+    {
+        if(index < 2 * mHalf)
+            return index;
+
+        int bucket = (index >> (mSubBits - 1)) - 1;
+
+        return LowestEquivalent(index) + (1L << bucket) - 1;
+    }
+}
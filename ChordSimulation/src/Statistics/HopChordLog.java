@@ -18,9 +18,8 @@
  */
 package Statistics;
 
-import Chord.ChordNode;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.math.BigInteger;
 
 /**
  * An class extended from ChordLog class, 
@@ -33,20 +32,21 @@ import java.util.ArrayList;
  */
 public class HopChordLog extends ChordLog
 {
-    private final String HOP_NUBMER = "HOP_NUMBER";
-    private final String HOP_CALLER = "HOP_CALLER";
-    private final String HOP_TARGET = "HOP_TARGET";
+    static final String HOP_NUBMER = "HOP_NUMBER";
+    static final String HOP_CALLER = "HOP_CALLER";
+    static final String HOP_TARGET = "HOP_TARGET";
     
-    private final String TEST_TARGET_NODE = "TEST_TARGET_NODE";
-    private final String TEST_TARGET_KEY = "TEST_TARGET_KEY";
-    private final String TEST_RESULT_NODE = "TEST_RESULT_NODE";
-    private final String TEST_STATUS = "TEST_STATUS";
-    private final String str_status_success = "SUCCESS";
-    private final String str_status_failed = "FAILED";
+    static final String TEST_TARGET_NODE = "TEST_TARGET_NODE";
+    static final String TEST_TARGET_KEY = "TEST_TARGET_KEY";
+    static final String TEST_RESULT_NODE = "TEST_RESULT_NODE";
+    static final String TEST_STATUS = "TEST_STATUS";
+    static final String str_status_success = "SUCCESS";
+    static final String str_status_failed = "FAILED";
     
-    private final String HOP_TOTAL_TIME = "HOP_TOTAL_TIME";
+    static final String HOP_TOTAL_TIME = "HOP_TOTAL_TIME";
     
-    private final String TEST_TOTAL_NODES = "TEST_TOTAL_NODES";
+    static final String TEST_TOTAL_NODES = "TEST_TOTAL_NODES";
+    static final String SEPARATOR = "*********************";
     
     private final int mTotalNodes;
     private boolean mFirstCall;
@@ -62,6 +62,32 @@ public class HopChordLog extends ChordLog
         mFirstCall = true;
     }
     
+    /**
+     * Construct a hop log to store HopData information.
+     * @param totalNodes Total nodes in the current systems Chord Ring.
+     * @param destination Directory of the log, ending with a separator.
+     */
+    public HopChordLog(final int totalNodes, final String destination)
+    {
+        super("HoppLog", true, destination);
+        mTotalNodes = totalNodes;
+        mFirstCall = true;
+    }
+    
+    /**
+     * Construct a hop log with a given name, without the date.
+     * @param totalNodes Total nodes in the current systems Chord Ring.
+     * @param destination Directory of the log, ending with a separator.
+     * @param fileName Name of the log, without the file type.
+     */
+    public HopChordLog(final int totalNodes, final String destination,
+            final String fileName)
+    {
+        super(fileName, false, destination);
+        mTotalNodes = totalNodes;
+        mFirstCall = true;
+    }
+    
    /**
    * Prints a HopData object to the log file.
    * @param data
@@ -70,39 +96,44 @@ public class HopChordLog extends ChordLog
    * @see IOException
    */
     public void PrintData(final HopData data, final int measureNumber) throws IOException
+    {
+        PrintRecord(HopRecord.FromHopData(data, measureNumber));
+    }
+    
+   /**
+   * Prints a HopRecord to the log file.
+   * @param record
+   * @exception IOException On input error.
+   * @see IOException
+   */
+    public void PrintRecord(final HopRecord record) throws IOException
     {
         if(mFirstCall)
         {
             mFirstCall = false;
             Println(TEST_TOTAL_NODES + "=" + mTotalNodes); 
-            Println("*********************");
+            Println(SEPARATOR);
         }
         
-        Println(HOP_NUBMER+"="+measureNumber);
-        Println(HOP_CALLER+"="+data.GetCaller().PeerID().GetIdentifierCH());
-        Println(TEST_TARGET_NODE+"="+data.GetTargetNode()
-                .PeerID().GetIdentifierCH());
-        Println(TEST_TARGET_KEY+"="+data.GetTargetNode()
-                .PeerID().GetKeyCH());
+        Println(HOP_NUBMER+"="+record.GetNumber());
+        Println(HOP_CALLER+"="+record.GetCaller());
+        Println(TEST_TARGET_NODE+"="+record.GetTarget());
+        Println(TEST_TARGET_KEY+"="+record.GetKey());
         
         
-        if( !data.IsFailed() )
+        if( !record.IsFailed() )
             Println(TEST_STATUS+"="+str_status_success);
         else
             Println(TEST_STATUS+"="+str_status_failed);
         
-        ArrayList<ChordNode> list = data.GetTargets();
-        
-        for(ChordNode n : list)
+        for(BigInteger n : record.GetHops())
         {
-            Println(HOP_TARGET+"="+n.PeerID().GetIdentifierCH().toString());
+            Println(HOP_TARGET+"="+n.toString());
         }
         
-        long totalTime = data.GetEndTime() - data.GetStartTime();
-        
-        Println(HOP_TOTAL_TIME+"="+totalTime);
-        Println(TEST_RESULT_NODE+"="+data.GetResultNode().PeerID()
-                .GetIdentifierCH());
-        Println("*********************");
+        Println(HOP_TOTAL_TIME+"="+record.GetDuration() / 1000000L);
+        Println(TEST_RESULT_NODE+"="+(record.GetResult() == null 
+                ? "NULL" : record.GetResult().toString()));
+        Println(SEPARATOR);
     }
 }
\ No newline at end of file
@@ -36,7 +36,9 @@ public class HopData
     private final ArrayList<ChordNode> mTargets;
     private long mStart;
     private long mEnd;
+    private long mLatency;
     private boolean mFailed;
+    private boolean mWrongOwner;
 
     /**
      * Checks if the current lookup is a failed lookup or if it is successful.
@@ -56,6 +58,25 @@ public class HopData
         this.mFailed = failed;
     }
     
+    /**
+     * Checks if the lookup found the key at a node that is not the true 
+     * successor of the key, e.g. a node that still has a replica of it.
+     * @return True if found at another node than the owner.
+     */
+    public boolean IsWrongOwner()
+    {
+        return mWrongOwner;
+    }
+
+    /**
+     * Sets the wrong owner variable.
+     * @param wrongOwner Option
+     */
+    public void SetWrongOwner(boolean wrongOwner)
+    {
+        this.mWrongOwner = wrongOwner;
+    }
+    
     /**
      * Constructs a HopData object
      * @param caller The caller who initiated the lookup.
@@ -67,7 +88,9 @@ public class HopData
         mTargetNode = target;
         mTargets = new ArrayList<>();
         mResultNode = null;
+        mLatency = -1;
         mFailed = false;
+        mWrongOwner = false;
     }
     
     /**
@@ -123,6 +146,28 @@ public class HopData
         mEnd = end;
     }
     
+    /**
+     * 
+     * @param latency Latency of the lookup in ns. 
+     */
+    public void SetLatency(long latency)
+    {
+        mLatency = latency;
+    }
+    
+    /**
+     * 
+     * @return Latency of the lookup in ns. If not set, it is taken from the
+     * start and end time.
+     */
+    public long GetLatency()
+    {
+        if(mLatency < 0)
+            return (mEnd - mStart) * 1000000L;
+        
+        return mLatency;
+    }
+    
     /**
      * 
      * @param result Sets the Result not, which is the result of the lookup.
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Statistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Converts hop logs between the text format of HopChordLog and the binary
+ * format of HopLogWriter. The text format is still read by Chord_Import.xlsm,
+ * the binary format is much smaller and faster to process.
+ * 
+ * Usage: HopLogConverter input output [bits]
+ * A text input is converted to binary, a binary input to text.
+ * 
+ * @see HopChordLog
+ * @see HopLogWriter
+ * @author Simon Edänge
+ */
+public class HopLogConverter
+{
+    private HopLogConverter()
+    {
+    }
+    
+    /**
+     * Converts a text hop log to a binary hop log.
+     * @param in The text log.
+     * @param out The binary log to create.
+     * @param bits Bits of the identifiers, 0 to use the bits of the largest
+     * identifier in the log.
+     * @return Number of converted records.
+     * @throws IOException If a log cannot be read or written, or the text log
+     * is invalid.
+     */
+    public static long TextToBinary(final File in, final File out, int bits) 
+            throws IOException
+    {
+        //First pass, the header needs the total nodes and the bits.
+        int totalNodes = 0;
+        int maxBits = 1;
+        
+        try (BufferedReader reader = Open(in))
+        {
+            String line;
+            
+            while((line = reader.readLine()) != null)
+            {
+                int i = line.indexOf('=');
+                
+                if(i < 0)
+                    continue;
+                
+                String key = line.substring(0, i);
+                String value = line.substring(i + 1).trim();
+                
+                if(key.equals(HopChordLog.TEST_TOTAL_NODES))
+                    totalNodes = Integer.parseInt(value);
+                else if(IsId(key) && !value.equals("NULL"))
+                    maxBits = Math.max(maxBits, new BigInteger(value).bitLength());
+            }
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new IOException(in + " is not a hop log: " + ex.getMessage());
+        }
+        
+        if(bits <= 0)
+            bits = maxBits;
+        
+        HopLogWriter writer = new HopLogWriter(out, totalNodes);
+        long records = 0;
+        
+        try (BufferedReader reader = Open(in))
+        {
+            TextRecord r = null;
+            String line;
+            int lineNumber = 0;
+            
+            while((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                
+                if(line.startsWith(HopChordLog.SEPARATOR))
+                {
+                    if(r != null && !writer.Write(r.ToRecord(bits)))
+                        break;
+                    
+                    if(r != null)
+                        records++;
+                    
+                    r = null;
+                    continue;
+                }
+                
+                int i = line.indexOf('=');
+                
+                if(i < 0)
+                    continue;
+                
+                String key = line.substring(0, i);
+                String value = line.substring(i + 1).trim();
+                
+                if(key.equals(HopChordLog.TEST_TOTAL_NODES))
+                    continue;
+                
+                if(r == null)
+                    r = new TextRecord();
+                
+                try {
+                    r.Set(key, value);
+                } catch (NumberFormatException ex) {
+                    throw new IOException(in + ", line " + lineNumber 
+                            + ": invalid value " + line);
+                }
+            }
+            
+            if(r != null && writer.Write(r.ToRecord(bits)))
+                records++;
+        }
+        finally
+        {
+            writer.Close();
+        }
+        
+        if(writer.GetError() != null)
+            throw writer.GetError();
+        
+        return records;
+    }
+    
+    /**
+     * Converts a binary hop log to a text hop log.
+     * @param in The binary log.
+     * @param destination Directory of the text log, ending with a separator.
+     * @param fileName Name of the text log, without the file type.
+     * @return Number of converted records.
+     * @throws IOException If a log cannot be read or written.
+     */
+    public static long BinaryToText(final File in, final String destination, 
+            final String fileName) throws IOException
+    {
+        long records = 0;
+        
+        try (HopLogReader reader = new HopLogReader(in))
+        {
+            HopChordLog log = new HopChordLog(reader.GetTotalNodes(), 
+                    destination, fileName);
+            
+            try {
+                HopRecord r;
+                
+                while((r = reader.Next()) != null)
+                {
+                    log.PrintRecord(r);
+                    records++;
+                }
+            } finally {
+                log.Close();
+            }
+        }
+        
+        return records;
+    }
+    
+    private static BufferedReader Open(final File file) throws IOException
+    {
+        return new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+    
+    private static boolean IsId(final String key)
+    {
+        return key.equals(HopChordLog.HOP_CALLER) 
+                || key.equals(HopChordLog.HOP_TARGET)
+                || key.equals(HopChordLog.TEST_TARGET_NODE)
+                || key.equals(HopChordLog.TEST_TARGET_KEY)
+                || key.equals(HopChordLog.TEST_RESULT_NODE);
+    }
+    
+    /**
+     * A record being read from a text log.
+     */
+    private static class TextRecord
+    {
+        private long mNumber = 0;
+        private BigInteger mCaller = BigInteger.ZERO;
+        private BigInteger mTarget = BigInteger.ZERO;
+        private BigInteger mKey = BigInteger.ZERO;
+        private boolean mFailed = false;
+        private final ArrayList<BigInteger> mHops = new ArrayList<>();
+        private BigInteger mResult = null;
+        private long mTime = 0;
+        
+        void Set(final String key, final String value)
+        {
+            switch(key)
+            {
+                case HopChordLog.HOP_NUBMER:
+                    mNumber = Long.parseLong(value);
+                    break;
+                case HopChordLog.HOP_CALLER:
+                    mCaller = new BigInteger(value);
+                    break;
+                case HopChordLog.TEST_TARGET_NODE:
+                    mTarget = new BigInteger(value);
+                    break;
+                case HopChordLog.TEST_TARGET_KEY:
+                    mKey = new BigInteger(value);
+                    break;
+                case HopChordLog.TEST_STATUS:
+                    mFailed = value.equals(HopChordLog.str_status_failed);
+                    break;
+                case HopChordLog.HOP_TARGET:
+                    mHops.add(new BigInteger(value));
+                    break;
+                case HopChordLog.HOP_TOTAL_TIME:
+                    mTime = Long.parseLong(value);
+                    break;
+                case HopChordLog.TEST_RESULT_NODE:
+                    mResult = value.equals("NULL") ? null : new BigInteger(value);
+                    break;
+            }
+        }
+        
+        HopRecord ToRecord(final int bits)
+        {
+            return new HopRecord(mNumber, bits, mCaller, mTarget, mKey, 
+                    mFailed, mHops.toArray(new BigInteger[mHops.size()]), 
+                    mResult, mTime * 1000000L);
+        }
+    }
+    
+    /**
+     * @param args input output [bits]
+     */
+    public static void main(String[] args)
+    {
+        if(args.length < 2 || args.length > 3)
+        {
+            System.err.println("Usage: HopLogConverter input output [bits]");
+            System.exit(2);
+        }
+        
+        File in = new File(args[0]);
+        File out = new File(args[1]);
+        
+        try
+        {
+            long records;
+            
+            if(HopLogReader.IsHopLog(in))
+            {
+                String name = out.getName();
+                
+                if(name.endsWith(".log"))
+                    name = name.substring(0, name.length() - 4);
+                
+                String dir = out.getAbsoluteFile().getParent() + File.separator;
+                records = BinaryToText(in, dir, name);
+            }
+            else
+            {
+                records = TextToBinary(in, out, 
+                        args.length > 2 ? Integer.parseInt(args[2]) : 0);
+            }
+            
+            System.out.println("Converted " + records + " records to " + out);
+        }
+        catch(IOException | NumberFormatException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
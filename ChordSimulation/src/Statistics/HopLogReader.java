@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Statistics;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a binary hop log one record at a time, so logs of any size can be
+ * processed without reading them into memory.
+ * 
+ * @see HopLogWriter
+ * @see HopRecord
+ * @author Simon Edänge
+ */
+public class HopLogReader implements Closeable, Iterable<HopRecord>
+{
+    private final DataInputStream mIn;
+    private final int mBits;
+    private final int mWidth;
+    private final int mTotalNodes;
+    private byte[] mBuffer;
+    private byte[] mId;
+    
+    /**
+     * Opens a hop log and reads its header.
+     * @param file The file of the log.
+     * @throws IOException If the file cannot be read or is not a hop log.
+     */
+    public HopLogReader(final File file) throws IOException
+    {
+        mIn = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16));
+        
+        try {
+            if(mIn.readInt() != HopLogWriter.MAGIC)
+                throw new IOException(file + " is not a hop log");
+            
+            int version = mIn.readShort();
+            
+            if(version != HopLogWriter.VERSION)
+                throw new IOException(file + " has unknown version " + version);
+            
+            mBits = mIn.readUnsignedShort();
+            mTotalNodes = mIn.readInt();
+        } catch (IOException ex) {
+            mIn.close();
+            
+            if(ex instanceof EOFException)
+                throw new IOException(file + " is not a hop log");
+            
+            throw ex;
+        }
+        
+        mWidth = (mBits + 7) / 8;
+        mBuffer = new byte[256];
+        mId = new byte[mWidth];
+    }
+    
+    /**
+     * Checks if a file is a binary hop log.
+     * @param file The file.
+     * @return True if the file starts with the hop log header.
+     */
+    public static boolean IsHopLog(final File file)
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file)))
+        {
+            return in.readInt() == HopLogWriter.MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+    
+    /**
+     * 
+     * @return Bits of the identifiers.
+     */
+    public int GetBits()
+    {
+        return mBits;
+    }
+    
+    /**
+     * 
+     * @return Total nodes in the Chord Ring when the log was written.
+     */
+    public int GetTotalNodes()
+    {
+        return mTotalNodes;
+    }
+    
+    /**
+     * Reads the next record.
+     * @return The record, null at the end of the log.
+     * @throws IOException If the log cannot be read or is corrupt.
+     */
+    public HopRecord Next() throws IOException
+    {
+        int length;
+        
+        try {
+            length = mIn.readInt();
+        } catch (EOFException ex) {
+            return null;
+        }
+        
+        if(length < 0)
+            throw new IOException("Corrupt hop log, record length " + length);
+        
+        if(length > mBuffer.length)
+            mBuffer = new byte[Math.max(length, mBuffer.length * 2)];
+        
+        mIn.readFully(mBuffer, 0, length);
+        
+        ByteBuffer b = ByteBuffer.wrap(mBuffer, 0, length);
+        
+        try {
+            long number = b.getLong();
+            int flags = b.get();
+            BigInteger caller = ReadId(b);
+            BigInteger target = ReadId(b);
+            BigInteger key = ReadId(b);
+            BigInteger[] hops = new BigInteger[b.getShort() & 0xFFFF];
+            
+            for(int i = 0; i < hops.length; i++)
+                hops[i] = ReadId(b);
+            
+            BigInteger result = null;
+            
+            if((flags & HopLogWriter.FLAG_RESULT) != 0)
+                result = ReadId(b);
+            
+            long duration = b.getLong();
+            
+            return new HopRecord(number, mBits, caller, target, key, 
+                    (flags & HopLogWriter.FLAG_FAILED) != 0, hops, result, 
+                    duration);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Corrupt hop log, record too short");
+        }
+    }
+    
+    private BigInteger ReadId(final ByteBuffer b)
+    {
+        b.get(mId);
+        return new BigInteger(1, mId);
+    }
+    
+    /**
+     * An iterator over the remaining records. Read errors are thrown as
+     * UncheckedIOException.
+     * @return The iterator.
+     */
+    @Override
+    public Iterator<HopRecord> iterator()
+    {
+        return new Iterator<HopRecord>()
+        {
+            private HopRecord mNext = null;
+            
+            @Override
+            public boolean hasNext()
+            {
+                if(mNext == null)
+                {
+                    try {
+                        mNext = Next();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+                
+                return mNext != null;
+            }
+
+            @Override
+            public HopRecord next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                
+                HopRecord r = mNext;
+                mNext = null;
+                return r;
+            }
+        };
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        mIn.close();
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Statistics;
+
+import Chord.Identifier.Identifier;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes HopRecords to a binary hop log. The records are queued and written
+ * by a background thread through a buffered stream, so the lookups are not
+ * held up by the disk.
+ * 
+ * The log starts with a header:
+ * <pre>
+ * int   MAGIC
+ * short VERSION
+ * short Bits of the identifiers (0 if the log has no records)
+ * int   Total nodes
+ * </pre>
+ * followed by records, each one prefixed by its length in bytes:
+ * <pre>
+ * int   Length of the rest of the record
+ * long  Number of the lookup
+ * byte  Flags, FLAG_FAILED and FLAG_RESULT
+ * id    Caller
+ * id    Target node
+ * id    Target key
+ * short Number of hops
+ * id    Hop, repeated for every hop
+ * id    Result node, only if FLAG_RESULT is set
+ * long  Duration (ns)
+ * </pre>
+ * An id is written unsigned, big-endian, in (bits + 7) / 8 bytes, taken
+ * from the words of the identifier.
+ * All numbers are big-endian.
+ * 
+ * @see HopLogReader
+ * @see HopRecord
+ * @author Simon Edänge
+ */
+public class HopLogWriter
+{
+    public static final int MAGIC = 0x484F5050;
+    public static final short VERSION = 1;
+    public static final int FLAG_FAILED = 1;
+    public static final int FLAG_RESULT = 2;
+    public static final String FILE_TYPE = "hop";
+    
+    private static final int QUEUE_SIZE = 8192;
+    private static final int BATCH_SIZE = 1024;
+    private static final HopRecord END = new HopRecord(-1, 0, 
+            (Identifier)null, null, null, false, null, null, 0);
+    
+    private final File mFile;
+    private final int mTotalNodes;
+    private final BlockingQueue<HopRecord> mQueue;
+    private final Thread mThread;
+    private volatile boolean mClosed;
+    private volatile IOException mError;
+    
+    private DataOutputStream mOut;
+    private final ByteArrayOutputStream mRecordBytes;
+    private final DataOutputStream mRecord;
+    private int mBits;
+    private int mWidth;
+    
+    /**
+     * Constructs a hop log in the default directory log/.
+     * @param totalNodes Total nodes in the current systems Chord Ring.
+     */
+    public HopLogWriter(final int totalNodes)
+    {
+        this(totalNodes, "log" + File.separator);
+    }
+    
+    /**
+     * Constructs a hop log, named after the current date.
+     * @param totalNodes Total nodes in the current systems Chord Ring.
+     * @param destination Directory of the log, ending with a separator.
+     */
+    public HopLogWriter(final int totalNodes, final String destination)
+    {
+        this(new File(destination + "HoppLog" 
+                + new SimpleDateFormat("yyyyMMdd-HHmmss")
+                        .format(Calendar.getInstance().getTime()) 
+                + "." + FILE_TYPE), totalNodes);
+    }
+    
+    /**
+     * Constructs a hop log.
+     * @param file The file of the log.
+     * @param totalNodes Total nodes in the current systems Chord Ring.
+     */
+    public HopLogWriter(final File file, final int totalNodes)
+    {
+        mFile = file;
+        mTotalNodes = totalNodes;
+        mQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        mRecordBytes = new ByteArrayOutputStream(256);
+        mRecord = new DataOutputStream(mRecordBytes);
+        mClosed = false;
+        mError = null;
+        mBits = -1;
+        
+        try {
+            mOut = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file), 1 << 16));
+        } catch (IOException ex) {
+            System.err.println(ex);
+            mError = ex;
+            mOut = null;
+        }
+        
+        mThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                WriteRecords();
+            }
+        });
+        mThread.setName("HopLogWriter - " + file.getName());
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+    
+    /**
+     * Queues a record to be written. Blocks if the queue is full.
+     * @param record The record.
+     * @return False if the log is closed or cannot be written.
+     */
+    public boolean Write(final HopRecord record)
+    {
+        if(mClosed || mError != null)
+            return false;
+        
+        try {
+            mQueue.put(record);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Writes the queued records and closes the log.
+     * Should be called when the log is finished.
+     */
+    public void Close()
+    {
+        synchronized(this)
+        {
+            if(mClosed)
+                return;
+            
+            mClosed = true;
+        }
+        
+        boolean interrupted = false;
+        
+        while(true)
+        {
+            try {
+                mQueue.put(END);
+                mThread.join();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+    
+    /**
+     * 
+     * @return The file of the log.
+     */
+    public File GetFile()
+    {
+        return mFile;
+    }
+    
+    /**
+     * 
+     * @return The error that stopped the writing, null if none.
+     */
+    public IOException GetError()
+    {
+        return mError;
+    }
+    
+    /**
+     * The loop of the background thread.
+     */
+    private void WriteRecords()
+    {
+        ArrayList<HopRecord> batch = new ArrayList<>(BATCH_SIZE);
+        
+        while(true)
+        {
+            try {
+                batch.add(mQueue.take());
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            
+            mQueue.drainTo(batch, BATCH_SIZE - 1);
+            
+            for(HopRecord r : batch)
+            {
+                if(r == END)
+                {
+                    Finish();
+                    return;
+                }
+                
+                if(mError == null)
+                {
+                    try {
+                        Encode(r);
+                    } catch (IOException ex) {
+                        System.err.println("In HopLogWriter, "
+                                + "cannot write to " + mFile + ": " + ex);
+                        mError = ex;
+                    }
+                }
+            }
+            
+            batch.clear();
+            
+            if(mQueue.isEmpty() && mError == null)
+            {
+                try {
+                    mOut.flush();
+                } catch (IOException ex) {
+                    mError = ex;
+                }
+            }
+        }
+    }
+    
+    private void Finish()
+    {
+        if(mOut == null)
+            return;
+        
+        try {
+            if(mBits < 0)
+                WriteHeader(0);
+            
+            mOut.close();
+        } catch (IOException ex) {
+            System.err.println("In HopLogWriter, "
+                    + "cannot close " + mFile + ": " + ex);
+        }
+    }
+    
+    private void WriteHeader(final int bits) throws IOException
+    {
+        mBits = bits;
+        mWidth = (bits + 7) / 8;
+        
+        mOut.writeInt(MAGIC);
+        mOut.writeShort(VERSION);
+        mOut.writeShort(bits);
+        mOut.writeInt(mTotalNodes);
+    }
+    
+    private void Encode(final HopRecord r) throws IOException
+    {
+        if(mBits < 0)
+            WriteHeader(r.GetBits());
+        
+        Identifier[] hops = r.GetHopIDs();
+        
+        if(hops.length > 0xFFFF)
+            throw new IOException("Too many hops: " + hops.length);
+        
+        int flags = 0;
+        
+        if(r.IsFailed())
+            flags |= FLAG_FAILED;
+        
+        if(r.GetResultID() != null)
+            flags |= FLAG_RESULT;
+        
+        mRecordBytes.reset();
+        mRecord.writeLong(r.GetNumber());
+        mRecord.writeByte(flags);
+        WriteId(r.GetCallerID());
+        WriteId(r.GetTargetID());
+        WriteId(r.GetKeyID());
+        mRecord.writeShort(hops.length);
+        
+        for(Identifier hop : hops)
+            WriteId(hop);
+        
+        if(r.GetResultID() != null)
+            WriteId(r.GetResultID());
+        
+        mRecord.writeLong(r.GetDuration());
+        
+        mOut.writeInt(mRecordBytes.size());
+        mRecordBytes.writeTo(mOut);
+    }
+    
+    private void WriteId(final Identifier id) throws IOException
+    {
+        if(id.Bits() > mBits)
+            throw new IOException("Identifier does not fit in " 
+                    + mBits + " bits: " + id);
+        
+        //Most significant byte first, byte i is in word i / 8.
+        for(int i = mWidth - 1; i >= 0; i--)
+            mRecord.writeByte((int)(id.GetWord(i >>> 3) >>> ((i & 7) << 3)));
+    }
+}
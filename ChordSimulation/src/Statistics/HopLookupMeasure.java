@@ -18,20 +18,45 @@
  */
 package Statistics;
 
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is for creating lookup statistics.
- * It collects information about different lookups and stored them.
- * It also keep a log for every HopData added.
+ * It collects information about different lookups in fixed memory
+ * histograms, the HopData objects are not kept. It also keep a binary log
+ * for every HopData added.
  * @see HopData
+ * @see Histogram
+ * @see HopLogWriter
  * @author Simon Edänge
  */
 public class HopLookupMeasure
 {
-    private final ArrayList<HopData> mLookups;
-    private final HopChordLog mLogg;
+    /**
+     * Highest latency (ns) told apart, one hour.
+     */
+    public static final long MAX_LATENCY = 3600L * 1000 * 1000 * 1000;
+    
+    /**
+     * Highest hop count told apart.
+     */
+    public static final long MAX_HOPS = 4096;
+    
+    private static final int PRECISION_BITS = 11;
+    
+    private final HopLogWriter mLogg;
+    private final Histogram mLatency;
+    private final Histogram mHops;
+    private final AtomicLong mTests;
+    private final AtomicLong mFailed;
+    private final AtomicLong mNoResult;
+    private final AtomicLong mWrongOwner;
+    private final AtomicLong mTotalTime;
+    private final AtomicBoolean mLogErrorPrinted;
+    private Histogram mLastLatency;
+    private Histogram mLastHops;
+    private long mLastSnapshot;
 
     /**
      * Constructs a HopLookupMeasure object.
@@ -39,29 +64,66 @@ public class HopLookupMeasure
      */
     public HopLookupMeasure(final int totalNodes)
     {
-        mLookups = new ArrayList<>();
-        mLogg = new HopChordLog(totalNodes);
+        this(new HopLogWriter(totalNodes));
+    }
+    
+    /**
+     * Constructs a HopLookupMeasure object.
+     * @param totalNodes Total nodes in the current system.
+     * @param destination Directory of the log, ending with a separator.
+     */
+    public HopLookupMeasure(final int totalNodes, final String destination)
+    {
+        this(new HopLogWriter(totalNodes, destination));
+    }
+    
+    private HopLookupMeasure(final HopLogWriter log)
+    {
+        mLogg = log;
+        mLatency = new Histogram(MAX_LATENCY, PRECISION_BITS);
+        mHops = new Histogram(MAX_HOPS, PRECISION_BITS);
+        mTests = new AtomicLong(0);
+        mFailed = new AtomicLong(0);
+        mNoResult = new AtomicLong(0);
+        mWrongOwner = new AtomicLong(0);
+        mTotalTime = new AtomicLong(0);
+        mLogErrorPrinted = new AtomicBoolean(false);
+        mLastLatency = mLatency.Copy();
+        mLastHops = mHops.Copy();
+        mLastSnapshot = System.nanoTime();
     }
     
     /**
-     * Adds a lookup result from a lookup and stored it in a list.
-     * It will also print the contents in a log file.
-     * @see HopChordLog
+     * Adds a lookup result from a lookup to the histograms.
+     * It will also print the contents in a log file. A lookup without a
+     * result (null) is only counted.
+     * @see HopLogWriter
      * @param data Containing hop information.
      * @return Returns true if it got successfully added.
      */
     public boolean AddLookupResult(final HopData data)
     {
         if(data == null)
+        {
+            mNoResult.incrementAndGet();
             return false;
+        }
         
-        mLookups.add(data);
+        if(data.IsFailed())
+            mFailed.incrementAndGet();
+        else if(data.IsWrongOwner())
+            mWrongOwner.incrementAndGet();
+        
+        mHops.Record(data.GetHops());
+        mLatency.Record(data.GetLatency());
+        mTotalTime.addAndGet(data.GetEndTime() - data.GetStartTime());
+        long test = mTests.incrementAndGet();
 
-        try {
-            mLogg.PrintData(data, mLookups.size());
-        } catch (IOException ex) {
-            System.err.println("In HopLookupMeasure, In LookupResult, "
-            + "File cannot be open, no result written.");
+        if( !mLogg.Write(HopRecord.FromHopData(data, test)) )
+        {
+            if(mLogErrorPrinted.compareAndSet(false, true))
+                System.err.println("In HopLookupMeasure, In LookupResult, "
+                + "File cannot be open, no result written.");
         }
         
         return true;
@@ -74,7 +136,115 @@ public class HopLookupMeasure
      */
     public int GetNumberOfTests()
     {
-        return mLookups.size();
+        return (int)Math.min(Integer.MAX_VALUE, mTests.get());
+    }
+    
+    /**
+     * 
+     * @return Number of failed tests.
+     */
+    public long GetFailedTests()
+    {
+        return mFailed.get();
+    }
+    
+    /**
+     * 
+     * @return Number of lookup attempts that gave no result. They are not 
+     * counted as tests, and a lookup that is retried is counted once per 
+     * attempt.
+     */
+    public long GetNoResultAttempts()
+    {
+        return mNoResult.get();
+    }
+    
+    /**
+     * 
+     * @return Number of tests that found the key, but at a node that is not
+     * the true successor of the key.
+     */
+    public long GetWrongOwnerTests()
+    {
+        return mWrongOwner.get();
+    }
+    
+    /**
+     * 
+     * @return Average number of hops per test.
+     */
+    public double GetAverageHops()
+    {
+        return mHops.GetMean();
+    }
+    
+    /**
+     * 
+     * @return Average time (ms) per test.
+     */
+    public double GetAverageTime()
+    {
+        long tests = mTests.get();
+        return tests == 0 ? 0 : (double)mTotalTime.get() / tests;
+    }
+    
+    /**
+     * 
+     * @param percentile The percentile, between 0 and 100.
+     * @return Latency (ns) of the lookups at the percentile, 0 if no tests.
+     */
+    public long GetLatencyPercentile(double percentile)
+    {
+        return mLatency.GetValueAtPercentile(percentile);
+    }
+    
+    /**
+     * 
+     * @param percentile The percentile, between 0 and 100.
+     * @return Hops of the lookups at the percentile, 0 if no tests.
+     */
+    public long GetHopsPercentile(double percentile)
+    {
+        return mHops.GetValueAtPercentile(percentile);
+    }
+    
+    /**
+     * 
+     * @return Latency (ns) of all lookups.
+     */
+    public Histogram GetLatencyHistogram()
+    {
+        return mLatency;
+    }
+    
+    /**
+     * 
+     * @return Hops of all lookups.
+     */
+    public Histogram GetHopsHistogram()
+    {
+        return mHops;
+    }
+    
+    /**
+     * Takes the lookups added since the previous snapshot (or since the
+     * start for the first one).
+     * @return The lookups of the interval.
+     */
+    public synchronized Interval TakeIntervalSnapshot()
+    {
+        Histogram latency = mLatency.Copy();
+        Histogram hops = mHops.Copy();
+        long now = System.nanoTime();
+        
+        Interval interval = new Interval(latency.Subtract(mLastLatency),
+                hops.Subtract(mLastHops), now - mLastSnapshot);
+        
+        mLastLatency = latency;
+        mLastHops = hops;
+        mLastSnapshot = now;
+        
+        return interval;
     }
     
     /**
@@ -84,4 +254,48 @@ public class HopLookupMeasure
     {
         mLogg.Close();
     }
-}
\ No newline at end of file
+    
+    /**
+     * The lookups added between two snapshots.
+     */
+    public static class Interval
+    {
+        private final Histogram mLatency;
+        private final Histogram mHops;
+        private final long mLength;
+        
+        Interval(Histogram latency, Histogram hops, long length)
+        {
+            mLatency = latency;
+            mHops = hops;
+            mLength = length;
+        }
+        
+        /**
+         * 
+         * @return Latency (ns) of the lookups in the interval.
+         */
+        public Histogram GetLatency()
+        {
+            return mLatency;
+        }
+        
+        /**
+         * 
+         * @return Hops of the lookups in the interval.
+         */
+        public Histogram GetHops()
+        {
+            return mHops;
+        }
+        
+        /**
+         * 
+         * @return Length (ns) of the interval.
+         */
+        public long GetLength()
+        {
+            return mLength;
+        }
+    }
+}
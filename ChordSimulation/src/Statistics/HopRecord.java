@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2015 Simon Edänge <ediz_cracked@hotmail.com>
+ * Bachelor Computer Science Degree Project
+ * Blekinge Institute of Technology Sweden <http://www.bth.se/>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Statistics;
+
+import Chord.ChordNode;
+import Chord.Identifier.Identifier;
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+/**
+ * The logged information about one lookup. Unlike HopData it only holds
+ * the identifiers of the nodes, so it can be kept or queued without
+ * keeping the nodes alive.
+ * @see HopData
+ * @see HopLogWriter
+ * @see HopLogReader
+ * @author Simon Edänge
+ */
+public class HopRecord
+{
+    private final long mNumber;
+    private final int mBits;
+    private final Identifier mCaller;
+    private final Identifier mTarget;
+    private final Identifier mKey;
+    private final boolean mFailed;
+    private final Identifier[] mHops;
+    private final Identifier mResult;
+    private final long mDuration;
+
+    /**
+     * Constructs a HopRecord.
+     * @param number Number of the lookup.
+     * @param bits Bits of the identifiers.
+     * @param caller The caller who initiated the lookup.
+     * @param target Target node to find.
+     * @param key Key of the target node.
+     * @param failed If the lookup failed.
+     * @param hops The nodes visited, in order.
+     * @param result Result node, null if none.
+     * @param duration Duration (ns) of the lookup.
+     */
+    public HopRecord(final long number, final int bits, 
+            final BigInteger caller, final BigInteger target, 
+            final BigInteger key, final boolean failed, 
+            final BigInteger[] hops, final BigInteger result, 
+            final long duration)
+    {
+        this(number, bits, Identifier.Create(caller, bits), 
+                Identifier.Create(target, bits), Identifier.Create(key, bits),
+                failed, ToIdentifiers(hops, bits), 
+                Identifier.Create(result, bits), duration);
+    }
+    
+    /**
+     * Constructs a HopRecord.
+     * @param number Number of the lookup.
+     * @param bits Bits of the identifiers.
+     * @param caller The caller who initiated the lookup.
+     * @param target Target node to find.
+     * @param key Key of the target node.
+     * @param failed If the lookup failed.
+     * @param hops The nodes visited, in order.
+     * @param result Result node, null if none.
+     * @param duration Duration (ns) of the lookup.
+     */
+    public HopRecord(final long number, final int bits, 
+            final Identifier caller, final Identifier target, 
+            final Identifier key, final boolean failed, 
+            final Identifier[] hops, final Identifier result, 
+            final long duration)
+    {
+        mNumber = number;
+        mBits = bits;
+        mCaller = caller;
+        mTarget = target;
+        mKey = key;
+        mFailed = failed;
+        mHops = hops;
+        mResult = result;
+        mDuration = duration;
+    }
+    
+    /**
+     * Creates a HopRecord from a HopData object.
+     * @param data Containing hop information.
+     * @param number Number of the lookup.
+     * @return The record.
+     */
+    public static HopRecord FromHopData(final HopData data, final long number)
+    {
+        ArrayList<ChordNode> list = data.GetTargets();
+        Identifier[] hops = new Identifier[list.size()];
+        
+        for(int i = 0; i < hops.length; i++)
+            hops[i] = list.get(i).PeerID().GetIdentifierID();
+        
+        ChordNode result = data.GetResultNode();
+        
+        return new HopRecord(number, 
+                data.GetCaller().PeerID().GetIdentifierID().Bits(),
+                data.GetCaller().PeerID().GetIdentifierID(),
+                data.GetTargetNode().PeerID().GetIdentifierID(),
+                data.GetTargetNode().PeerID().GetKeyID(),
+                data.IsFailed(), hops, 
+                result == null ? null : result.PeerID().GetIdentifierID(),
+                data.GetLatency());
+    }
+    
+    private static Identifier[] ToIdentifiers(final BigInteger[] values, 
+            final int bits)
+    {
+        if(values == null)
+            return null;
+        
+        Identifier[] ids = new Identifier[values.length];
+        
+        for(int i = 0; i < ids.length; i++)
+            ids[i] = Identifier.Create(values[i], bits);
+        
+        return ids;
+    }
+    
+    /**
+     * 
+     * @return Number of the lookup.
+     */
+    public long GetNumber()
+    {
+        return mNumber;
+    }
+    
+    /**
+     * 
+     * @return Bits of the identifiers.
+     */
+    public int GetBits()
+    {
+        return mBits;
+    }
+    
+    /**
+     * 
+     * @return The caller who initiated the lookup.
+     */
+    public BigInteger GetCaller()
+    {
+        return mCaller.ToBigInteger();
+    }
+    
+    /**
+     * 
+     * @return The caller who initiated the lookup.
+     */
+    public Identifier GetCallerID()
+    {
+        return mCaller;
+    }
+    
+    /**
+     * 
+     * @return Target node to find.
+     */
+    public BigInteger GetTarget()
+    {
+        return mTarget.ToBigInteger();
+    }
+    
+    /**
+     * 
+     * @return Target node to find.
+     */
+    public Identifier GetTargetID()
+    {
+        return mTarget;
+    }
+    
+    /**
+     * 
+     * @return Key of the target node.
+     */
+    public BigInteger GetKey()
+    {
+        return mKey.ToBigInteger();
+    }
+    
+    /**
+     * 
+     * @return Key of the target node.
+     */
+    public Identifier GetKeyID()
+    {
+        return mKey;
+    }
+    
+    /**
+     * 
+     * @return True if the lookup failed.
+     */
+    public boolean IsFailed()
+    {
+        return mFailed;
+    }
+    
+    /**
+     * 
+     * @return The nodes visited, in order.
+     */
+    public BigInteger[] GetHops()
+    {
+        BigInteger[] hops = new BigInteger[mHops.length];
+        
+        for(int i = 0; i < hops.length; i++)
+            hops[i] = mHops[i].ToBigInteger();
+        
+        return hops;
+    }
+    
+    /**
+     * 
+     * @return The nodes visited, in order.
+     */
+    public Identifier[] GetHopIDs()
+    {
+        return mHops;
+    }
+    
+    /**
+     * 
+     * @return Result node, null if none.
+     */
+    public BigInteger GetResult()
+    {
+        return mResult == null ? null : mResult.ToBigInteger();
+    }
+    
+    /**
+     * 
+     * @return Result node, null if none.
+     */
+    public Identifier GetResultID()
+    {
+        return mResult;
+    }
+    
+    /**
+     * 
+     * @return Duration (ns) of the lookup.
+     */
+    public long GetDuration()
+    {
+        return mDuration;
+    }
+}